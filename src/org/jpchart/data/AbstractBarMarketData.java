@@ -0,0 +1,216 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import org.jpchart.market.Market;
+import org.jpchart.time.TimeUnit;
+
+/**
+ * Base class for data sources keeping their bars in a BarStore per ticker.
+ * Time lookups go through the time index of the store, and next and previous
+ * bars are found by index.
+ *
+ * @author cfelde
+ */
+public abstract class AbstractBarMarketData implements MarketData, BarStoreSource {
+    private MarketData dataSource = this;
+    
+    /**
+     * Creates the market data for given bar. Subclasses may override this
+     * to return other Market implementations. Cursor views are always
+     * BarView objects.
+     * 
+     * @param store Bar store
+     * @param index Bar index
+     * @return Market data for bar
+     */
+    protected Market getMarket(BarStore store, int index) {
+        return new BarMarketTick(store, index, dataSource);
+    }
+    
+    public void setMarketDataSource(MarketData dataSource) {
+        this.dataSource = dataSource;
+    }
+    
+    /**
+     * Returns the data source given to new Market objects.
+     * 
+     * @return Data source
+     */
+    protected MarketData getMarketDataSource() {
+        return dataSource;
+    }
+
+    public Market get(String ticker, TimeUnit time) throws Exception {
+        BarStore store = getBarStore(ticker);
+        if (store == null) return null;
+        
+        int index = store.getTimeIndex().indexOf(time.getTimeInMillis());
+        if (index < 0) return null;
+        
+        return getMarket(store, index);
+    }
+
+    public Market getLast(String ticker) throws Exception {
+        BarStore store = getBarStore(ticker);
+        if (store == null || store.size() == 0) return null;
+        
+        return getMarket(store, store.size()-1);
+    }
+
+    public Market getFirst(String ticker) throws Exception {
+        BarStore store = getBarStore(ticker);
+        if (store == null || store.size() == 0) return null;
+        
+        return getMarket(store, 0);
+    }
+
+    public Market getOnOrAfter(String ticker, TimeUnit time) throws Exception {
+        BarStore store = getBarStore(ticker);
+        if (store == null) return null;
+        
+        int index = store.getTimeIndex().indexOnOrAfter(time.getTimeInMillis());
+        if (index >= store.size()) return null;
+        
+        return getMarket(store, index);
+    }
+
+    public Market getOnOrBefore(String ticker, TimeUnit time) throws Exception {
+        BarStore store = getBarStore(ticker);
+        if (store == null) return null;
+        
+        int index = store.getTimeIndex().indexOnOrBefore(time.getTimeInMillis());
+        if (index < 0) return null;
+        
+        return getMarket(store, index);
+    }
+
+    public Market getNext(Market current) throws Exception {
+        BarStore store = getBarStore(current.getTicker());
+        if (store == null) return null;
+        
+        int index;
+        if (current instanceof BarMarketTick && ((BarMarketTick) current).getBarStore() == store)
+            index = ((BarMarketTick) current).getIndex() + 1;
+        else if (current instanceof BarView && ((BarView) current).getBarStore() == store)
+            index = ((BarView) current).getIndex() + 1;
+        else
+            index = store.getTimeIndex().indexOnOrAfter(current.getMarketTime().getTimeInMillis() + 1);
+        
+        if (index >= store.size()) return null;
+        
+        return getMarket(store, index);
+    }
+
+    public Market getPrevious(Market current) throws Exception {
+        BarStore store = getBarStore(current.getTicker());
+        if (store == null) return null;
+        
+        int index;
+        if (current instanceof BarMarketTick && ((BarMarketTick) current).getBarStore() == store)
+            index = ((BarMarketTick) current).getIndex() - 1;
+        else if (current instanceof BarView && ((BarView) current).getBarStore() == store)
+            index = ((BarView) current).getIndex() - 1;
+        else
+            index = store.getTimeIndex().indexOnOrBefore(current.getMarketTime().getTimeInMillis() - 1);
+        
+        if (index < 0) return null;
+        
+        return getMarket(store, index);
+    }
+
+    public int getTicksBetween(String ticker, TimeUnit begin, TimeUnit end) throws Exception {
+        BarStore store = getBarStore(ticker);
+        if (store == null) return 0;
+        
+        return store.getTimeIndex().getTicksBetween(begin.getTimeInMillis(), end.getTimeInMillis());
+    }
+
+    public MarketCursor cursor(String ticker, TimeUnit from, TimeUnit to, boolean forward) throws Exception {
+        BarStore store = getBarStore(ticker);
+        if (store == null) return new BarStoreCursor(null, 0, -1, forward);
+        
+        if (from != null && to != null && from.getTimeInMillis() > to.getTimeInMillis()) {
+            TimeUnit tmp = from;
+            from = to;
+            to = tmp;
+        }
+        
+        TimeIndex timeIndex = store.getTimeIndex();
+        int first = from == null ? 0 : timeIndex.indexOnOrAfter(from.getTimeInMillis());
+        int last = to == null ? store.size() - 1 : timeIndex.indexOnOrBefore(to.getTimeInMillis());
+        
+        return new BarStoreCursor(store, first, last, forward);
+    }
+    
+    /**
+     * Cursor stepping through a bar store by index.
+     */
+    private class BarStoreCursor implements MarketCursor {
+        private final BarStore store;
+        private final int first, last;
+        private final boolean forward;
+        private int index;
+        private Market market = null;
+        private BarView view = null;
+        
+        BarStoreCursor(BarStore store, int first, int last, boolean forward) {
+            this.store = store;
+            this.first = first;
+            this.last = last;
+            this.forward = forward;
+            this.index = forward ? first - 1 : last + 1;
+        }
+        
+        public boolean next() {
+            market = null;
+            
+            if (forward && index < last) {
+                index++;
+                return true;
+            }
+            else if (!forward && index > first) {
+                index--;
+                return true;
+            }
+            
+            return false;
+        }
+        
+        public Market getMarket() {
+            if (market == null)
+                market = AbstractBarMarketData.this.getMarket(store, index);
+            
+            return market;
+        }
+        
+        public Market getView() {
+            if (view == null)
+                view = new BarView(getMarketDataSource());
+            
+            view.moveTo(store, index);
+            return view;
+        }
+        
+        public long getTime() {
+            return store.getTime(index);
+        }
+    }
+}
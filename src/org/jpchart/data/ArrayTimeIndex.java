@@ -0,0 +1,114 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.Arrays;
+
+/**
+ * Time index backed by a growable long array.
+ *
+ * @author cfelde
+ */
+public class ArrayTimeIndex extends TimeIndex {
+    private long[] times;
+    private int size = 0;
+    
+    public ArrayTimeIndex() {
+        this(256);
+    }
+    
+    public ArrayTimeIndex(int capacity) {
+        times = new long[Math.max(capacity, 1)];
+    }
+    
+    /**
+     * Creates a time index using given array, without copying it.
+     * 
+     * @param times Times in increasing order
+     * @param size Number of times used in the array
+     */
+    public ArrayTimeIndex(long[] times, int size) {
+        for (int x = 1; x < size; x++) {
+            if (times[x] <= times[x-1])
+                throw new IllegalArgumentException("Times must be in increasing order");
+        }
+        
+        this.times = times.length > 0 ? times : new long[1];
+        this.size = size;
+    }
+    
+    /**
+     * Add given time as the new last time.
+     * 
+     * @param time Time in milliseconds, must be after the current last time
+     */
+    public void add(long time) {
+        if (size > 0 && time <= times[size-1])
+            throw new IllegalArgumentException("Times must be added in increasing order");
+        
+        if (size == times.length)
+            times = Arrays.copyOf(times, size + (size >> 1) + 1);
+        
+        times[size++] = time;
+    }
+    
+    /**
+     * Removes all times.
+     */
+    public void clear() {
+        size = 0;
+    }
+    
+    /**
+     * Trims the capacity of this index down to its size.
+     */
+    public void trimToSize() {
+        if (size < times.length && size > 0)
+            times = Arrays.copyOf(times, size);
+    }
+    
+    /**
+     * Returns the number of elements this index can hold without growing.
+     * 
+     * @return Capacity
+     */
+    public int capacity() {
+        return times.length;
+    }
+    
+    /**
+     * Returns the backing array, which is replaced when the index grows.
+     * 
+     * @return Backing array
+     */
+    long[] getArray() {
+        return times;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int index) {
+        if (index >= size) throw new ArrayIndexOutOfBoundsException(index);
+        
+        return times[index];
+    }
+}
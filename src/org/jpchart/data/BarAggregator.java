@@ -0,0 +1,241 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jpchart.market.FixedPoint;
+import org.jpchart.market.Market;
+import org.jpchart.time.TimeUnit;
+import org.jpchart.time.TimeUtils;
+
+/**
+ * Builds coarser bars from finer ones, for several resolutions in one pass
+ * over the source bars. Resolutions are given by their description, as
+ * understood by TimeUtils.getTimeUnit, such as "5Minute", "Hour" or "Week".
+ *
+ * @author cfelde
+ */
+public class BarAggregator {
+    public final static String[] DEFAULT_RESOLUTIONS = {"5Minute", "15Minute", "Hour", "Day", "Week", "Month"};
+    
+    private final String[] resolutions;
+    
+    /**
+     * The bar currently being built for one resolution.
+     */
+    private static class Bucket {
+        final String resolution;
+        final BarSeries series;
+        boolean open = false;
+        long start, end;
+        long o, h, l, c, v;
+        
+        Bucket(String ticker, String resolution, int priceScale, int volumeScale) {
+            this.resolution = resolution;
+            this.series = new BarSeries(ticker, resolution);
+            series.setPriceScale(priceScale);
+            series.setVolumeScale(volumeScale);
+        }
+        
+        void add(long time, long open, long high, long low, long close, long volume) {
+            if (this.open && time >= start && time < end) {
+                if (high > h) h = high;
+                if (low < l) l = low;
+                c = close;
+                v += volume;
+                return;
+            }
+            
+            flush();
+            
+            TimeUnit unit = TimeUtils.getTimeUnit(resolution, time);
+            start = unit.getTimeInMillis();
+            end = unit.getAddOne().getTimeInMillis();
+            o = open;
+            h = high;
+            l = low;
+            c = close;
+            v = volume;
+            this.open = true;
+        }
+        
+        void flush() {
+            if (open) {
+                series.add(start, o, h, l, c, v);
+                open = false;
+            }
+        }
+        
+        void rescale(int priceScale, int volumeScale) {
+            long priceFactor = BarSeries.powerOfTen(priceScale - series.getPriceScale());
+            long volumeFactor = BarSeries.powerOfTen(volumeScale - series.getVolumeScale());
+            
+            series.setPriceScale(priceScale);
+            series.setVolumeScale(volumeScale);
+            o *= priceFactor;
+            h *= priceFactor;
+            l *= priceFactor;
+            c *= priceFactor;
+            v *= volumeFactor;
+        }
+    }
+    
+    public BarAggregator() {
+        this(DEFAULT_RESOLUTIONS);
+    }
+    
+    /**
+     * Creates an aggregator building bars of given resolutions.
+     * 
+     * @param resolutions Resolution descriptions
+     * @throws IllegalArgumentException if a resolution is unknown
+     */
+    public BarAggregator(String... resolutions) {
+        for (String resolution : resolutions)
+            TimeUtils.getTimeUnit(resolution, 0);
+        
+        this.resolutions = resolutions.clone();
+    }
+    
+    public String[] getResolutions() {
+        return resolutions.clone();
+    }
+    
+    /**
+     * Aggregate the given bars into each resolution.
+     * 
+     * @param store Source bars
+     * @return Aggregated series, by resolution
+     */
+    public Map<String, BarSeries> aggregate(BarStore store) {
+        Bucket[] buckets = createBuckets(store.getTicker(), store.getPriceScale(), store.getVolumeScale());
+        
+        int size = store.size();
+        for (int x = 0; x < size; x++) {
+            long time = store.getTime(x);
+            long open = store.getOpen(x);
+            long high = store.getHigh(x);
+            long low = store.getLow(x);
+            long close = store.getClose(x);
+            long volume = store.getVolume(x);
+            
+            for (Bucket bucket : buckets)
+                bucket.add(time, open, high, low, close, volume);
+        }
+        
+        return finish(buckets);
+    }
+    
+    /**
+     * Aggregate all bars of given ticker from given data source into each
+     * resolution, going through the bars of the data source once.
+     * 
+     * @param dataSource Data source with the source bars
+     * @param ticker Ticker
+     * @return Aggregated series by resolution, or null if the ticker has no data
+     * @throws Exception on errors
+     */
+    public Map<String, BarSeries> aggregate(MarketData dataSource, String ticker) throws Exception {
+        // Bars kept in a bar store can be read directly from it
+        if (dataSource instanceof BarStoreSource) {
+            BarStore store = ((BarStoreSource) dataSource).getBarStore(ticker);
+            if (store != null)
+                return store.size() == 0 ? null : aggregate(store);
+        }
+        
+        MarketCursor cursor = dataSource.cursor(ticker, null, null, true);
+        if (!cursor.next()) return null;
+        
+        Market market = cursor.getView();
+        int priceScale = 0, volumeScale = 0;
+        Bucket[] buckets = createBuckets(market.getTicker(), priceScale, volumeScale);
+        
+        do {
+            market = cursor.getView();
+            
+            int neededPriceScale = Math.max(priceScale, market.getPriceScale());
+            int neededVolumeScale = Math.max(volumeScale, market.getVolumeScale());
+            
+            if (neededPriceScale != priceScale || neededVolumeScale != volumeScale) {
+                priceScale = neededPriceScale;
+                volumeScale = neededVolumeScale;
+                for (Bucket bucket : buckets)
+                    bucket.rescale(priceScale, volumeScale);
+            }
+            
+            long time = market.getMarketTime().getTimeInMillis();
+            long open = FixedPoint.rescale(market.getOpenScaled(), market.getPriceScale(), priceScale);
+            long high = FixedPoint.rescale(market.getHighScaled(), market.getPriceScale(), priceScale);
+            long low = FixedPoint.rescale(market.getLowScaled(), market.getPriceScale(), priceScale);
+            long close = FixedPoint.rescale(market.getCloseScaled(), market.getPriceScale(), priceScale);
+            long volume = FixedPoint.rescale(market.getVolumeScaled(), market.getVolumeScale(), volumeScale);
+            
+            for (Bucket bucket : buckets)
+                bucket.add(time, open, high, low, close, volume);
+        } while (cursor.next());
+        
+        return finish(buckets);
+    }
+    
+    /**
+     * Aggregate given tickers from given data source, returning one data
+     * source per resolution holding the aggregated bars of all tickers.
+     * 
+     * @param dataSource Data source with the source bars
+     * @param tickers Tickers to aggregate
+     * @return Data sources by resolution
+     * @throws Exception on errors
+     */
+    public Map<String, MarketDataColumnar> toMarketData(MarketData dataSource, String... tickers) throws Exception {
+        Map<String, MarketDataColumnar> result = new LinkedHashMap<String, MarketDataColumnar>();
+        for (String resolution : resolutions)
+            result.put(resolution, new MarketDataColumnar());
+        
+        for (String ticker : tickers) {
+            Map<String, BarSeries> seriesMap = aggregate(dataSource, ticker);
+            if (seriesMap == null) throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
+            
+            for (Map.Entry<String, BarSeries> entry : seriesMap.entrySet())
+                result.get(entry.getKey()).addSeries(entry.getValue());
+        }
+        
+        return result;
+    }
+    
+    private Bucket[] createBuckets(String ticker, int priceScale, int volumeScale) {
+        Bucket[] buckets = new Bucket[resolutions.length];
+        for (int x = 0; x < buckets.length; x++)
+            buckets[x] = new Bucket(ticker, resolutions[x], priceScale, volumeScale);
+        
+        return buckets;
+    }
+    
+    private Map<String, BarSeries> finish(Bucket[] buckets) {
+        Map<String, BarSeries> result = new LinkedHashMap<String, BarSeries>();
+        for (Bucket bucket : buckets) {
+            bucket.flush();
+            bucket.series.trimToSize();
+            result.put(bucket.resolution, bucket.series);
+        }
+        
+        return result;
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Fixed width binary bar file format, one file per ticker and resolution.
+ * 
+ * The file starts with a 64 byte header:
+ * <pre>
+ *   int     magic, "JPCB"
+ *   int     format version
+ *   int     price scale
+ *   int     volume scale
+ *   byte[16] resolution description, US-ASCII, zero padded
+ *   byte[32] ticker, US-ASCII, zero padded
+ * </pre>
+ * followed by one 48 byte record per bar, oldest first:
+ * <pre>
+ *   long    time in milliseconds
+ *   long    scaled open
+ *   long    scaled high
+ *   long    scaled low
+ *   long    scaled close
+ *   long    scaled volume
+ * </pre>
+ * All values are big endian. The number of bars is given by the file length,
+ * so new bars can be appended without touching the header.
+ *
+ * @author cfelde
+ */
+public class BarFile {
+    public final static int MAGIC = 0x4A504342;
+    public final static int VERSION = 1;
+    public final static int HEADER_SIZE = 64;
+    public final static int RECORD_SIZE = 48;
+    public final static String SUFFIX = ".bar";
+    
+    private final static int RESOLUTION_SIZE = 16;
+    private final static int TICKER_SIZE = 32;
+    private final static Charset ASCII = Charset.forName("US-ASCII");
+    
+    private BarFile() {
+    }
+    
+    /**
+     * Returns the file used for given ticker and resolution within given
+     * directory. Example: goog.day.bar
+     * 
+     * @param dir Data directory
+     * @param ticker Ticker
+     * @param resolution Resolution description
+     * @return Bar file
+     */
+    public static File getFile(File dir, String ticker, String resolution) {
+        return new File(dir, ticker.toLowerCase() + "." + resolution.toLowerCase() + SUFFIX);
+    }
+    
+    /**
+     * Write all bars in given store to given file, replacing any existing file.
+     * The file is written to a temporary file first and then renamed, so
+     * readers never see a half written file.
+     * 
+     * @param store Bars to write
+     * @param file File to write
+     * @throws IOException on errors
+     */
+    public static void write(BarStore store, File file) throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        
+        RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(store.getPriceScale());
+            header.putInt(store.getVolumeScale());
+            putString(header, store.getResolution(), RESOLUTION_SIZE);
+            putString(header, store.getTicker().toUpperCase(), TICKER_SIZE);
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header);
+            
+            writeRecords(channel, store, 0);
+        }
+        finally {
+            raf.close();
+        }
+        
+        if (file.exists() && !file.delete())
+            throw new IOException("Unable to replace " + file);
+        if (!tmpFile.renameTo(file))
+            throw new IOException("Unable to rename " + tmpFile + " to " + file);
+    }
+    
+    /**
+     * Write the bars of given store from given index to given file, which
+     * must already hold the bars before that index. Any records from that
+     * index on are replaced, so a changed last bar can be written again.
+     * The price and volume scale of the store must match the file header.
+     * 
+     * If interrupted, the file may end with a partial record, which is
+     * ignored when the file is opened.
+     * 
+     * @param store Bars to write
+     * @param file Existing bar file
+     * @param fromIndex Index of first bar to write
+     * @throws IOException on errors, or if the file does not match the store
+     */
+    public static void append(BarStore store, File file, int fromIndex) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION)
+                throw new IOException("Not a bar file: " + file);
+            if (raf.readInt() != store.getPriceScale() || raf.readInt() != store.getVolumeScale())
+                throw new IOException("Scale of bar file does not match bars to append: " + file);
+            
+            FileChannel channel = raf.getChannel();
+            long position = HEADER_SIZE + (long) fromIndex * RECORD_SIZE;
+            if (position > channel.size())
+                throw new IOException("Bar file is missing bars before index " + fromIndex + ": " + file);
+            
+            channel.truncate(position);
+            channel.position(position);
+            writeRecords(channel, store, fromIndex);
+        }
+        finally {
+            raf.close();
+        }
+    }
+    
+    /**
+     * Open given bar file, memory mapping its content.
+     * 
+     * @param file Bar file
+     * @return Bar store reading from the mapped file
+     * @throws IOException on errors
+     */
+    public static MappedBarStore open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            
+            if (length < HEADER_SIZE)
+                throw new IOException("Not a bar file: " + file);
+            
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            checkHeader(buffer, file);
+            
+            int priceScale = buffer.getInt(8);
+            int volumeScale = buffer.getInt(12);
+            String resolution = getString(buffer, 16, RESOLUTION_SIZE);
+            String ticker = getString(buffer, 16 + RESOLUTION_SIZE, TICKER_SIZE);
+            
+            return new MappedBarStore(ticker, resolution, priceScale, volumeScale, buffer);
+        }
+        finally {
+            raf.close();
+        }
+    }
+    
+    /**
+     * Read all bars of given bar file into a new series. Unlike open, the
+     * file is not mapped, so it can be replaced or appended to right after.
+     * A partial record at the end of the file is ignored.
+     * 
+     * @param file Bar file
+     * @return Bars of the file
+     * @throws IOException on errors
+     */
+    public static BarSeries read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            
+            if (length < HEADER_SIZE)
+                throw new IOException("Not a bar file: " + file);
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, file);
+            checkHeader(header, file);
+            
+            int size = (int) Math.min((length - HEADER_SIZE) / RECORD_SIZE, Integer.MAX_VALUE);
+            String resolution = getString(header, 16, RESOLUTION_SIZE);
+            String ticker = getString(header, 16 + RESOLUTION_SIZE, TICKER_SIZE);
+            
+            BarSeries series = new BarSeries(ticker, resolution, Math.max(size, 1));
+            series.setPriceScale(header.getInt(8));
+            series.setVolumeScale(header.getInt(12));
+            
+            ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * 4096);
+            for (int x = 0; x < size; ) {
+                records.clear();
+                records.limit(Math.min(size - x, 4096) * RECORD_SIZE);
+                readFully(channel, records, file);
+                records.flip();
+                
+                for (; records.hasRemaining(); x++)
+                    series.add(records.getLong(), records.getLong(), records.getLong(), records.getLong(), records.getLong(), records.getLong());
+            }
+            
+            return series;
+        }
+        finally {
+            raf.close();
+        }
+    }
+    
+    private static void checkHeader(ByteBuffer buffer, File file) throws IOException {
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a bar file: " + file);
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported bar file version " + buffer.getInt(4) + ": " + file);
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, File file) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                throw new IOException("Unexpected end of bar file: " + file);
+        }
+    }
+    
+    /**
+     * Writes the records of given store, from given index, at the current
+     * position of given channel.
+     */
+    static void writeRecords(FileChannel channel, BarStore store, int fromIndex) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * 4096);
+        
+        for (int x = fromIndex; x < store.size(); x++) {
+            if (!records.hasRemaining()) {
+                records.flip();
+                while (records.hasRemaining())
+                    channel.write(records);
+                records.clear();
+            }
+            
+            records.putLong(store.getTime(x));
+            records.putLong(store.getOpen(x));
+            records.putLong(store.getHigh(x));
+            records.putLong(store.getLow(x));
+            records.putLong(store.getClose(x));
+            records.putLong(store.getVolume(x));
+        }
+        
+        records.flip();
+        while (records.hasRemaining())
+            channel.write(records);
+    }
+    
+    private static void putString(ByteBuffer buffer, String value, int size) {
+        byte[] bytes = value.getBytes(ASCII);
+        if (bytes.length > size)
+            throw new IllegalArgumentException("Value too long for bar file header: " + value);
+        
+        buffer.put(bytes);
+        for (int x = bytes.length; x < size; x++)
+            buffer.put((byte) 0);
+    }
+    
+    private static String getString(ByteBuffer buffer, int offset, int size) {
+        int length = 0;
+        while (length < size && buffer.get(offset + length) != 0)
+            length++;
+        
+        byte[] bytes = new byte[length];
+        for (int x = 0; x < length; x++)
+            bytes[x] = buffer.get(offset + x);
+        
+        return new String(bytes, ASCII);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts market data into the binary bar file format.
+ * 
+ * Run from the command line with a CSV file in the Yahoo layout
+ * (Date,Open,High,Low,Close,Volume,Adj Close), the ticker and
+ * the output directory as arguments.
+ *
+ * @author cfelde
+ */
+public class BarFileConverter {
+    private BarFileConverter() {
+    }
+    
+    /**
+     * Write all bars for given ticker in given data source to a bar file
+     * within given directory.
+     * 
+     * @param dataSource Data source to read from
+     * @param ticker Ticker
+     * @param dir Output directory
+     * @return Bar file written, or null if no data was available
+     * @throws Exception on errors
+     */
+    public static File convert(MarketData dataSource, String ticker, File dir) throws Exception {
+        BarSeries series = BarSeries.load(dataSource, ticker);
+        if (series == null) return null;
+        
+        File file = BarFile.getFile(dir, series.getTicker(), series.getResolution());
+        BarFile.write(series, file);
+        
+        return file;
+    }
+    
+    /**
+     * Write all bars in given CSV file to a bar file within given directory.
+     * The CSV file must use the Yahoo layout, with daily bars in any order.
+     * As with MarketDataYahoo, the adjusted close is used as close price.
+     * 
+     * @param csvFile CSV file to read
+     * @param ticker Ticker
+     * @param dir Output directory
+     * @return Bar file written
+     * @throws IOException on errors
+     */
+    public static File convert(File csvFile, String ticker, File dir) throws IOException {
+        BarSeries series = new CsvBarReader().read(ticker, csvFile.toPath());
+        
+        File file = BarFile.getFile(dir, series.getTicker(), series.getResolution());
+        BarFile.write(series, file);
+        
+        return file;
+    }
+    
+    public static void main(String args[]) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: BarFileConverter <csv file> <ticker> <output dir>");
+            System.exit(1);
+        }
+        
+        File file = convert(new File(args[0]), args[1], new File(args[2]));
+        System.out.println("Wrote " + file);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import org.jpchart.market.MarketTick;
+import org.jpchart.time.TimeUtils;
+
+/**
+ * Market data materialized from a bar store. Remembers where it came from,
+ * so next and previous bars can be found by index.
+ *
+ * @author cfelde
+ */
+class BarMarketTick extends MarketTick {
+    private final BarStore store;
+    private final int index;
+    
+    BarMarketTick(BarStore store, int index, MarketData dataSource) {
+        super(store.getTicker(),
+                TimeUtils.getTimeUnit(store.getResolution(), store.getTime(index)),
+                store.getOpen(index),
+                store.getHigh(index),
+                store.getLow(index),
+                store.getClose(index),
+                store.getVolume(index),
+                store.getPriceScale(),
+                store.getVolumeScale(),
+                dataSource);
+        
+        this.store = store;
+        this.index = index;
+    }
+    
+    BarStore getBarStore() {
+        return store;
+    }
+    
+    int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Level of detail pyramid over a bar store. Level k holds the first, max,
+ * min and last value of each aligned block of 2^k bars, so the range of any
+ * run of bars is found in O(log n), which is what zoomed out plots need to
+ * draw one column per pixel.
+ * 
+ * By default the pyramid covers full bars, where first is the open, max the
+ * high, min the low and last the close. It can also cover a single price
+ * field, for line plots. The last bar of the store is always read directly,
+ * so a forming last bar may be updated in place, and bars added to the
+ * store are picked up on the next query. The levels are rebuilt if the
+ * price scale of the store changes, or if it has fewer bars than covered.
+ * 
+ * Shared levels are owned by BarSeries and BarSnapshot stores, and handed
+ * from a series to its snapshots and from one snapshot to the next, so a
+ * new snapshot extends the levels of the previous one. Levels of other
+ * stores are kept in a weak map which does not reference the store.
+ *
+ * @author cfelde
+ */
+public class BarPyramid {
+    public final static int OHLC = 0;
+    public final static int OPEN = 1;
+    public final static int HIGH = 2;
+    public final static int LOW = 3;
+    public final static int CLOSE = 4;
+    
+    /** Result indexes, as filled in by getRange */
+    public final static int FIRST = 0;
+    public final static int MAX = 1;
+    public final static int MIN = 2;
+    public final static int LAST = 3;
+    
+    private final static Map<BarStore, Levels[]> pyramids = new WeakHashMap<BarStore, Levels[]>();
+    
+    private final BarStore store;
+    private final Levels levels;
+    
+    /**
+     * Pyramid levels of one field, which may be shared by stores holding the
+     * same bars. Level k is found at index k-1, level 0 being the store
+     * itself. Levels never reference a store, so they can be kept by, or
+     * for, the stores they cover.
+     */
+    static final class Levels {
+        private final int field;
+        private final boolean appendOnly;
+        private long[][] first = new long[0][], max = new long[0][], min = new long[0][], last = new long[0][];
+        private int covered = 0;
+        private int priceScale = -1;
+        
+        /**
+         * @param field Field covered
+         * @param appendOnly True if the stores sharing these levels only
+         *                   ever add bars, so a store with fewer bars than
+         *                   covered is an earlier snapshot of the same bars
+         */
+        Levels(int field, boolean appendOnly) {
+            this.field = field;
+            this.appendOnly = appendOnly;
+        }
+    }
+    
+    /**
+     * Creates a pyramid over given store and field, with levels of its own.
+     * 
+     * @param store Bar store
+     * @param field OHLC, or one of OPEN, HIGH, LOW or CLOSE
+     */
+    public BarPyramid(BarStore store, int field) {
+        this(store, new Levels(checkField(field), false));
+    }
+    
+    private BarPyramid(BarStore store, Levels levels) {
+        this.store = store;
+        this.levels = levels;
+    }
+    
+    private static int checkField(int field) {
+        if (field < OHLC || field > CLOSE)
+            throw new IllegalArgumentException("Unknown field: " + field);
+        
+        return field;
+    }
+    
+    /**
+     * Returns an empty set of levels, one per field, for a store owning
+     * its pyramids.
+     * 
+     * @return Empty levels
+     */
+    static Levels[] createLevels() {
+        return new Levels[CLOSE + 1];
+    }
+    
+    /**
+     * Returns a pyramid for given store and field using shared levels,
+     * creating them if needed. Levels are kept for as long as their store,
+     * or a snapshot sharing its bars, is in use.
+     * 
+     * @param store Bar store
+     * @param field OHLC, or one of OPEN, HIGH, LOW or CLOSE
+     * @return Pyramid
+     */
+    public static BarPyramid get(BarStore store, int field) {
+        checkField(field);
+        
+        Levels[] storeLevels;
+        boolean appendOnly = true;
+        
+        if (store instanceof BarSeries) {
+            storeLevels = ((BarSeries) store).getPyramidLevels();
+        }
+        else if (store instanceof BarSnapshot) {
+            storeLevels = ((BarSnapshot) store).getPyramidLevels();
+        }
+        else {
+            appendOnly = false;
+            synchronized (pyramids) {
+                storeLevels = pyramids.get(store);
+                if (storeLevels == null) {
+                    storeLevels = createLevels();
+                    pyramids.put(store, storeLevels);
+                }
+            }
+        }
+        
+        synchronized (storeLevels) {
+            if (storeLevels[field] == null)
+                storeLevels[field] = new Levels(field, appendOnly);
+            
+            return new BarPyramid(store, storeLevels[field]);
+        }
+    }
+    
+    public BarStore getBarStore() {
+        return store;
+    }
+    
+    /**
+     * Find the first, max, min and last value of the bars from given index,
+     * inclusive, to given index, exclusive. Values are scaled as given by
+     * the store.
+     * 
+     * @param from First bar index
+     * @param to Last bar index + 1
+     * @param result Array of at least 4 values, filled in at FIRST, MAX, MIN and LAST
+     */
+    public void getRange(int from, int to, long[] result) {
+        if (from < 0 || to > store.size() || from >= to)
+            throw new IndexOutOfBoundsException("Invalid range: " + from + " to " + to);
+        
+        synchronized (levels) {
+            update();
+            
+            long[][] first = levels.first, max = levels.max, min = levels.min, last = levels.last;
+            int covered = Math.min(levels.covered, store.size() - 1);
+            long rangeMax = Long.MIN_VALUE, rangeMin = Long.MAX_VALUE;
+            int index = from;
+            
+            while (index < to) {
+                // Use the largest aligned block starting at index and fitting the range
+                int level = 0;
+                while (level < first.length
+                        && (index & ((2 << level) - 1)) == 0
+                        && index + (2 << level) <= Math.min(to, covered))
+                    level++;
+                
+                long blockFirst, blockMax, blockMin, blockLast;
+                if (level == 0) {
+                    blockFirst = getFirst(index);
+                    blockMax = getMax(index);
+                    blockMin = getMin(index);
+                    blockLast = getLast(index);
+                }
+                else {
+                    int block = index >> level;
+                    blockFirst = first[level-1][block];
+                    blockMax = max[level-1][block];
+                    blockMin = min[level-1][block];
+                    blockLast = last[level-1][block];
+                }
+                
+                if (index == from) result[FIRST] = blockFirst;
+                if (blockMax > rangeMax) rangeMax = blockMax;
+                if (blockMin < rangeMin) rangeMin = blockMin;
+                result[LAST] = blockLast;
+                
+                index += 1 << level;
+            }
+            
+            result[MAX] = rangeMax;
+            result[MIN] = rangeMin;
+        }
+    }
+    
+    /**
+     * Extend the levels to cover all but the last bar of the store,
+     * rebuilding them if they were built for other bars. Must be called
+     * holding the levels lock.
+     */
+    private void update() {
+        int target = store.size() - 1;
+        
+        if (store.getPriceScale() != levels.priceScale || (target < levels.covered && !levels.appendOnly)) {
+            levels.first = new long[0][];
+            levels.max = new long[0][];
+            levels.min = new long[0][];
+            levels.last = new long[0][];
+            levels.covered = 0;
+            levels.priceScale = store.getPriceScale();
+        }
+        
+        int covered = levels.covered;
+        if (target <= covered) return;
+        
+        int levelCount = 0;
+        while ((target >> (levelCount + 1)) > 0)
+            levelCount++;
+        
+        if (levelCount > levels.first.length) {
+            levels.first = grow(levels.first, levelCount);
+            levels.max = grow(levels.max, levelCount);
+            levels.min = grow(levels.min, levelCount);
+            levels.last = grow(levels.last, levelCount);
+        }
+        
+        long[][] first = levels.first, max = levels.max, min = levels.min, last = levels.last;
+        
+        for (int level = 1; level <= levelCount; level++) {
+            int from = covered >> level;
+            int to = target >> level;
+            int k = level - 1;
+            
+            if (first[k] == null || first[k].length < to) {
+                int capacity = Math.max(to, first[k] == null ? 0 : first[k].length * 2);
+                first[k] = resize(first[k], capacity);
+                max[k] = resize(max[k], capacity);
+                min[k] = resize(min[k], capacity);
+                last[k] = resize(last[k], capacity);
+            }
+            
+            for (int block = from; block < to; block++) {
+                int left = block * 2, right = left + 1;
+                
+                if (level == 1) {
+                    first[k][block] = getFirst(left);
+                    max[k][block] = Math.max(getMax(left), getMax(right));
+                    min[k][block] = Math.min(getMin(left), getMin(right));
+                    last[k][block] = getLast(right);
+                }
+                else {
+                    first[k][block] = first[k-1][left];
+                    max[k][block] = Math.max(max[k-1][left], max[k-1][right]);
+                    min[k][block] = Math.min(min[k-1][left], min[k-1][right]);
+                    last[k][block] = last[k-1][right];
+                }
+            }
+        }
+        
+        levels.covered = target;
+    }
+    
+    private static long[][] grow(long[][] levels, int size) {
+        long[][] grown = new long[size][];
+        System.arraycopy(levels, 0, grown, 0, levels.length);
+        return grown;
+    }
+    
+    private static long[] resize(long[] values, int size) {
+        long[] resized = new long[size];
+        if (values != null)
+            System.arraycopy(values, 0, resized, 0, values.length);
+        return resized;
+    }
+    
+    private long getFirst(int index) {
+        switch (levels.field) {
+            case HIGH: return store.getHigh(index);
+            case LOW: return store.getLow(index);
+            case CLOSE: return store.getClose(index);
+            default: return store.getOpen(index);
+        }
+    }
+    
+    private long getMax(int index) {
+        switch (levels.field) {
+            case OPEN: return store.getOpen(index);
+            case LOW: return store.getLow(index);
+            case CLOSE: return store.getClose(index);
+            default: return store.getHigh(index);
+        }
+    }
+    
+    private long getMin(int index) {
+        switch (levels.field) {
+            case OPEN: return store.getOpen(index);
+            case HIGH: return store.getHigh(index);
+            case CLOSE: return store.getClose(index);
+            default: return store.getLow(index);
+        }
+    }
+    
+    private long getLast(int index) {
+        switch (levels.field) {
+            case OPEN: return store.getOpen(index);
+            case HIGH: return store.getHigh(index);
+            case LOW: return store.getLow(index);
+            default: return store.getClose(index);
+        }
+    }
+}
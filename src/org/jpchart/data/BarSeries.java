@@ -0,0 +1,420 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import org.jpchart.market.FixedPoint;
+import org.jpchart.market.Market;
+
+/**
+ * Growable columnar bar storage for one ticker. Each bar field is kept in
+ * its own primitive array, so a bar costs 48 bytes instead of the several
+ * hundred bytes needed by a MarketTick with its time unit and Calendar.
+ * 
+ * Bars must be added in increasing time order. This class is not thread safe.
+ *
+ * @author cfelde
+ */
+public class BarSeries implements BarStore {
+    /**
+     * Max number of decimals kept for prices and volume. Values with more
+     * decimals are rounded half even.
+     */
+    public final static int MAX_SCALE = FixedPoint.MAX_SCALE;
+    
+    private final String ticker;
+    private final String resolution;
+    
+    private final ArrayTimeIndex timeIndex;
+    private long[] open, high, low, close, volume;
+    private int size = 0;
+    private int priceScale = 0;
+    private int volumeScale = 0;
+    private final BarPyramid.Levels[] pyramidLevels = BarPyramid.createLevels();
+    
+    public BarSeries(String ticker, String resolution) {
+        this(ticker, resolution, 256);
+    }
+    
+    public BarSeries(String ticker, String resolution, int capacity) {
+        if (capacity < 1) capacity = 1;
+        
+        this.ticker = ticker;
+        this.resolution = resolution;
+        
+        timeIndex = new ArrayTimeIndex(capacity);
+        open = new long[capacity];
+        high = new long[capacity];
+        low = new long[capacity];
+        close = new long[capacity];
+        volume = new long[capacity];
+    }
+    
+    /**
+     * Creates a series using given arrays, without copying them.
+     * All arrays must have the same length.
+     */
+    BarSeries(String ticker, String resolution, long[] time, long[] open, long[] high, long[] low, long[] close, long[] volume, int size, int priceScale, int volumeScale) {
+        this.ticker = ticker;
+        this.resolution = resolution;
+        
+        this.timeIndex = new ArrayTimeIndex(time, size);
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.size = size;
+        this.priceScale = priceScale;
+        this.volumeScale = volumeScale;
+    }
+    
+    /**
+     * Load all bars available for given ticker from given data source.
+     * Returns null if the data source has no data for the ticker.
+     * 
+     * @param dataSource Data source to load from
+     * @param ticker Ticker
+     * @return New bar series, or null
+     * @throws Exception on errors
+     */
+    public static BarSeries load(MarketData dataSource, String ticker) throws Exception {
+        // Copy the bars directly if the data source keeps them in a store
+        if (dataSource instanceof BarStoreSource) {
+            BarStore store = ((BarStoreSource) dataSource).getBarStore(ticker);
+            if (store != null) {
+                int size = store.size();
+                if (size == 0) return null;
+                
+                BarSeries series = new BarSeries(store.getTicker(), store.getResolution(), size);
+                series.addAll(store, 0, size);
+                return series;
+            }
+        }
+        
+        BarSeries series = null;
+        MarketCursor cursor = dataSource.cursor(ticker, null, null, true);
+        while (cursor.next()) {
+            Market market = cursor.getView();
+            if (series == null)
+                series = new BarSeries(market.getTicker(), market.getMarketTime().getResolutionDescription());
+            
+            series.add(market);
+        }
+        
+        return series;
+    }
+    
+    /**
+     * Add given market data as the new last bar. The price and volume scales
+     * are increased if needed to keep all decimals of the given values.
+     * 
+     * @param market Market data to add
+     */
+    public void add(Market market) {
+        ensureScales(market);
+        
+        add(market.getMarketTime().getTimeInMillis(),
+                FixedPoint.rescale(market.getOpenScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getHighScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getLowScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getCloseScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getVolumeScaled(), market.getVolumeScale(), volumeScale));
+    }
+    
+    /**
+     * Add a new last bar. Prices and volume must be given using the current
+     * price and volume scale.
+     * 
+     * @param time Bar time in milliseconds, must be after the current last bar
+     * @param open Scaled open price
+     * @param high Scaled high price
+     * @param low Scaled low price
+     * @param close Scaled close price
+     * @param volume Scaled volume
+     */
+    public void add(long time, long open, long high, long low, long close, long volume) {
+        if (size > 0 && time <= timeIndex.getTime(size-1))
+            throw new IllegalArgumentException("Bars must be added in increasing time order");
+        
+        if (size == this.open.length)
+            grow();
+        
+        timeIndex.add(time);
+        this.open[size] = open;
+        this.high[size] = high;
+        this.low[size] = low;
+        this.close[size] = close;
+        this.volume[size] = volume;
+        size++;
+    }
+    
+    /**
+     * Add the bars of given store from given index, inclusive, to given
+     * index, exclusive, after the current last bar. The price and volume
+     * scales are increased if needed.
+     * 
+     * @param store Bars to add
+     * @param from First index
+     * @param to Last index + 1
+     */
+    public void addAll(BarStore store, int from, int to) {
+        if (store.getPriceScale() > priceScale)
+            setPriceScale(store.getPriceScale());
+        if (store.getVolumeScale() > volumeScale)
+            setVolumeScale(store.getVolumeScale());
+        
+        long priceFactor = FixedPoint.powerOfTen(priceScale - store.getPriceScale());
+        long volumeFactor = FixedPoint.powerOfTen(volumeScale - store.getVolumeScale());
+        
+        for (int x = from; x < to; x++) {
+            add(store.getTime(x),
+                    store.getOpen(x) * priceFactor,
+                    store.getHigh(x) * priceFactor,
+                    store.getLow(x) * priceFactor,
+                    store.getClose(x) * priceFactor,
+                    store.getVolume(x) * volumeFactor);
+        }
+    }
+    
+    /**
+     * Replace the values of the last bar with those of given market data,
+     * which must have the same time as the last bar. The price and volume
+     * scales are increased if needed.
+     *
+     * @param market Updated market data for the last bar
+     */
+    public void updateLast(Market market) {
+        if (size == 0 || market.getMarketTime().getTimeInMillis() != timeIndex.getTime(size-1))
+            throw new IllegalArgumentException("Only the last bar can be updated");
+        
+        ensureScales(market);
+        
+        updateLast(FixedPoint.rescale(market.getOpenScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getHighScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getLowScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getCloseScaled(), market.getPriceScale(), priceScale),
+                FixedPoint.rescale(market.getVolumeScaled(), market.getVolumeScale(), volumeScale));
+    }
+    
+    /**
+     * Replace the values of the last bar. Prices and volume must be given
+     * using the current price and volume scale.
+     *
+     * @param open Scaled open price
+     * @param high Scaled high price
+     * @param low Scaled low price
+     * @param close Scaled close price
+     * @param volume Scaled volume
+     */
+    public void updateLast(long open, long high, long low, long close, long volume) {
+        if (size == 0)
+            throw new IllegalArgumentException("No last bar to update");
+        
+        int last = size-1;
+        this.open[last] = open;
+        this.high[last] = high;
+        this.low[last] = low;
+        this.close[last] = close;
+        this.volume[last] = volume;
+    }
+    
+    /**
+     * Increase the price scale, rescaling all existing prices into new
+     * arrays. Decreasing the scale is not supported.
+     * 
+     * @param scale New price scale
+     */
+    public void setPriceScale(int scale) {
+        if (scale < priceScale || scale > MAX_SCALE)
+            throw new IllegalArgumentException("Unsupported price scale: " + scale);
+        
+        long factor = FixedPoint.powerOfTen(scale - priceScale);
+        if (factor > 1) {
+            open = rescale(open, factor);
+            high = rescale(high, factor);
+            low = rescale(low, factor);
+            close = rescale(close, factor);
+        }
+        
+        priceScale = scale;
+    }
+    
+    /**
+     * Increase the volume scale, rescaling all existing volume values into
+     * a new array. Decreasing the scale is not supported.
+     * 
+     * @param scale New volume scale
+     */
+    public void setVolumeScale(int scale) {
+        if (scale < volumeScale || scale > MAX_SCALE)
+            throw new IllegalArgumentException("Unsupported volume scale: " + scale);
+        
+        long factor = FixedPoint.powerOfTen(scale - volumeScale);
+        if (factor > 1)
+            volume = rescale(volume, factor);
+        
+        volumeScale = scale;
+    }
+    
+    /**
+     * Trims the capacity of this series down to its size.
+     */
+    public void trimToSize() {
+        if (size == open.length || size == 0) return;
+        
+        timeIndex.trimToSize();
+        open = Arrays.copyOf(open, size);
+        high = Arrays.copyOf(high, size);
+        low = Arrays.copyOf(low, size);
+        close = Arrays.copyOf(close, size);
+        volume = Arrays.copyOf(volume, size);
+    }
+    
+    /**
+     * Returns the approximate number of bytes of heap used by this series.
+     * 
+     * @return Approximate heap usage in bytes
+     */
+    public long getMemoryUsage() {
+        // Six long arrays, each with a 16 byte header, and the objects themselves
+        return 16 + 8L * timeIndex.capacity() + 5L * (16 + 8L * open.length) + 96;
+    }
+    
+    /**
+     * Returns an immutable snapshot of the current bars. The snapshot shares
+     * the arrays of this series, which is safe as long as bars are only
+     * added and the last bar updated: values below the last bar are never
+     * changed in place, and the last bar is copied into the snapshot. The
+     * snapshot shares the pyramid levels of this series too.
+     * 
+     * @return Snapshot of this series
+     */
+    BarSnapshot snapshot() {
+        if (size == 0)
+            return new BarSnapshot(ticker, resolution, timeIndex.getArray(), open, high, low, close, volume, 0, priceScale, volumeScale, pyramidLevels,
+                    false, 0, 0, 0, 0, 0, 0);
+        
+        int last = size-1;
+        return new BarSnapshot(ticker, resolution, timeIndex.getArray(), open, high, low, close, volume, last, priceScale, volumeScale, pyramidLevels,
+                true, timeIndex.getTime(last), open[last], high[last], low[last], close[last], volume[last]);
+    }
+    
+    /**
+     * Returns the pyramid levels owned by this series.
+     */
+    BarPyramid.Levels[] getPyramidLevels() {
+        return pyramidLevels;
+    }
+    
+    private long[] rescale(long[] values, long factor) {
+        long[] rescaled = new long[values.length];
+        for (int x = 0; x < size; x++)
+            rescaled[x] = values[x] * factor;
+        return rescaled;
+    }
+    
+    private void grow() {
+        int capacity = open.length + (open.length >> 1) + 1;
+        
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+    
+    private void ensureScales(Market market) {
+        if (market.getPriceScale() > priceScale)
+            setPriceScale(market.getPriceScale());
+        if (market.getVolumeScale() > volumeScale)
+            setVolumeScale(market.getVolumeScale());
+    }
+    
+    /**
+     * Returns 10 to the power of given exponent, from 0 up to MAX_SCALE.
+     * 
+     * @param exponent Exponent
+     * @return Power of ten
+     */
+    static long powerOfTen(int exponent) {
+        return FixedPoint.powerOfTen(exponent);
+    }
+    
+    /**
+     * Returns the given value as a long scaled by given number of decimals.
+     * 
+     * @param value Value to scale
+     * @param scale Number of decimals
+     * @return Scaled value
+     */
+    public static long toScaled(BigDecimal value, int scale) {
+        return FixedPoint.toScaled(value, scale);
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int index) {
+        return timeIndex.getTime(index);
+    }
+    
+    public TimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    public long getOpen(int index) {
+        return open[index];
+    }
+
+    public long getHigh(int index) {
+        return high[index];
+    }
+
+    public long getLow(int index) {
+        return low[index];
+    }
+
+    public long getClose(int index) {
+        return close[index];
+    }
+
+    public long getVolume(int index) {
+        return volume[index];
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+/**
+ * Immutable view of the bars of one ticker at one point in time. All bars
+ * but the last are kept in arrays shared with later snapshots, which only
+ * ever add bars past the end of what earlier snapshots can see. The last
+ * bar may still be forming, so it is kept in the snapshot itself.
+ *
+ * @author cfelde
+ */
+public final class BarSnapshot implements BarStore {
+    private final String ticker;
+    private final String resolution;
+    private final long[] time, open, high, low, close, volume;
+    private final int completed;
+    private final int priceScale;
+    private final int volumeScale;
+    private final BarPyramid.Levels[] pyramidLevels;
+    
+    private final boolean hasLast;
+    private final long lastTime, lastOpen, lastHigh, lastLow, lastClose, lastVolume;
+    
+    private final TimeIndex timeIndex = new TimeIndex() {
+        public int size() {
+            return BarSnapshot.this.size();
+        }
+        
+        public long getTime(int index) {
+            return BarSnapshot.this.getTime(index);
+        }
+    };
+    
+    /**
+     * Creates a snapshot of the first completed bars of the given arrays,
+     * followed by the given last bar if hasLast is true. The pyramid levels
+     * are shared with earlier and later snapshots of the same bars.
+     */
+    BarSnapshot(String ticker, String resolution, long[] time, long[] open, long[] high, long[] low, long[] close, long[] volume, int completed, int priceScale, int volumeScale,
+            BarPyramid.Levels[] pyramidLevels, boolean hasLast, long lastTime, long lastOpen, long lastHigh, long lastLow, long lastClose, long lastVolume) {
+        this.ticker = ticker;
+        this.resolution = resolution;
+        this.time = time;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.completed = completed;
+        this.priceScale = priceScale;
+        this.volumeScale = volumeScale;
+        this.pyramidLevels = pyramidLevels;
+        this.hasLast = hasLast;
+        this.lastTime = lastTime;
+        this.lastOpen = lastOpen;
+        this.lastHigh = lastHigh;
+        this.lastLow = lastLow;
+        this.lastClose = lastClose;
+        this.lastVolume = lastVolume;
+    }
+    
+    /**
+     * Returns the pyramid levels shared by the snapshots of these bars.
+     */
+    BarPyramid.Levels[] getPyramidLevels() {
+        return pyramidLevels;
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public int size() {
+        return hasLast ? completed + 1 : completed;
+    }
+
+    public long getTime(int index) {
+        checkIndex(index);
+        return index < completed ? time[index] : lastTime;
+    }
+
+    public TimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    public long getOpen(int index) {
+        checkIndex(index);
+        return index < completed ? open[index] : lastOpen;
+    }
+
+    public long getHigh(int index) {
+        checkIndex(index);
+        return index < completed ? high[index] : lastHigh;
+    }
+
+    public long getLow(int index) {
+        checkIndex(index);
+        return index < completed ? low[index] : lastLow;
+    }
+
+    public long getClose(int index) {
+        checkIndex(index);
+        return index < completed ? close[index] : lastClose;
+    }
+
+    public long getVolume(int index) {
+        checkIndex(index);
+        return index < completed ? volume[index] : lastVolume;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+}
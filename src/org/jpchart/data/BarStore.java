@@ -0,0 +1,89 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+/**
+ * Read access to the bars of one ticker in one resolution, ordered by time
+ * and addressed by index. Prices and volume are kept as scaled longs, so
+ * a price of 12.34 with a price scale of 2 is stored as 1234.
+ *
+ * @author cfelde
+ */
+public interface BarStore {
+    /**
+     * Returns the ticker these bars belong to.
+     * 
+     * @return Ticker
+     */
+    String getTicker();
+    
+    /**
+     * Returns the resolution description of the bars, as given by
+     * TimeUnit.getResolutionDescription(). Example: Minute, Day.
+     * 
+     * @return Resolution description
+     */
+    String getResolution();
+    
+    /**
+     * Returns the number of bars available.
+     * 
+     * @return Number of bars
+     */
+    int size();
+    
+    /**
+     * Returns the bar time in milliseconds, as given by
+     * TimeUnit.getTimeInMillis(). Times are strictly increasing
+     * with the index.
+     * 
+     * @param index Bar index, 0 being the first bar
+     * @return Bar time in milliseconds
+     */
+    long getTime(int index);
+    
+    /**
+     * Returns the time index of the bars, used for time lookups.
+     * 
+     * @return Time index
+     */
+    TimeIndex getTimeIndex();
+    
+    long getOpen(int index);
+    long getHigh(int index);
+    long getLow(int index);
+    long getClose(int index);
+    long getVolume(int index);
+    
+    /**
+     * Returns the number of decimals used by the scaled open, high, low
+     * and close values.
+     * 
+     * @return Price scale
+     */
+    int getPriceScale();
+    
+    /**
+     * Returns the number of decimals used by the scaled volume values.
+     * 
+     * @return Volume scale
+     */
+    int getVolumeScale();
+}
@@ -0,0 +1,38 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+/**
+ * Implemented by data sources keeping their bars in a BarStore, giving
+ * direct access to the bars of a ticker by index.
+ *
+ * @author cfelde
+ */
+public interface BarStoreSource {
+    /**
+     * Returns the bar store for given ticker, or null if not available.
+     * The store may grow while in use if the data source is appendable.
+     * 
+     * @param ticker
+     * @return Bar store, or null
+     * @throws Exception on errors
+     */
+    BarStore getBarStore(String ticker) throws Exception;
+}
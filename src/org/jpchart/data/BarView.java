@@ -0,0 +1,188 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.math.BigDecimal;
+import org.jpchart.market.FixedPoint;
+import org.jpchart.market.Market;
+import org.jpchart.market.MarketTick;
+import org.jpchart.time.TimeUnit;
+import org.jpchart.time.TimeUtils;
+
+/**
+ * Reusable flyweight view of one bar in a bar store. The view is moved from
+ * bar to bar, reading values directly from the store, so walking bars
+ * through it creates no objects per bar. Only getMarketTime and the
+ * BigDecimal accessors create objects, when called.
+ * 
+ * A view is owned by whoever moves it, typically a MarketCursor, and shows
+ * another bar after each move. Callers needing a bar that stays the same
+ * must use copy. Views use identity for equals and hashCode.
+ *
+ * @author cfelde
+ */
+public final class BarView implements Market {
+    private final MarketData dataSource;
+    
+    private BarStore store;
+    private int index = -1;
+    private TimeUnit marketTime = null;
+    
+    /**
+     * Creates a view not positioned on any bar.
+     * 
+     * @param dataSource Data source given as the origin of the bars
+     */
+    public BarView(MarketData dataSource) {
+        this.dataSource = dataSource;
+    }
+    
+    /**
+     * Move this view to the bar of given store at given index.
+     * 
+     * @param store Bar store
+     * @param index Bar index
+     */
+    public void moveTo(BarStore store, int index) {
+        if (this.store != store || this.index != index)
+            marketTime = null;
+        
+        this.store = store;
+        this.index = index;
+    }
+    
+    /**
+     * Returns a stable copy of the current bar, not affected by later
+     * moves of this view.
+     * 
+     * @return Copy of current bar
+     */
+    public MarketTick copy() {
+        return new BarMarketTick(store, index, dataSource);
+    }
+    
+    /**
+     * Returns the time of the current bar in milliseconds, without
+     * creating a time unit.
+     * 
+     * @return Bar time
+     */
+    public long getTime() {
+        return store.getTime(index);
+    }
+    
+    BarStore getBarStore() {
+        return store;
+    }
+    
+    int getIndex() {
+        return index;
+    }
+    
+    public String getTicker() {
+        return store.getTicker();
+    }
+    
+    public TimeUnit getMarketTime() {
+        if (marketTime == null)
+            marketTime = TimeUtils.getTimeUnit(store.getResolution(), store.getTime(index));
+        
+        return marketTime;
+    }
+    
+    public BigDecimal getOpenPrice() {
+        return BigDecimal.valueOf(store.getOpen(index), store.getPriceScale());
+    }
+    
+    public BigDecimal getHighPrice() {
+        return BigDecimal.valueOf(store.getHigh(index), store.getPriceScale());
+    }
+    
+    public BigDecimal getLowPrice() {
+        return BigDecimal.valueOf(store.getLow(index), store.getPriceScale());
+    }
+    
+    public BigDecimal getClosePrice() {
+        return BigDecimal.valueOf(store.getClose(index), store.getPriceScale());
+    }
+    
+    public BigDecimal getVolume() {
+        return BigDecimal.valueOf(store.getVolume(index), store.getVolumeScale());
+    }
+    
+    public int getPriceScale() {
+        return store.getPriceScale();
+    }
+    
+    public int getVolumeScale() {
+        return store.getVolumeScale();
+    }
+    
+    public long getOpenScaled() {
+        return store.getOpen(index);
+    }
+    
+    public long getHighScaled() {
+        return store.getHigh(index);
+    }
+    
+    public long getLowScaled() {
+        return store.getLow(index);
+    }
+    
+    public long getCloseScaled() {
+        return store.getClose(index);
+    }
+    
+    public long getVolumeScaled() {
+        return store.getVolume(index);
+    }
+    
+    public double getOpenDouble() {
+        return FixedPoint.toDouble(store.getOpen(index), store.getPriceScale());
+    }
+    
+    public double getHighDouble() {
+        return FixedPoint.toDouble(store.getHigh(index), store.getPriceScale());
+    }
+    
+    public double getLowDouble() {
+        return FixedPoint.toDouble(store.getLow(index), store.getPriceScale());
+    }
+    
+    public double getCloseDouble() {
+        return FixedPoint.toDouble(store.getClose(index), store.getPriceScale());
+    }
+    
+    public double getVolumeDouble() {
+        return FixedPoint.toDouble(store.getVolume(index), store.getVolumeScale());
+    }
+    
+    /**
+     * Returns a stable copy of the previous bar, or null.
+     */
+    public Market getPrevious() throws Exception {
+        return dataSource.getPrevious(this);
+    }
+    
+    public MarketData getMarketDataSource() {
+        return dataSource;
+    }
+}
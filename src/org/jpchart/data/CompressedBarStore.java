@@ -0,0 +1,404 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bar store keeping bars compressed in blocks of BLOCK_SIZE bars. Within a
+ * block each bar is stored as zigzag varints of the change in time step,
+ * the open relative to the previous close, the high, low and close relative
+ * to the open, and the change in volume. Typical daily or minute bars need
+ * 8 to 12 bytes instead of 48.
+ * 
+ * Blocks are decoded on demand into a small direct mapped cache of hot
+ * blocks, so walking bars in either direction decodes each block once.
+ * Time lookups search the first time of each block before decoding a
+ * single block.
+ * 
+ * Bars are added at the end, where the last partial block is kept decoded
+ * until full. Adding bars is not thread safe, but any number of threads
+ * may read bars already added.
+ *
+ * @author cfelde
+ */
+public class CompressedBarStore implements BarStore {
+    public final static int BLOCK_SIZE = 256;
+    private final static int CACHE_BLOCKS = 8;
+    
+    private final String ticker;
+    private final String resolution;
+    private final int priceScale;
+    private final int volumeScale;
+    
+    // Sealed blocks, replaced on each seal
+    private volatile Sealed sealed = new Sealed(new byte[16][], new long[16], 0);
+    
+    // Last block, not yet full, kept decoded
+    private volatile Block tail = new Block(0);
+    private volatile int size = 0;
+    
+    // Decoded sealed blocks, set with release semantics so readers never
+    // see a block before its values
+    private final AtomicReferenceArray<Block> cache = new AtomicReferenceArray<Block>(CACHE_BLOCKS);
+    
+    /**
+     * Decoded block of bars. Sealed blocks are never changed once decoded.
+     */
+    private static class Block {
+        final int index;
+        final long[] time, open, high, low, close, volume;
+        
+        /**
+         * Creates an empty block, to be filled as bars are added.
+         */
+        Block(int index) {
+            this(index, new long[BLOCK_SIZE], new long[BLOCK_SIZE], new long[BLOCK_SIZE],
+                    new long[BLOCK_SIZE], new long[BLOCK_SIZE], new long[BLOCK_SIZE]);
+        }
+        
+        /**
+         * Creates a block of given values, which must be filled already.
+         */
+        Block(int index, long[] time, long[] open, long[] high, long[] low, long[] close, long[] volume) {
+            this.index = index;
+            this.time = time;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.volume = volume;
+        }
+    }
+    
+    /**
+     * Encoded sealed blocks with the time of their first bar. A new instance
+     * is published for each sealed block, so readers always see arrays
+     * holding the given number of blocks. Blocks already sealed are never
+     * changed, so the arrays are shared until they need to grow.
+     */
+    private static class Sealed {
+        final byte[][] blocks;
+        final long[] blockTimes;
+        final int count;
+        
+        Sealed(byte[][] blocks, long[] blockTimes, int count) {
+            this.blocks = blocks;
+            this.blockTimes = blockTimes;
+            this.count = count;
+        }
+    }
+    
+    private final TimeIndex timeIndex = new TimeIndex() {
+        public int size() {
+            return size;
+        }
+        
+        public long getTime(int index) {
+            return CompressedBarStore.this.getTime(index);
+        }
+        
+        @Override
+        public int indexOnOrAfter(long time) {
+            int count = size;
+            if (count == 0) return 0;
+            
+            // Find the last block starting on or before time
+            Sealed sealedBlocks = sealed;
+            int sealedCount = Math.min(sealedBlocks.count, count / BLOCK_SIZE);
+            int block;
+            if (count > sealedCount * BLOCK_SIZE && getTime(sealedCount * BLOCK_SIZE) <= time) {
+                block = sealedCount;
+            }
+            else {
+                block = Arrays.binarySearch(sealedBlocks.blockTimes, 0, sealedCount, time);
+                if (block < 0) block = -block - 2;
+                if (block < 0) return 0;
+            }
+            
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(count, from + BLOCK_SIZE);
+            
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (getTime(mid) < time) low = mid + 1;
+                else high = mid;
+            }
+            
+            return low;
+        }
+    };
+    
+    /**
+     * Creates an empty store, taking prices and volume scaled by given
+     * number of decimals.
+     * 
+     * @param ticker Ticker
+     * @param resolution Resolution description
+     * @param priceScale Price scale
+     * @param volumeScale Volume scale
+     */
+    public CompressedBarStore(String ticker, String resolution, int priceScale, int volumeScale) {
+        this.ticker = ticker;
+        this.resolution = resolution;
+        this.priceScale = priceScale;
+        this.volumeScale = volumeScale;
+    }
+    
+    /**
+     * Returns a compressed copy of given store.
+     * 
+     * @param store Bars to compress
+     * @return Compressed store
+     */
+    public static CompressedBarStore compress(BarStore store) {
+        CompressedBarStore compressed = new CompressedBarStore(store.getTicker(), store.getResolution(), store.getPriceScale(), store.getVolumeScale());
+        
+        int size = store.size();
+        for (int x = 0; x < size; x++)
+            compressed.add(store.getTime(x), store.getOpen(x), store.getHigh(x), store.getLow(x), store.getClose(x), store.getVolume(x));
+        
+        return compressed;
+    }
+    
+    /**
+     * Add a new last bar. Prices and volume must be given using the price
+     * and volume scale of this store.
+     * 
+     * @param time Bar time in milliseconds, must be after the current last bar
+     * @param open Scaled open price
+     * @param high Scaled high price
+     * @param low Scaled low price
+     * @param close Scaled close price
+     * @param volume Scaled volume
+     */
+    public void add(long time, long open, long high, long low, long close, long volume) {
+        if (size > 0 && time <= getTime(size-1))
+            throw new IllegalArgumentException("Bars must be added in increasing time order");
+        
+        Block block = tail;
+        int offset = size % BLOCK_SIZE;
+        block.time[offset] = time;
+        block.open[offset] = open;
+        block.high[offset] = high;
+        block.low[offset] = low;
+        block.close[offset] = close;
+        block.volume[offset] = volume;
+        
+        if (offset == BLOCK_SIZE - 1) {
+            seal(block);
+            tail = new Block(sealed.count);
+        }
+        
+        size++;
+    }
+    
+    /**
+     * Encode given full block and add it to the sealed blocks.
+     */
+    private void seal(Block block) {
+        byte[] buffer = new byte[BLOCK_SIZE * 6 * 10];
+        int position = 0;
+        
+        long lastTime = block.time[0], lastStep = 0, lastClose = 0, lastVolume = 0;
+        for (int x = 0; x < BLOCK_SIZE; x++) {
+            long step = block.time[x] - lastTime;
+            position = writeVarLong(buffer, position, step - lastStep);
+            position = writeVarLong(buffer, position, block.open[x] - lastClose);
+            position = writeVarLong(buffer, position, block.high[x] - block.open[x]);
+            position = writeVarLong(buffer, position, block.low[x] - block.open[x]);
+            position = writeVarLong(buffer, position, block.close[x] - block.open[x]);
+            position = writeVarLong(buffer, position, block.volume[x] - lastVolume);
+            
+            lastTime = block.time[x];
+            lastStep = step;
+            lastClose = block.close[x];
+            lastVolume = block.volume[x];
+        }
+        
+        Sealed current = sealed;
+        byte[][] blocks = current.blocks;
+        long[] blockTimes = current.blockTimes;
+        int count = current.count;
+        if (count == blocks.length) {
+            blocks = Arrays.copyOf(blocks, count * 2);
+            blockTimes = Arrays.copyOf(blockTimes, count * 2);
+        }
+        
+        // Readers only look at the first count blocks of the arrays they were given
+        blocks[count] = Arrays.copyOf(buffer, position);
+        blockTimes[count] = block.time[0];
+        cache.set(count % CACHE_BLOCKS, block);
+        sealed = new Sealed(blocks, blockTimes, count + 1);
+    }
+    
+    /**
+     * Decode given sealed block. The values are filled in before the block
+     * is created, so it is complete once visible to other threads.
+     */
+    private Block decode(int index) {
+        long[] time = new long[BLOCK_SIZE];
+        long[] open = new long[BLOCK_SIZE];
+        long[] high = new long[BLOCK_SIZE];
+        long[] low = new long[BLOCK_SIZE];
+        long[] close = new long[BLOCK_SIZE];
+        long[] volume = new long[BLOCK_SIZE];
+        Sealed sealedBlocks = sealed;
+        byte[] data = sealedBlocks.blocks[index];
+        int[] position = new int[1];
+        
+        long lastTime = sealedBlocks.blockTimes[index], lastStep = 0, lastClose = 0, lastVolume = 0;
+        for (int x = 0; x < BLOCK_SIZE; x++) {
+            long step = lastStep + readVarLong(data, position);
+            long barOpen = lastClose + readVarLong(data, position);
+            
+            time[x] = lastTime + step;
+            open[x] = barOpen;
+            high[x] = barOpen + readVarLong(data, position);
+            low[x] = barOpen + readVarLong(data, position);
+            close[x] = barOpen + readVarLong(data, position);
+            volume[x] = lastVolume + readVarLong(data, position);
+            
+            lastTime = time[x];
+            lastStep = step;
+            lastClose = close[x];
+            lastVolume = volume[x];
+        }
+        
+        return new Block(index, time, open, high, low, close, volume);
+    }
+    
+    /**
+     * Returns the decoded block holding given bar index.
+     */
+    private Block getBlock(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        
+        int blockIndex = index / BLOCK_SIZE;
+        
+        Block block = tail;
+        if (block.index == blockIndex)
+            return block;
+        
+        block = cache.get(blockIndex % CACHE_BLOCKS);
+        if (block != null && block.index == blockIndex)
+            return block;
+        
+        // Readers racing for the same slot may each decode a complete block
+        // and publish it, where the last one stays cached
+        block = decode(blockIndex);
+        cache.set(blockIndex % CACHE_BLOCKS, block);
+        return block;
+    }
+    
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        // Zigzag encode, so small negative values are small too
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((bits & 0x7F) | 0x80);
+            bits >>>= 7;
+        }
+        buffer[position++] = (byte) bits;
+        return position;
+    }
+    
+    private static long readVarLong(byte[] buffer, int[] position) {
+        int pos = position[0];
+        long bits = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[pos++];
+            bits |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        
+        position[0] = pos;
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+    
+    /**
+     * Returns the approximate number of bytes used by this store.
+     * 
+     * @return Bytes used
+     */
+    public long getMemoryUsage() {
+        Sealed sealedBlocks = sealed;
+        long bytes = sealedBlocks.blocks.length * 8L + sealedBlocks.blockTimes.length * 8L;
+        for (int x = 0; x < sealedBlocks.count; x++)
+            bytes += 16 + sealedBlocks.blocks[x].length;
+        
+        // Tail and cached blocks
+        bytes += (1 + CACHE_BLOCKS) * BLOCK_SIZE * 48L;
+        return bytes;
+    }
+    
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int index) {
+        return getBlock(index).time[index % BLOCK_SIZE];
+    }
+
+    public TimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    public long getOpen(int index) {
+        return getBlock(index).open[index % BLOCK_SIZE];
+    }
+
+    public long getHigh(int index) {
+        return getBlock(index).high[index % BLOCK_SIZE];
+    }
+
+    public long getLow(int index) {
+        return getBlock(index).low[index % BLOCK_SIZE];
+    }
+
+    public long getClose(int index) {
+        return getBlock(index).close[index % BLOCK_SIZE];
+    }
+
+    public long getVolume(int index) {
+        return getBlock(index).volume[index % BLOCK_SIZE];
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+}
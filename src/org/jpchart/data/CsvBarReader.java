@@ -0,0 +1,491 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Calendar;
+import org.jpchart.time.Day;
+
+/**
+ * Streaming reader for daily bars in the Yahoo CSV layout:
+ * Date,Open,High,Low,Close,Volume,Adj Close
+ * 
+ * and for minute bars of one day in the layout:
+ * Time,Open,High,Low,Close,Volume
+ * where time is given as HH:MM.
+ * 
+ * Bytes are scanned directly into scaled long columns, so no String or
+ * BigDecimal objects are created per row. As with MarketDataYahoo the
+ * adjusted close is used as close price of daily bars. Rows may be given
+ * oldest or newest first.
+ * 
+ * A reader may be reused, but not by several threads at the same time.
+ *
+ * @author cfelde
+ */
+public class CsvBarReader {
+    public final static String HEADER = "Date,Open,High,Low,Close,Volume,Adj Close";
+    public final static String MINUTE_HEADER = "Time,Open,High,Low,Close,Volume";
+    
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static Charset ASCII = Charset.forName("US-ASCII");
+    
+    private final Calendar cal = Calendar.getInstance();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private byte[] line = new byte[256];
+    private final int[] datePart = new int[2];
+    
+    // Date of minute bars being read, or -1 when reading daily bars
+    private int year = -1, month, date;
+    
+    private ProgressListener progressListener = null;
+    private long progressInterval = 250;
+    
+    // Columns of the data set being read
+    private long[] time, open, high, low, close, volume;
+    private int size, priceScale, volumeScale;
+    
+    // Result of the last parsed number
+    private long numberValue;
+    private int numberScale;
+    
+    /**
+     * Set the listener given progress reports while reading, at most
+     * once per given interval.
+     * 
+     * @param listener Progress listener, or null for none
+     * @param intervalMillis Min number of milliseconds between reports
+     */
+    public void setProgressListener(ProgressListener listener, long intervalMillis) {
+        this.progressListener = listener;
+        this.progressInterval = intervalMillis;
+    }
+    
+    /**
+     * Read all bars in given file.
+     * 
+     * @param ticker Ticker of the bars
+     * @param path CSV file
+     * @return Bars read
+     * @throws IOException on errors
+     */
+    public BarSeries read(String ticker, Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        try {
+            return read(ticker, in);
+        }
+        finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Read all bars from given stream. The stream is not closed.
+     * 
+     * @param ticker Ticker of the bars
+     * @param in CSV input
+     * @return Bars read
+     * @throws IOException on errors
+     */
+    public BarSeries read(String ticker, InputStream in) throws IOException {
+        year = -1;
+        return read(ticker, "Day", in);
+    }
+    
+    /**
+     * Read all minute bars of given day from given file.
+     * 
+     * @param ticker Ticker of the bars
+     * @param day Day of the bars
+     * @param path CSV file
+     * @return Bars read
+     * @throws IOException on errors
+     */
+    public BarSeries readMinutes(String ticker, Day day, Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        try {
+            return readMinutes(ticker, day, in);
+        }
+        finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Read all minute bars of given day from given stream. The stream is not closed.
+     * 
+     * @param ticker Ticker of the bars
+     * @param day Day of the bars
+     * @param in CSV input
+     * @return Bars read
+     * @throws IOException on errors
+     */
+    public BarSeries readMinutes(String ticker, Day day, InputStream in) throws IOException {
+        year = day.getTime().get(Calendar.YEAR);
+        month = day.getTime().get(Calendar.MONTH);
+        date = day.getTime().get(Calendar.DAY_OF_MONTH);
+        return read(ticker, "Minute", in);
+    }
+    
+    /**
+     * Count the bars in given file without parsing them, as the number of
+     * non-empty lines after the header. This matches the size of the series
+     * read from a valid file.
+     *
+     * @param path CSV file
+     * @return Number of bars
+     * @throws IOException on errors
+     */
+    public int countBars(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        try {
+            int bars = 0;
+            int lineLength = 0;
+            int read;
+            
+            while ((read = in.read(buffer)) >= 0) {
+                for (int x = 0; x < read; x++) {
+                    byte b = buffer[x];
+                    
+                    if (b == '\n') {
+                        if (lineLength > 0) bars++;
+                        lineLength = 0;
+                    }
+                    else if (b != '\r') {
+                        lineLength++;
+                    }
+                }
+            }
+            
+            if (lineLength > 0) bars++;
+            
+            // Less the header
+            return Math.max(0, bars - 1);
+        }
+        finally {
+            in.close();
+        }
+    }
+    
+    private BarSeries read(String ticker, String resolution, InputStream in) throws IOException {
+        time = new long[1024];
+        open = new long[1024];
+        high = new long[1024];
+        low = new long[1024];
+        close = new long[1024];
+        volume = new long[1024];
+        size = 0;
+        priceScale = 0;
+        volumeScale = 0;
+        
+        long bytesRead = 0;
+        long lastProgress = System.currentTimeMillis();
+        int lineLength = 0;
+        int lineNumber = 0;
+        int read;
+        
+        while ((read = in.read(buffer)) >= 0) {
+            for (int x = 0; x < read; x++) {
+                byte b = buffer[x];
+                
+                if (b == '\n') {
+                    parseLine(lineLength, ++lineNumber);
+                    lineLength = 0;
+                }
+                else if (b != '\r') {
+                    if (lineLength == line.length)
+                        line = Arrays.copyOf(line, line.length * 2);
+                    line[lineLength++] = b;
+                }
+            }
+            
+            bytesRead += read;
+            
+            if (progressListener != null && System.currentTimeMillis() - lastProgress >= progressInterval) {
+                progressListener.progress(ticker, bytesRead, size);
+                lastProgress = System.currentTimeMillis();
+            }
+        }
+        
+        if (lineLength > 0)
+            parseLine(lineLength, ++lineNumber);
+        
+        if (lineNumber == 0)
+            throw new IllegalArgumentException("Unknown header: null");
+        
+        if (progressListener != null)
+            progressListener.progress(ticker, bytesRead, size);
+        
+        // Yahoo orders with newest first
+        if (size > 1 && time[0] > time[1])
+            reverse();
+        
+        BarSeries series = new BarSeries(ticker.toUpperCase(), resolution, time, open, high, low, close, volume, size, priceScale, volumeScale);
+        
+        time = open = high = low = close = volume = null;
+        
+        return series;
+    }
+    
+    private void parseLine(int length, int lineNumber) {
+        if (lineNumber == 1) {
+            // First line is header, use that as data check
+            String header = new String(line, 0, length, ASCII);
+            if (!header.equals(year < 0 ? HEADER : MINUTE_HEADER)) throw new IllegalArgumentException("Unknown header: " + header);
+            return;
+        }
+        
+        if (length == 0) return;
+        
+        if (size == time.length)
+            grow();
+        
+        int pos = year < 0 ? parseDate(length, lineNumber) : parseTime(length, lineNumber);
+        
+        pos = parseNumber(pos, length, lineNumber);
+        long openValue = numberValue;
+        int openScale = numberScale;
+        
+        pos = parseNumber(pos, length, lineNumber);
+        long highValue = numberValue;
+        int highScale = numberScale;
+        
+        pos = parseNumber(pos, length, lineNumber);
+        long lowValue = numberValue;
+        int lowScale = numberScale;
+        
+        pos = parseNumber(pos, length, lineNumber);
+        long closeValue = numberValue;
+        int closeScale = numberScale;
+        
+        pos = parseNumber(pos, length, lineNumber);
+        long volumeValue = numberValue;
+        int volumeValueScale = numberScale;
+        
+        if (year < 0) {
+            // Close is skipped, adjusted close is used instead
+            pos = parseNumber(pos, length, lineNumber);
+            closeValue = numberValue;
+            closeScale = numberScale;
+        }
+        
+        if (pos != length + 1) throw new IllegalArgumentException("Incorrect data format on line " + lineNumber);
+        
+        int scale = Math.max(Math.max(openScale, highScale), Math.max(lowScale, closeScale));
+        if (scale > priceScale)
+            setPriceScale(scale);
+        if (volumeValueScale > volumeScale)
+            setVolumeScale(volumeValueScale);
+        
+        open[size] = rescale(openValue, openScale, priceScale);
+        high[size] = rescale(highValue, highScale, priceScale);
+        low[size] = rescale(lowValue, lowScale, priceScale);
+        close[size] = rescale(closeValue, closeScale, priceScale);
+        volume[size] = rescale(volumeValue, volumeValueScale, volumeScale);
+        size++;
+    }
+    
+    /**
+     * Parse YYYY-MM-DD at the start of the line into time[size].
+     * Returns the position after the following comma.
+     */
+    private int parseDate(int length, int lineNumber) {
+        int[] parts = datePart;
+        int part = 0;
+        int value = 0;
+        int pos = 0;
+        
+        for (; pos < length; pos++) {
+            byte b = line[pos];
+            
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            }
+            else if (b == '-' && part < 2) {
+                parts[part++] = value;
+                value = 0;
+            }
+            else if (b == ',') {
+                break;
+            }
+            else {
+                throw new IllegalArgumentException("Incorrect date format on line " + lineNumber);
+            }
+        }
+        
+        if (part != 2 || pos == length) throw new IllegalArgumentException("Incorrect date format on line " + lineNumber);
+        
+        // Same as new Day(String), local midnight
+        cal.clear();
+        cal.set(parts[0], parts[1] - 1, value, 0, 0, 0);
+        time[size] = cal.getTimeInMillis();
+        
+        return pos + 1;
+    }
+    
+    /**
+     * Parse HH:MM at the start of the line into time[size], on the day given
+     * to readMinutes. Returns the position after the following comma.
+     */
+    private int parseTime(int length, int lineNumber) {
+        int hour = 0;
+        int value = 0;
+        int part = 0;
+        int pos = 0;
+        
+        for (; pos < length; pos++) {
+            byte b = line[pos];
+            
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            }
+            else if (b == ':' && part == 0) {
+                hour = value;
+                value = 0;
+                part++;
+            }
+            else if (b == ',') {
+                break;
+            }
+            else {
+                throw new IllegalArgumentException("Incorrect time format on line " + lineNumber);
+            }
+        }
+        
+        if (part != 1 || pos == length) throw new IllegalArgumentException("Incorrect time format on line " + lineNumber);
+        
+        // Same as new Minute(String, String)
+        cal.clear();
+        cal.set(year, month, date, hour, value, 0);
+        time[size] = cal.getTimeInMillis();
+        
+        return pos + 1;
+    }
+    
+    /**
+     * Parse a decimal number starting at given position into numberValue
+     * and numberScale. Decimals beyond BarSeries.MAX_SCALE are rounded half even.
+     * Returns the position after the following comma or end of line.
+     */
+    private int parseNumber(int pos, int length, int lineNumber) {
+        long value = 0;
+        int scale = 0;
+        boolean negative = false;
+        boolean fraction = false;
+        boolean digits = false;
+        int firstDropped = -1;
+        boolean restDropped = false;
+        
+        if (pos < length && line[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        
+        for (; pos < length; pos++) {
+            byte b = line[pos];
+            
+            if (b >= '0' && b <= '9') {
+                digits = true;
+                if (fraction && scale == BarSeries.MAX_SCALE) {
+                    if (firstDropped < 0) firstDropped = b - '0';
+                    else if (b != '0') restDropped = true;
+                }
+                else {
+                    value = value * 10 + (b - '0');
+                    if (fraction) scale++;
+                }
+            }
+            else if (b == '.' && !fraction) {
+                fraction = true;
+            }
+            else if (b == ',') {
+                break;
+            }
+            else {
+                throw new IllegalArgumentException("Incorrect number format on line " + lineNumber);
+            }
+        }
+        
+        if (!digits) throw new IllegalArgumentException("Incorrect number format on line " + lineNumber);
+        
+        if (firstDropped > 5 || (firstDropped == 5 && (restDropped || (value & 1) == 1)))
+            value++;
+        
+        numberValue = negative ? -value : value;
+        numberScale = scale;
+        
+        return pos + 1;
+    }
+    
+    private static long rescale(long value, int scale, int newScale) {
+        for (int x = scale; x < newScale; x++)
+            value *= 10;
+        return value;
+    }
+    
+    private void setPriceScale(int scale) {
+        for (int x = 0; x < size; x++) {
+            open[x] = rescale(open[x], priceScale, scale);
+            high[x] = rescale(high[x], priceScale, scale);
+            low[x] = rescale(low[x], priceScale, scale);
+            close[x] = rescale(close[x], priceScale, scale);
+        }
+        priceScale = scale;
+    }
+    
+    private void setVolumeScale(int scale) {
+        for (int x = 0; x < size; x++)
+            volume[x] = rescale(volume[x], volumeScale, scale);
+        volumeScale = scale;
+    }
+    
+    private void grow() {
+        int capacity = time.length * 2;
+        
+        time = Arrays.copyOf(time, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+    
+    private void reverse() {
+        for (int x = 0, y = size - 1; x < y; x++, y--) {
+            swap(time, x, y);
+            swap(open, x, y);
+            swap(high, x, y);
+            swap(low, x, y);
+            swap(close, x, y);
+            swap(volume, x, y);
+        }
+    }
+    
+    private static void swap(long[] values, int x, int y) {
+        long tmp = values[x];
+        values[x] = values[y];
+        values[y] = tmp;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+/**
+ * Data source able to fetch only the bars from a given time, such as a
+ * remote source where downloading the full history is expensive. Used by
+ * MarketDataDiskCache to refresh cached data.
+ *
+ * @author cfelde
+ */
+public interface IncrementalMarketData extends MarketData {
+    /**
+     * Fetch the bars of given ticker at or after given time, bypassing
+     * any data already loaded by this data source.
+     * 
+     * @param ticker Ticker
+     * @param fromTime Earliest bar time in milliseconds, or Long.MIN_VALUE for the full history
+     * @return Bars fetched, empty if there are none, or null if the ticker is unknown
+     * @throws Exception on errors
+     */
+    public BarSeries fetchSince(String ticker, long fromTime) throws Exception;
+}
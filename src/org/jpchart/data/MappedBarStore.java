@@ -0,0 +1,113 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Bar store reading directly from a memory mapped bar file.
+ * No bar data is copied onto the heap, and the mapped pages are shared
+ * through the OS page cache with any other process reading the same file.
+ * 
+ * Instances are created by BarFile.open(..).
+ *
+ * @author cfelde
+ */
+public class MappedBarStore implements BarStore {
+    private final static int RECORD_LONGS = BarFile.RECORD_SIZE / 8;
+    
+    private final String ticker;
+    private final String resolution;
+    private final int priceScale;
+    private final int volumeScale;
+    private final LongBuffer records;
+    private final int size;
+    private final TimeIndex timeIndex;
+    
+    MappedBarStore(String ticker, String resolution, int priceScale, int volumeScale, ByteBuffer buffer) {
+        this.ticker = ticker;
+        this.resolution = resolution;
+        this.priceScale = priceScale;
+        this.volumeScale = volumeScale;
+        
+        buffer.position(BarFile.HEADER_SIZE);
+        this.records = buffer.slice().asLongBuffer();
+        this.size = records.capacity() / RECORD_LONGS;
+        
+        this.timeIndex = new TimeIndex() {
+            public int size() {
+                return size;
+            }
+
+            public long getTime(int index) {
+                return MappedBarStore.this.getTime(index);
+            }
+        };
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int index) {
+        return records.get(index * RECORD_LONGS);
+    }
+
+    public TimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    public long getOpen(int index) {
+        return records.get(index * RECORD_LONGS + 1);
+    }
+
+    public long getHigh(int index) {
+        return records.get(index * RECORD_LONGS + 2);
+    }
+
+    public long getLow(int index) {
+        return records.get(index * RECORD_LONGS + 3);
+    }
+
+    public long getClose(int index) {
+        return records.get(index * RECORD_LONGS + 4);
+    }
+
+    public long getVolume(int index) {
+        return records.get(index * RECORD_LONGS + 5);
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import org.jpchart.market.Market;
+
+/**
+ * Iterates a contiguous range of bars of one ticker, forward or backward,
+ * without looking up each bar again in the data source.
+ *
+ * @author cfelde
+ */
+public interface MarketCursor {
+    /**
+     * Move to the next bar in the direction of this cursor. Must be called
+     * once before reading the first bar.
+     * 
+     * @return False if there are no more bars in the range
+     * @throws Exception on errors
+     */
+    boolean next() throws Exception;
+    
+    /**
+     * Returns the current bar, as market data owned by the caller that
+     * stays the same when the cursor moves on.
+     * 
+     * @return Current bar
+     */
+    Market getMarket();
+    
+    /**
+     * Returns the current bar as a view owned by the cursor, which may be
+     * the same object for every bar and then shows the next bar after the
+     * next call to next. Cursors over bar stores return a BarView, so
+     * walking bars this way creates no objects per bar. The view must not
+     * be kept after moving the cursor; use getMarket or BarView.copy for
+     * a bar that stays the same.
+     * 
+     * @return View of current bar
+     */
+    Market getView();
+    
+    /**
+     * Returns the time of the current bar in milliseconds, which may be
+     * cheaper than getting the bar itself.
+     * 
+     * @return Time of current bar
+     */
+    long getTime();
+}
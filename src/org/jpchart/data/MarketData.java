@@ -135,4 +135,24 @@ public interface MarketData {
      * @return Number of ticks
      */
     int getTicksBetween(String ticker, TimeUnit begin, TimeUnit end) throws Exception;
+    
+    /**
+     * Returns a cursor over the bars of given ticker from given time to
+     * given time, both inclusive. A null time leaves that end of the range
+     * open. Bars are visited in increasing time order if forward is true,
+     * otherwise in decreasing time order.
+     * 
+     * The default cursor walks the bars using getNext or getPrevious, data
+     * sources with a faster way of iterating bars should override this.
+     * 
+     * @param ticker
+     * @param from Earliest time, or null
+     * @param to Latest time, or null
+     * @param forward True to iterate in increasing time order
+     * @return Cursor, positioned before the first bar
+     * @throws Exception on errors
+     */
+    default MarketCursor cursor(String ticker, TimeUnit from, TimeUnit to, boolean forward) throws Exception {
+        return new WalkingMarketCursor(this, ticker, from, to, forward);
+    }
 }
@@ -0,0 +1,243 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jpchart.market.Market;
+import org.jpchart.market.MarketTick;
+import org.jpchart.time.TimeUnit;
+
+/**
+ * In-memory data source which can be extended while in use, for instance by
+ * a real-time feed. The last bar of a ticker can be updated while it is still
+ * forming, and new bars can be appended. Both are amortized O(1), and
+ * listeners are notified after each change.
+ * 
+ * Updates are synchronized and may come from any thread. After each change
+ * an immutable BarSnapshot of the ticker is published, and all reads go
+ * through the latest snapshot, so readers never lock and never see the
+ * series while it is being changed. Snapshots share the arrays of the
+ * series, so publishing one is O(1).
+ *
+ * @author cfelde
+ */
+public class MarketDataAppendable extends MarketDataColumnar implements MarketDataObservable {
+    private final CopyOnWriteArrayList<MarketDataListener> listeners = new CopyOnWriteArrayList<MarketDataListener>();
+    private final ConcurrentHashMap<String, BarSnapshot> snapshots = new ConcurrentHashMap<String, BarSnapshot>();
+    
+    public MarketDataAppendable() {
+    }
+    
+    /**
+     * Creates an appendable data source starting out with the history
+     * of given tickers from given data source.
+     * 
+     * @param dataSource Data source to load from
+     * @param tickers Tickers to load
+     * @throws Exception on errors
+     */
+    public MarketDataAppendable(MarketData dataSource, String... tickers) throws Exception {
+        // Loaded here rather than by the super constructor, which would
+        // publish before the snapshot map exists
+        for (String ticker : tickers) {
+            BarSeries series = BarSeries.load(dataSource, ticker);
+            if (series == null) throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
+            
+            addSeries(series);
+        }
+    }
+    
+    public void addMarketDataListener(MarketDataListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+    
+    public void removeMarketDataListener(MarketDataListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Update the forming last bar, or add a new last bar, of the ticker
+     * given by the market data. If the time equals the time of the last bar,
+     * the last bar is replaced. If it is after, a new bar is added.
+     * 
+     * @param market Bar to update or add
+     * @return True if a new bar was added
+     * @throws IllegalArgumentException if the time is before the last bar
+     */
+    public boolean update(Market market) {
+        boolean added;
+        Market changed;
+        
+        synchronized (this) {
+            added = store(market);
+            changed = getLastMarket(market.getTicker());
+        }
+        
+        fireMarketDataChanged(changed, added);
+        return added;
+    }
+    
+    /**
+     * Add a trade to the bar starting at given time. If this is the time of
+     * the last bar, the trade is merged into it. If it is after, a new bar
+     * is added with the trade price as open, high, low and close.
+     * 
+     * @param ticker Ticker
+     * @param barTime Time of the bar the trade belongs to
+     * @param price Trade price
+     * @param volume Trade volume
+     * @return True if a new bar was added
+     * @throws IllegalArgumentException if the time is before the last bar
+     */
+    public boolean addTrade(String ticker, TimeUnit barTime, BigDecimal price, BigDecimal volume) {
+        boolean added;
+        Market changed;
+        
+        synchronized (this) {
+            BarSnapshot snapshot = getSnapshot(ticker);
+            int size = snapshot == null ? 0 : snapshot.size();
+            Market bar;
+            
+            if (size > 0 && barTime.getTimeInMillis() == snapshot.getTime(size-1)) {
+                Market last = getMarket(snapshot, size-1);
+                bar = new MarketTick(last.getTicker(), last.getMarketTime(),
+                        last.getOpenPrice(),
+                        last.getHighPrice().max(price),
+                        last.getLowPrice().min(price),
+                        price,
+                        last.getVolume().add(volume),
+                        null);
+            }
+            else {
+                bar = new MarketTick(ticker, barTime, price, price, price, price, volume, null);
+            }
+            
+            added = store(bar);
+            changed = getLastMarket(ticker);
+        }
+        
+        fireMarketDataChanged(changed, added);
+        return added;
+    }
+    
+    /**
+     * Update or add given bar and publish a new snapshot, must be called
+     * holding the lock.
+     */
+    private boolean store(Market market) {
+        BarSeries series = getSeries(market.getTicker());
+        if (series == null) {
+            series = new BarSeries(market.getTicker(), market.getMarketTime().getResolutionDescription());
+            addSeries(series);
+        }
+        
+        boolean added;
+        int size = series.size();
+        if (size > 0 && market.getMarketTime().getTimeInMillis() == series.getTime(size-1)) {
+            series.updateLast(market);
+            added = false;
+        }
+        else {
+            series.add(market);
+            added = true;
+        }
+        
+        publish(series);
+        return added;
+    }
+    
+    private void publish(BarSeries series) {
+        snapshots.put(series.getTicker().toUpperCase(), series.snapshot());
+    }
+    
+    private Market getLastMarket(String ticker) {
+        BarSnapshot snapshot = getSnapshot(ticker);
+        return getMarket(snapshot, snapshot.size()-1);
+    }
+    
+    /**
+     * Returns the latest snapshot of given ticker, or null if not available.
+     * This never blocks.
+     * 
+     * @param ticker
+     * @return Snapshot, or null
+     */
+    public BarSnapshot getSnapshot(String ticker) {
+        return snapshots.get(ticker.toUpperCase());
+    }
+    
+    /**
+     * Returns the latest snapshot of given ticker. The live series is
+     * never handed out to readers.
+     */
+    @Override
+    public BarStore getBarStore(String ticker) {
+        return getSnapshot(ticker);
+    }
+    
+    private void fireMarketDataChanged(Market market, boolean added) {
+        for (MarketDataListener listener : listeners) {
+            try {
+                listener.marketDataChanged(getMarketDataSource(), market, added);
+            }
+            catch (Exception e) {
+                System.err.println(e.toString());
+            }
+        }
+    }
+    
+    /**
+     * Add given series, replacing any existing series for the same ticker.
+     * The series is owned by this data source from then on, and must only
+     * be changed through it.
+     * 
+     * @param series Series to add
+     */
+    @Override
+    public synchronized void addSeries(BarSeries series) {
+        super.addSeries(series);
+        publish(series);
+    }
+    
+    /**
+     * Returns the live series of given ticker, which is changed by updates
+     * from any thread. Use getSnapshot or getBarStore to read it.
+     * 
+     * @param ticker
+     * @return Series, or null
+     */
+    @Override
+    public synchronized BarSeries getSeries(String ticker) {
+        return super.getSeries(ticker);
+    }
+    
+    @Override
+    public synchronized void close() throws Exception {
+        super.close();
+        snapshots.clear();
+    }
+    
+    @Override
+    public String[] getAvailableTickers() throws Exception {
+        return snapshots.keySet().toArray(new String[0]);
+    }
+}
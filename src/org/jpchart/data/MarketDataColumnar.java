@@ -0,0 +1,85 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory data source keeping each ticker as a columnar BarSeries,
+ * with sorted primitive time and OHLCV arrays.
+ *
+ * @author cfelde
+ */
+public class MarketDataColumnar extends AbstractBarMarketData {
+    private final Map<String, BarSeries> seriesMap = new HashMap<String, BarSeries>();
+    
+    public MarketDataColumnar() {
+    }
+    
+    /**
+     * Creates a columnar data source filled with given tickers from
+     * given data source.
+     * 
+     * @param dataSource Data source to load from
+     * @param tickers Tickers to load
+     * @throws Exception on errors
+     */
+    public MarketDataColumnar(MarketData dataSource, String... tickers) throws Exception {
+        for (String ticker : tickers) {
+            BarSeries series = BarSeries.load(dataSource, ticker);
+            if (series == null) throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
+            
+            series.trimToSize();
+            addSeries(series);
+        }
+    }
+    
+    /**
+     * Add given series, replacing any existing series for the same ticker.
+     * 
+     * @param series Series to add
+     */
+    public void addSeries(BarSeries series) {
+        seriesMap.put(series.getTicker().toUpperCase(), series);
+    }
+    
+    /**
+     * Returns the series for given ticker, or null if not available.
+     * 
+     * @param ticker
+     * @return Series, or null
+     */
+    public BarSeries getSeries(String ticker) {
+        return seriesMap.get(ticker.toUpperCase());
+    }
+    
+    public BarStore getBarStore(String ticker) throws Exception {
+        return getSeries(ticker);
+    }
+
+    public void close() throws Exception {
+        seriesMap.clear();
+    }
+
+    public String[] getAvailableTickers() throws Exception {
+        return seriesMap.keySet().toArray(new String[seriesMap.size()]);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory data source keeping each ticker as a CompressedBarStore,
+ * for keeping long histories of many tickers in memory.
+ *
+ * @author cfelde
+ */
+public class MarketDataCompressed extends AbstractBarMarketData {
+    private final ConcurrentHashMap<String, CompressedBarStore> storeMap = new ConcurrentHashMap<String, CompressedBarStore>();
+    
+    public MarketDataCompressed() {
+    }
+    
+    /**
+     * Creates a compressed data source filled with given tickers from
+     * given data source. Tickers are loaded and compressed one by one.
+     * 
+     * @param dataSource Data source to load from
+     * @param tickers Tickers to load
+     * @throws Exception on errors
+     */
+    public MarketDataCompressed(MarketData dataSource, String... tickers) throws Exception {
+        for (String ticker : tickers) {
+            BarStore store = null;
+            if (dataSource instanceof BarStoreSource)
+                store = ((BarStoreSource) dataSource).getBarStore(ticker);
+            if (store == null)
+                store = BarSeries.load(dataSource, ticker);
+            if (store == null) throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
+            
+            addStore(store);
+        }
+    }
+    
+    /**
+     * Add a compressed copy of given store, replacing any existing
+     * store for the same ticker.
+     * 
+     * @param store Bars to add
+     * @return The compressed store
+     */
+    public CompressedBarStore addStore(BarStore store) {
+        CompressedBarStore compressed = store instanceof CompressedBarStore ? (CompressedBarStore) store : CompressedBarStore.compress(store);
+        storeMap.put(store.getTicker().toUpperCase(), compressed);
+        return compressed;
+    }
+    
+    /**
+     * Returns the approximate number of bytes used by all stores.
+     * 
+     * @return Bytes used
+     */
+    public long getMemoryUsage() {
+        long bytes = 0;
+        for (CompressedBarStore store : storeMap.values())
+            bytes += store.getMemoryUsage();
+        
+        return bytes;
+    }
+    
+    public BarStore getBarStore(String ticker) throws Exception {
+        return storeMap.get(ticker.toUpperCase());
+    }
+
+    public void close() throws Exception {
+        storeMap.clear();
+    }
+
+    public String[] getAvailableTickers() throws Exception {
+        return storeMap.keySet().toArray(new String[0]);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeSet;
+
+/**
+ * Data source loading daily bars in the Yahoo CSV layout from local files
+ * or streams, using CsvBarReader. If created with a directory, tickers are
+ * loaded on first access from a file named as the lower case ticker
+ * with a .csv suffix within that directory.
+ *
+ * @author cfelde
+ */
+public class MarketDataCsv extends MarketDataColumnar {
+    private final Path dir;
+    private final CsvBarReader reader = new CsvBarReader();
+    
+    public MarketDataCsv() {
+        this(null);
+    }
+    
+    public MarketDataCsv(Path dir) {
+        this.dir = dir;
+    }
+    
+    /**
+     * Set the listener given progress reports while loading, at most
+     * once per given interval.
+     * 
+     * @param listener Progress listener, or null for none
+     * @param intervalMillis Min number of milliseconds between reports
+     */
+    public synchronized void setProgressListener(ProgressListener listener, long intervalMillis) {
+        reader.setProgressListener(listener, intervalMillis);
+    }
+    
+    /**
+     * Load given ticker from given file, replacing any already loaded data.
+     * 
+     * @param ticker
+     * @param path CSV file
+     * @return Bars loaded
+     * @throws Exception on errors
+     */
+    public synchronized BarSeries load(String ticker, Path path) throws Exception {
+        BarSeries series = reader.read(ticker, path);
+        addSeries(series);
+        return series;
+    }
+    
+    /**
+     * Load given ticker from given stream, replacing any already loaded data.
+     * The stream is not closed.
+     * 
+     * @param ticker
+     * @param in CSV input
+     * @return Bars loaded
+     * @throws Exception on errors
+     */
+    public synchronized BarSeries load(String ticker, InputStream in) throws Exception {
+        BarSeries series = reader.read(ticker, in);
+        addSeries(series);
+        return series;
+    }
+    
+    @Override
+    public synchronized BarStore getBarStore(String ticker) throws Exception {
+        BarSeries series = getSeries(ticker);
+        
+        if (series == null && dir != null) {
+            Path file = dir.resolve(ticker.toLowerCase() + ".csv");
+            if (Files.isRegularFile(file))
+                series = load(ticker, file);
+        }
+        
+        return series;
+    }
+
+    @Override
+    public synchronized String[] getAvailableTickers() throws Exception {
+        TreeSet<String> tickers = new TreeSet<String>();
+        for (String ticker : super.getAvailableTickers())
+            tickers.add(ticker);
+        
+        if (dir != null) {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.csv");
+            try {
+                for (Path file : stream) {
+                    String name = file.getFileName().toString();
+                    tickers.add(name.substring(0, name.length() - 4).toUpperCase());
+                }
+            }
+            finally {
+                stream.close();
+            }
+        }
+        
+        return tickers.toArray(new String[tickers.size()]);
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import org.jpchart.time.TimeUtils;
+
+/**
+ * Disk cache tier in front of a remote data source. The bars of each ticker
+ * are kept in a bar file within the cache directory, so a ticker already
+ * cached is read from disk on first access, and only bars from the last
+ * cached bar on are requested from the remote data source. New bars are
+ * appended to the file. The last cached bar is requested again, as it may
+ * have been incomplete when it was cached.
+ * 
+ * Remote data sources implementing IncrementalMarketData are asked for the
+ * new bars only. Other data sources are read using a cursor from the last
+ * cached bar.
+ *
+ * @author cfelde
+ */
+public class MarketDataDiskCache extends AbstractBarMarketData {
+    private final MarketData dataSource;
+    private final File dir;
+    private final String resolution;
+    private final Map<String, BarSeries> seriesMap = new HashMap<String, BarSeries>();
+    private final Map<String, Object> locks = new HashMap<String, Object>();
+    private long maxAge = 0;
+    
+    /**
+     * Creates a disk cache for bars of given resolution from given data source.
+     * 
+     * @param dataSource Remote data source
+     * @param dir Cache directory, created if missing
+     * @param resolution Resolution description of the bars, example: Day
+     */
+    public MarketDataDiskCache(MarketData dataSource, File dir, String resolution) {
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IllegalArgumentException("Unable to create cache directory " + dir);
+        
+        this.dataSource = dataSource;
+        this.dir = dir;
+        this.resolution = resolution;
+    }
+    
+    /**
+     * Set the max age of a cache file for it to be used without asking the
+     * remote data source for newer bars on first access. The default is 0,
+     * refreshing each ticker once when first used.
+     * 
+     * @param maxAge Max age in milliseconds
+     */
+    public synchronized void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+    
+    public BarStore getBarStore(String ticker) throws Exception {
+        ticker = ticker.toUpperCase();
+        
+        synchronized (this) {
+            BarSeries series = seriesMap.get(ticker);
+            if (series != null) return series;
+        }
+        
+        // Each ticker has its own lock, so several tickers can be loaded at once
+        synchronized (getLock(ticker)) {
+            BarSeries series;
+            long maxAge;
+            synchronized (this) {
+                series = seriesMap.get(ticker);
+                if (series != null) return series;
+                maxAge = this.maxAge;
+            }
+            
+            File file = BarFile.getFile(dir, ticker, resolution);
+            series = readCache(file);
+            
+            if (series == null || System.currentTimeMillis() - file.lastModified() >= maxAge)
+                series = refresh(ticker, series, file);
+            
+            if (series == null) return null;
+            
+            synchronized (this) {
+                seriesMap.put(ticker, series);
+            }
+            
+            return series;
+        }
+    }
+    
+    /**
+     * Request bars newer than the last cached bar of given ticker from the
+     * remote data source, adding them to the cache.
+     * 
+     * @param ticker
+     * @return Number of bars added
+     * @throws Exception on errors
+     */
+    public int refresh(String ticker) throws Exception {
+        ticker = ticker.toUpperCase();
+        
+        synchronized (getLock(ticker)) {
+            File file = BarFile.getFile(dir, ticker, resolution);
+            BarSeries cached;
+            synchronized (this) {
+                cached = seriesMap.get(ticker);
+            }
+            if (cached == null)
+                cached = readCache(file);
+            
+            BarSeries series = refresh(ticker, cached, file);
+            if (series == null) return 0;
+            
+            synchronized (this) {
+                seriesMap.put(ticker, series);
+            }
+            
+            return cached == null ? series.size() : series.size() - cached.size();
+        }
+    }
+    
+    private synchronized Object getLock(String ticker) {
+        Object lock = locks.get(ticker);
+        if (lock == null) {
+            lock = new Object();
+            locks.put(ticker, lock);
+        }
+        
+        return lock;
+    }
+    
+    /**
+     * Returns the cached series merged with the bars fetched from the remote
+     * data source, writing any changes to the cache file. The cached series
+     * is not changed, since readers may be using it. If the remote data
+     * source fails, the cached series is returned as is.
+     */
+    private BarSeries refresh(String ticker, BarSeries cached, File file) throws Exception {
+        if (cached == null || cached.size() == 0) {
+            BarStore fetched = fetch(ticker, Long.MIN_VALUE);
+            if (fetched == null || fetched.size() == 0) return null;
+            
+            BarSeries series = new BarSeries(fetched.getTicker(), resolution, fetched.size());
+            series.addAll(fetched, 0, fetched.size());
+            BarFile.write(series, file);
+            
+            return series;
+        }
+        
+        int last = cached.size()-1;
+        long lastTime = cached.getTime(last);
+        
+        BarStore fetched;
+        try {
+            fetched = fetch(ticker, lastTime);
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return cached;
+        }
+        
+        // Bars from the remote data source replace the cached bars from here on
+        int fetchedFrom = fetched == null ? 0 : fetched.getTimeIndex().indexOnOrAfter(lastTime);
+        if (fetched == null || fetchedFrom >= fetched.size() || isUnchanged(cached, fetched, fetchedFrom)) {
+            file.setLastModified(System.currentTimeMillis());
+            return cached;
+        }
+        
+        int changedFrom = fetched.getTime(fetchedFrom) == lastTime ? last : last+1;
+        
+        BarSeries series = new BarSeries(cached.getTicker(), resolution, changedFrom + fetched.size() - fetchedFrom);
+        series.addAll(cached, 0, changedFrom);
+        series.addAll(fetched, fetchedFrom, fetched.size());
+        
+        // Appending needs the scales of the file, otherwise write it again
+        if (series.getPriceScale() == cached.getPriceScale() && series.getVolumeScale() == cached.getVolumeScale())
+            BarFile.append(series, file, changedFrom);
+        else
+            BarFile.write(series, file);
+        
+        return series;
+    }
+    
+    /**
+     * Returns true if the bars fetched from given index only repeat the
+     * last cached bar.
+     */
+    private static boolean isUnchanged(BarStore cached, BarStore fetched, int fetchedFrom) {
+        int last = cached.size()-1;
+        if (fetched.size() - fetchedFrom != 1 || fetched.getTime(fetchedFrom) != cached.getTime(last))
+            return false;
+        if (fetched.getPriceScale() != cached.getPriceScale() || fetched.getVolumeScale() != cached.getVolumeScale())
+            return false;
+        
+        return fetched.getOpen(fetchedFrom) == cached.getOpen(last)
+                && fetched.getHigh(fetchedFrom) == cached.getHigh(last)
+                && fetched.getLow(fetchedFrom) == cached.getLow(last)
+                && fetched.getClose(fetchedFrom) == cached.getClose(last)
+                && fetched.getVolume(fetchedFrom) == cached.getVolume(last);
+    }
+    
+    /**
+     * Fetch the bars of given ticker at or after given time from the remote
+     * data source.
+     */
+    private BarStore fetch(String ticker, long fromTime) throws Exception {
+        if (dataSource instanceof IncrementalMarketData)
+            return ((IncrementalMarketData) dataSource).fetchSince(ticker, fromTime);
+        
+        if (fromTime == Long.MIN_VALUE)
+            return BarSeries.load(dataSource, ticker);
+        
+        BarSeries series = new BarSeries(ticker.toUpperCase(), resolution);
+        MarketCursor cursor = dataSource.cursor(ticker, TimeUtils.getTimeUnit(resolution, fromTime), null, true);
+        while (cursor.next())
+            series.add(cursor.getView());
+        
+        return series;
+    }
+    
+    /**
+     * Read the bars of given cache file, or returns null if the file is
+     * missing or can not be read. The file is read rather than mapped, as
+     * it is appended to or replaced when the bars are updated.
+     */
+    private BarSeries readCache(File file) {
+        if (!file.isFile()) return null;
+        
+        try {
+            return BarFile.read(file);
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return null;
+        }
+    }
+    
+    /**
+     * Drop the cached bars of all tickers from memory and from disk.
+     * 
+     * @throws Exception on errors
+     */
+    public synchronized void clear() throws Exception {
+        seriesMap.clear();
+        
+        for (String ticker : getCachedTickers()) {
+            File file = BarFile.getFile(dir, ticker, resolution);
+            if (!file.delete())
+                throw new IOException("Unable to delete " + file);
+        }
+    }
+
+    public synchronized void close() throws Exception {
+        seriesMap.clear();
+        dataSource.close();
+    }
+
+    public synchronized String[] getAvailableTickers() throws Exception {
+        TreeSet<String> tickers = new TreeSet<String>();
+        for (String ticker : dataSource.getAvailableTickers())
+            tickers.add(ticker.toUpperCase());
+        for (String ticker : getCachedTickers())
+            tickers.add(ticker);
+        
+        return tickers.toArray(new String[tickers.size()]);
+    }
+    
+    private TreeSet<String> getCachedTickers() {
+        String suffix = "." + resolution.toLowerCase() + BarFile.SUFFIX;
+        TreeSet<String> tickers = new TreeSet<String>();
+        
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (file.isFile() && name.endsWith(suffix))
+                    tickers.add(name.substring(0, name.length() - suffix.length()).toUpperCase());
+            }
+        }
+        
+        return tickers;
+    }
+}
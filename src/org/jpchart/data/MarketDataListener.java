@@ -0,0 +1,41 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import org.jpchart.market.Market;
+
+/**
+ * Listener notified when a data source changes its data.
+ *
+ * @author cfelde
+ */
+public interface MarketDataListener {
+    /**
+     * Called when the last bar of a ticker was updated, or a new last
+     * bar was added. Called on the thread making the change. Data sources
+     * loading bars in the background also call this when bars they could
+     * not give earlier have been loaded, as an update of the first such bar.
+     * 
+     * @param dataSource Data source changed
+     * @param market The updated or added bar
+     * @param added True if a new bar was added, false if the last bar was updated
+     */
+    void marketDataChanged(MarketData dataSource, Market market, boolean added);
+}
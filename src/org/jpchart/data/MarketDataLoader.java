@@ -0,0 +1,242 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads many tickers from data sources concurrently, such as a watchlist
+ * warm-up at startup, so the total time is close to that of the slowest
+ * tickers rather than the sum of all. At most a given number of tickers
+ * are loaded at once from each data source, across all calls.
+ * 
+ * Tickers are loaded with getBarStore for data sources keeping bars in a
+ * bar store, which also fills caches such as MarketDataMem and
+ * MarketDataDiskCache, and with BarSeries.load otherwise. The data source
+ * must allow being called by several threads at once.
+ * 
+ * By default, virtual threads are used where the JVM has them, and daemon
+ * threads otherwise.
+ *
+ * @author cfelde
+ */
+public class MarketDataLoader {
+    public final static int DEFAULT_MAX_CONCURRENT = 16;
+    
+    private final Executor executor;
+    private final Map<MarketData, Semaphore> limits = new IdentityHashMap<MarketData, Semaphore>();
+    private final Map<MarketData, Integer> maxConcurrent = new IdentityHashMap<MarketData, Integer>();
+    
+    public MarketDataLoader() {
+        this(createDefaultExecutor());
+    }
+    
+    /**
+     * Creates a loader running its tasks on given executor.
+     * 
+     * @param executor Executor
+     */
+    public MarketDataLoader(Executor executor) {
+        this.executor = executor;
+    }
+    
+    /**
+     * Set the max number of tickers loaded at once from given data source.
+     * Loads already running keep the previous limit.
+     * 
+     * @param dataSource Data source
+     * @param max Max concurrent loads
+     */
+    public synchronized void setMaxConcurrent(MarketData dataSource, int max) {
+        if (max < 1) throw new IllegalArgumentException("Max concurrent loads must be at least 1: " + max);
+        
+        maxConcurrent.put(dataSource, max);
+        limits.remove(dataSource);
+    }
+    
+    /**
+     * Returns the max number of tickers loaded at once from given data source.
+     * 
+     * @param dataSource Data source
+     * @return Max concurrent loads
+     */
+    public synchronized int getMaxConcurrent(MarketData dataSource) {
+        Integer max = maxConcurrent.get(dataSource);
+        return max == null ? DEFAULT_MAX_CONCURRENT : max;
+    }
+    
+    /**
+     * Load given tickers from given data source, waiting until all are done.
+     * The listener is told about each ticker as soon as it is done.
+     * 
+     * @param dataSource Data source
+     * @param listener Listener, or null for none
+     * @param tickers Tickers to load
+     * @return Bars by ticker, in the given order, for the tickers loaded
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Map<String, BarStore> load(MarketData dataSource, TickerLoadListener listener, String... tickers) throws InterruptedException {
+        final Map<String, BarStore> result = new LinkedHashMap<String, BarStore>();
+        for (String ticker : tickers)
+            result.put(ticker, null);
+        
+        final TickerLoadListener resultListener = listener;
+        final CountDownLatch done = new CountDownLatch(tickers.length);
+        
+        loadAsync(dataSource, new TickerLoadListener() {
+            public void tickerLoaded(MarketData dataSource, String ticker, BarStore store) {
+                synchronized (result) {
+                    result.put(ticker, store);
+                }
+                try {
+                    if (resultListener != null)
+                        resultListener.tickerLoaded(dataSource, ticker, store);
+                }
+                finally {
+                    done.countDown();
+                }
+            }
+            
+            public void tickerFailed(MarketData dataSource, String ticker, Exception e) {
+                try {
+                    if (resultListener != null)
+                        resultListener.tickerFailed(dataSource, ticker, e);
+                }
+                finally {
+                    done.countDown();
+                }
+            }
+        }, tickers);
+        
+        done.await();
+        
+        synchronized (result) {
+            Map<String, BarStore> loaded = new LinkedHashMap<String, BarStore>();
+            for (Map.Entry<String, BarStore> entry : result.entrySet()) {
+                if (entry.getValue() != null)
+                    loaded.put(entry.getKey(), entry.getValue());
+            }
+            
+            return loaded;
+        }
+    }
+    
+    /**
+     * Start loading given tickers from given data source, returning at once.
+     * The listener is told about each ticker as soon as it is done.
+     * 
+     * @param dataSource Data source
+     * @param listener Listener
+     * @param tickers Tickers to load
+     */
+    public void loadAsync(final MarketData dataSource, final TickerLoadListener listener, String... tickers) {
+        final Semaphore limit = getLimit(dataSource);
+        final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<String>();
+        for (String ticker : tickers)
+            queue.add(ticker);
+        
+        // No more workers than may run at once, each taking tickers from the queue
+        int workers = Math.min(tickers.length, getMaxConcurrent(dataSource));
+        for (int x = 0; x < workers; x++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    String ticker;
+                    while ((ticker = queue.poll()) != null)
+                        load(dataSource, ticker, limit, listener);
+                }
+            });
+        }
+    }
+    
+    private void load(MarketData dataSource, String ticker, Semaphore limit, TickerLoadListener listener) {
+        BarStore store;
+        try {
+            limit.acquire();
+            try {
+                if (dataSource instanceof BarStoreSource)
+                    store = ((BarStoreSource) dataSource).getBarStore(ticker);
+                else
+                    store = BarSeries.load(dataSource, ticker);
+            }
+            finally {
+                limit.release();
+            }
+            
+            if (store == null || store.size() == 0)
+                throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
+        }
+        catch (Exception e) {
+            store = null;
+            
+            try {
+                listener.tickerFailed(dataSource, ticker, e);
+            }
+            catch (RuntimeException listenerException) {
+                System.err.println(listenerException.toString());
+            }
+        }
+        
+        // A failing listener must not stop the remaining tickers
+        if (store != null) {
+            try {
+                listener.tickerLoaded(dataSource, ticker, store);
+            }
+            catch (RuntimeException e) {
+                System.err.println(e.toString());
+            }
+        }
+    }
+    
+    private synchronized Semaphore getLimit(MarketData dataSource) {
+        Semaphore limit = limits.get(dataSource);
+        if (limit == null) {
+            limit = new Semaphore(getMaxConcurrent(dataSource));
+            limits.put(dataSource, limit);
+        }
+        
+        return limit;
+    }
+    
+    private static Executor createDefaultExecutor() {
+        // Virtual threads are only available on newer JVMs
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        }
+        catch (Exception e) {
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "MarketDataLoader worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data source reading memory mapped bar files from a directory, one file
+ * per ticker for the given resolution. Files are mapped on first access.
+ *
+ * @author cfelde
+ */
+public class MarketDataMapped extends AbstractBarMarketData {
+    private final File dir;
+    private final String resolution;
+    private final Map<String, MappedBarStore> stores = new HashMap<String, MappedBarStore>();
+    
+    /**
+     * Creates a data source reading bar files from given directory.
+     * 
+     * @param dir Data directory
+     * @param resolution Resolution description, example: Day
+     */
+    public MarketDataMapped(File dir, String resolution) {
+        this.dir = dir;
+        this.resolution = resolution;
+    }
+    
+    public synchronized BarStore getBarStore(String ticker) throws Exception {
+        ticker = ticker.toUpperCase();
+        
+        MappedBarStore store = stores.get(ticker);
+        if (store == null) {
+            File file = BarFile.getFile(dir, ticker, resolution);
+            if (!file.isFile()) return null;
+            
+            store = BarFile.open(file);
+            stores.put(ticker, store);
+        }
+        
+        return store;
+    }
+    
+    /**
+     * Drop the mapping of given ticker, so that the file is mapped again
+     * on next access. Use this after the file has been rewritten or appended to.
+     * 
+     * @param ticker
+     */
+    public synchronized void reload(String ticker) {
+        stores.remove(ticker.toUpperCase());
+    }
+
+    public synchronized void close() throws Exception {
+        stores.clear();
+    }
+
+    public String[] getAvailableTickers() throws Exception {
+        String suffix = "." + resolution.toLowerCase() + BarFile.SUFFIX;
+        ArrayList<String> tickers = new ArrayList<String>();
+        
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (file.isFile() && name.endsWith(suffix))
+                    tickers.add(name.substring(0, name.length() - suffix.length()).toUpperCase());
+            }
+        }
+        
+        return tickers.toArray(new String[tickers.size()]);
+    }
+}
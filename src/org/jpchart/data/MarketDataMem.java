@@ -19,129 +19,188 @@
 
 package org.jpchart.data;
 
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import org.jpchart.market.Market;
-import org.jpchart.time.TimeUnit;
 
 /**
+ * Memory cache wrapped around a slower data source. Tickers are loaded into
+ * a columnar BarSeries on first access, and the least recently used tickers
+ * are evicted when the cache grows beyond its memory budget. The most
+ * recently used ticker is always kept, even if it alone exceeds the budget.
+ * Tickers the data source has no data for are asked for again on each
+ * access, as the data source may only have failed for the moment, or may
+ * be given the ticker later.
  *
  * @author cfelde
  */
-public class MarketDataMem implements MarketData {
+public class MarketDataMem extends AbstractBarMarketData {
+    public final static long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    
     private final MarketData dataSource;
-    private final String ticker;
+    private final long memoryBudget;
     
-    private final Map<Long, Market> cache = new HashMap<Long, Market>();
-    private final long firstMarketTime, lastMarketTime;
+    // Access ordered, so the first entry is the least recently used
+    private final Map<String, BarSeries> cache = new LinkedHashMap<String, BarSeries>(16, 0.75f, true);
+    private long memoryUsage = 0;
     
-    public MarketDataMem(MarketData dataSource, String ticker) throws Exception {
+    // Ticker of the previous lookup, so walking the bars of one ticker counts once
+    private String lastTicker = null;
+    
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    
+    /**
+     * Creates a cache around given data source, using at most roughly
+     * the given number of bytes.
+     * 
+     * @param dataSource Data source to cache
+     * @param memoryBudget Memory budget in bytes
+     */
+    public MarketDataMem(MarketData dataSource, long memoryBudget) {
         this.dataSource = dataSource;
-        this.ticker = ticker;
-        
-        dataSource.setMarketDataSource(this);
-        
-        // Fill cache with ticker
-        Market firstMarket = dataSource.getFirst(ticker);
-        Market lastMarket = dataSource.getLast(ticker);
-        if (firstMarket == null || lastMarket == null) throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
-        
-        firstMarketTime = firstMarket.getMarketTime().getTime().getTimeInMillis();
-        lastMarketTime = lastMarket.getMarketTime().getTime().getTimeInMillis();
-        
-        Market market = firstMarket;
-        System.out.println("Loading data into cache");
-        while (market != null) {
-            cache.put(market.getMarketTime().getTime().getTimeInMillis(), market);
-            market = dataSource.getNext(market);
-        }
-        System.out.println("Cache loaded");
+        this.memoryBudget = memoryBudget;
     }
     
-    public void setMarketDataSource(MarketData dataSource) {
-        throw new UnsupportedOperationException("This data source can not be wrapped");
-    }
-
-    public void close() throws Exception {
-        cache.clear();
-        dataSource.close();
-    }
-
-    public Market get(String ticker, TimeUnit time) throws Exception {
-        if (!ticker.equals(this.ticker)) return dataSource.get(ticker, time);
-        
-        return cache.get(time.getTime().getTimeInMillis());
-    }
-
-    public Market getLast(String ticker) throws Exception {
-        if (!ticker.equals(this.ticker)) return dataSource.getLast(ticker);
-        
-        return cache.get(lastMarketTime);
-    }
-
-    public Market getFirst(String ticker) throws Exception {
-        if (!ticker.equals(this.ticker)) return dataSource.getFirst(ticker);
+    /**
+     * Creates a cache around given data source, using the default memory
+     * budget, with given ticker loaded up front.
+     * 
+     * @param dataSource Data source to cache
+     * @param ticker Ticker to load
+     * @throws Exception on errors
+     */
+    public MarketDataMem(MarketData dataSource, String ticker) throws Exception {
+        this(dataSource, DEFAULT_MEMORY_BUDGET);
         
-        return cache.get(firstMarketTime);
+        if (getBarStore(ticker) == null) throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
     }
-
-    public Market getOnOrAfter(String ticker, TimeUnit time) throws Exception {
-        if (!ticker.equals(this.ticker)) return dataSource.getOnOrAfter(ticker, time);
-        
-        long timeValue = time.getTime().getTimeInMillis();
-        if (timeValue > lastMarketTime) return null;
-        if (timeValue < firstMarketTime) timeValue = firstMarketTime;
+    
+    public BarStore getBarStore(String ticker) throws Exception {
+        ticker = ticker.toUpperCase();
         
-        Market market = null;
-        while (market == null && timeValue <= lastMarketTime) {
-            market = cache.get(timeValue);
-            if (market == null) {
-                time = time.getAddOne();
-                timeValue = time.getTime().getTimeInMillis();
+        synchronized (this) {
+            boolean count = !ticker.equals(lastTicker);
+            lastTicker = ticker;
+            
+            BarSeries series = cache.get(ticker);
+            if (series != null) {
+                if (count) hitCount++;
+                return series;
             }
+            
+            missCount++;
         }
         
-        return market;
-    }
-
-    public Market getOnOrBefore(String ticker, TimeUnit time) throws Exception {
-        if (!ticker.equals(this.ticker)) return dataSource.getOnOrBefore(ticker, time);
+        // Load without holding the lock, so other tickers can be read or loaded meanwhile
+        BarSeries series = BarSeries.load(dataSource, ticker);
+        if (series == null) return null;
         
-        long timeValue = time.getTime().getTimeInMillis();
-        if (timeValue < firstMarketTime) return null;
-        if (timeValue > lastMarketTime) timeValue = lastMarketTime;
+        series.trimToSize();
         
-        Market market = null;
-        while (market == null && timeValue >= firstMarketTime) {
-            market = cache.get(timeValue);
-            if (market == null) {
-                time = time.getSubOne();
-                timeValue = time.getTime().getTimeInMillis();
+        synchronized (this) {
+            // Keep the series of a concurrent load of the same ticker, if any
+            BarSeries existing = cache.get(ticker);
+            if (existing != null) return existing;
+            
+            cache.put(ticker, series);
+            memoryUsage += series.getMemoryUsage();
+            
+            // Evict least recently used tickers, but never the one just loaded
+            Iterator<BarSeries> it = cache.values().iterator();
+            while (memoryUsage > memoryBudget && cache.size() > 1) {
+                BarSeries eldest = it.next();
+                it.remove();
+                memoryUsage -= eldest.getMemoryUsage();
+                evictionCount++;
             }
         }
         
-        return market;
+        return series;
     }
-
-    public Market getNext(Market current) throws Exception {
-        TimeUnit time = current.getMarketTime().getAddOne();
-        String ticker = current.getTicker();
+    
+    /**
+     * Remove given ticker from the cache, so that it is loaded again from
+     * the underlying data source on next access.
+     * 
+     * @param ticker
+     */
+    public synchronized void remove(String ticker) {
+        ticker = ticker.toUpperCase();
+        if (ticker.equals(lastTicker))
+            lastTicker = null;
         
-        return getOnOrAfter(ticker, time);
+        BarSeries series = cache.remove(ticker);
+        if (series != null)
+            memoryUsage -= series.getMemoryUsage();
+    }
+    
+    /**
+     * Returns the number of ticker lookups served from the cache. Repeated
+     * lookups of the same ticker, such as those made for each bar while
+     * walking it, count as one.
+     * 
+     * @return Hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    /**
+     * Returns the number of ticker lookups that had to go to the underlying
+     * data source.
+     * 
+     * @return Miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    
+    /**
+     * Returns the number of tickers evicted to stay within the memory budget.
+     * 
+     * @return Eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    /**
+     * Returns the approximate number of bytes used by cached tickers.
+     * 
+     * @return Memory usage in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+    
+    /**
+     * Returns the memory budget in bytes.
+     * 
+     * @return Memory budget in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+    
+    /**
+     * Returns the tickers currently cached, least recently used first.
+     * 
+     * @return Cached tickers
+     */
+    public synchronized String[] getCachedTickers() {
+        return cache.keySet().toArray(new String[cache.size()]);
     }
 
-    public Market getPrevious(Market current) throws Exception {
-        TimeUnit time = current.getMarketTime().getSubOne();
-        String ticker = current.getTicker();
-        
-        return getOnOrBefore(ticker, time);
+    public synchronized void close() throws Exception {
+        cache.clear();
+        lastTicker = null;
+        memoryUsage = 0;
+        dataSource.close();
     }
 
     public String[] getAvailableTickers() throws Exception {
         return dataSource.getAvailableTickers();
     }
-
-    public int getTicksBetween(String ticker, TimeUnit begin, TimeUnit end) throws Exception {
-        return dataSource.getTicksBetween(ticker, begin, end);
-    }
 }
@@ -0,0 +1,651 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.jpchart.market.Market;
+import org.jpchart.time.Day;
+import org.jpchart.time.Minute;
+import org.jpchart.time.SessionCalendar;
+import org.jpchart.time.TimeUnit;
+import org.jpchart.time.TimeUtils;
+
+/**
+ * Minute data source reading the base/year/month/day/ticker.txt layout
+ * given by TimeUtils.getMinuteDataPath. Each file holds the minute bars
+ * of one day, as read by CsvBarReader.readMinutes.
+ * 
+ * Days are loaded when first reached, and only a bounded number of recently
+ * used days are kept in memory. Whenever a day is used, its neighbouring
+ * days are loaded in the background, so panning through history seldom
+ * has to wait for disk.
+ * 
+ * The days with data and their number of bars are kept in a day index per
+ * ticker, so days without data are never looked up, and the number of bars
+ * between two times only needs the files of the first and last day. The
+ * index is saved as base/ticker.days, and only days whose file changed
+ * are counted again when it is next built.
+ *
+ * @author cfelde
+ */
+public class MarketDataMinuteDir implements MarketData {
+    public final static int DEFAULT_RESIDENT_DAYS = 64;
+    public final static int DEFAULT_PREFETCH_DAYS = 2;
+    public final static String INDEX_SUFFIX = ".days";
+    
+    private final static int INDEX_VERSION = 1;
+    
+    private final File base;
+    private final int prefetchDays;
+    private MarketData dataSource = this;
+    private volatile SessionCalendar sessionCalendar = null;
+    
+    // Resident days, keyed by ticker and day, least recently used first
+    private final Map<String, BarSeries> days;
+    // Days with data per ticker, null if the ticker has no data
+    private final Map<String, DayIndex> dayIndexes = new HashMap<String, DayIndex>();
+    // Days queued for prefetch
+    private final Set<String> pending = new HashSet<String>();
+    
+    private final ExecutorService prefetcher;
+    private final ThreadLocal<CsvBarReader> readers = new ThreadLocal<CsvBarReader>() {
+        @Override
+        protected CsvBarReader initialValue() {
+            return new CsvBarReader();
+        }
+    };
+    
+    /**
+     * The days with data for one ticker, oldest first, with the number of
+     * bars of each day and of all days before it.
+     */
+    private static class DayIndex {
+        final long[] days;
+        final long[] lengths;
+        final int[] counts;
+        final int[] before;
+        
+        DayIndex(long[] days, long[] lengths, int[] counts) {
+            this.days = days;
+            this.lengths = lengths;
+            this.counts = counts;
+            
+            before = new int[days.length + 1];
+            for (int x = 0; x < days.length; x++)
+                before[x + 1] = before[x] + counts[x];
+        }
+        
+        int size() {
+            return days.length;
+        }
+        
+        int indexOf(long day) {
+            return Arrays.binarySearch(days, day);
+        }
+        
+        /**
+         * Returns the position of the last day on or before given day, or -1.
+         */
+        int floor(long day) {
+            int index = Arrays.binarySearch(days, day);
+            return index >= 0 ? index : -index - 2;
+        }
+        
+        /**
+         * Returns the position of the first day on or after given day,
+         * or size() if none.
+         */
+        int ceiling(long day) {
+            int index = Arrays.binarySearch(days, day);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+    
+    public MarketDataMinuteDir(File base) {
+        this(base, DEFAULT_RESIDENT_DAYS, DEFAULT_PREFETCH_DAYS);
+    }
+    
+    /**
+     * Creates a minute data source reading from given base directory.
+     * 
+     * @param base Base data dir
+     * @param residentDays Max number of days kept in memory
+     * @param prefetchDays Number of days on each side of a used day to load in the background
+     */
+    public MarketDataMinuteDir(File base, final int residentDays, int prefetchDays) {
+        this.base = base;
+        this.prefetchDays = prefetchDays;
+        
+        this.days = new LinkedHashMap<String, BarSeries>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BarSeries> eldest) {
+                return size() > residentDays;
+            }
+        };
+        
+        this.prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MarketDataMinuteDir prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+    
+    public void setMarketDataSource(MarketData dataSource) {
+        this.dataSource = dataSource;
+    }
+    
+    /**
+     * Set the session calendar used to leave days without trading, such as
+     * weekends and holidays, out of the day index, even if a file exists for
+     * them. Null, the default, uses every day with a file.
+     * 
+     * @param sessionCalendar Session calendar, or null
+     */
+    public void setSessionCalendar(SessionCalendar sessionCalendar) {
+        this.sessionCalendar = sessionCalendar;
+        
+        synchronized (this) {
+            dayIndexes.clear();
+        }
+    }
+    
+    public SessionCalendar getSessionCalendar() {
+        return sessionCalendar;
+    }
+    
+    public void close() throws Exception {
+        prefetcher.shutdownNow();
+        
+        synchronized (this) {
+            days.clear();
+            dayIndexes.clear();
+            pending.clear();
+        }
+    }
+    
+    public Market get(String ticker, TimeUnit time) throws Exception {
+        ticker = ticker.toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return null;
+        
+        int position = index.indexOf(getDay(time.getTimeInMillis()));
+        if (position < 0) return null;
+        
+        BarSeries series = getDay(ticker, index, position, true);
+        int barIndex = series.getTimeIndex().indexOf(time.getTimeInMillis());
+        if (barIndex < 0) return null;
+        
+        return getMarket(series, barIndex);
+    }
+    
+    public Market getLast(String ticker) throws Exception {
+        ticker = ticker.toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return null;
+        
+        return getOnOrBefore(ticker, index, index.size() - 1, Long.MAX_VALUE);
+    }
+    
+    public Market getFirst(String ticker) throws Exception {
+        ticker = ticker.toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return null;
+        
+        return getOnOrAfter(ticker, index, 0, Long.MIN_VALUE);
+    }
+    
+    public Market getOnOrAfter(String ticker, TimeUnit time) throws Exception {
+        ticker = ticker.toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return null;
+        
+        long timeValue = time.getTimeInMillis();
+        return getOnOrAfter(ticker, index, index.ceiling(getDay(timeValue)), timeValue);
+    }
+    
+    public Market getOnOrBefore(String ticker, TimeUnit time) throws Exception {
+        ticker = ticker.toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return null;
+        
+        long timeValue = time.getTimeInMillis();
+        return getOnOrBefore(ticker, index, index.floor(getDay(timeValue)), timeValue);
+    }
+    
+    public Market getNext(Market current) throws Exception {
+        if (current instanceof BarMarketTick) {
+            // Loaded days never change, so the next bar of the same day is next in its store
+            BarMarketTick tick = (BarMarketTick) current;
+            if (isOwnStore(tick) && tick.getIndex() + 1 < tick.getBarStore().size())
+                return getMarket(tick.getBarStore(), tick.getIndex() + 1);
+        }
+        
+        long time = current.getMarketTime().getTimeInMillis() + 1;
+        
+        String ticker = current.getTicker().toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return null;
+        
+        return getOnOrAfter(ticker, index, index.ceiling(getDay(time)), time);
+    }
+    
+    public Market getPrevious(Market current) throws Exception {
+        if (current instanceof BarMarketTick) {
+            BarMarketTick tick = (BarMarketTick) current;
+            if (isOwnStore(tick) && tick.getIndex() > 0)
+                return getMarket(tick.getBarStore(), tick.getIndex() - 1);
+        }
+        
+        long time = current.getMarketTime().getTimeInMillis() - 1;
+        
+        String ticker = current.getTicker().toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return null;
+        
+        return getOnOrBefore(ticker, index, index.floor(getDay(time)), time);
+    }
+    
+    public String[] getAvailableTickers() throws Exception {
+        // Use tickers found on the most recent day
+        File dayDir = findLastDayDir();
+        if (dayDir == null) return new String[0];
+        
+        ArrayList<String> tickers = new ArrayList<String>();
+        for (String name : dayDir.list()) {
+            if (name.endsWith(".txt"))
+                tickers.add(name.substring(0, name.length() - 4).toUpperCase());
+        }
+        
+        return tickers.toArray(new String[tickers.size()]);
+    }
+    
+    public int getTicksBetween(String ticker, TimeUnit begin, TimeUnit end) throws Exception {
+        ticker = ticker.toUpperCase();
+        DayIndex index = getDayIndex(ticker);
+        if (index == null) return 0;
+        
+        long beginTime = begin.getTimeInMillis();
+        long endTime = end.getTimeInMillis();
+        if (beginTime > endTime) {
+            long tmp = beginTime;
+            beginTime = endTime;
+            endTime = tmp;
+        }
+        
+        // Count bars after begin, up to and including end
+        return getRank(ticker, index, endTime) - getRank(ticker, index, beginTime);
+    }
+    
+    /**
+     * Returns the number of bars on or before given time. Only the day of
+     * the given time is read, other days are counted by the day index.
+     */
+    private int getRank(String ticker, DayIndex index, long time) throws IOException {
+        long day = getDay(time);
+        int position = index.floor(day);
+        if (position < 0) return 0;
+        if (index.days[position] < day) return index.before[position + 1];
+        
+        BarSeries series = getDay(ticker, index, position, false);
+        return index.before[position] + series.getTimeIndex().indexOnOrBefore(time) + 1;
+    }
+    
+    private Market getOnOrAfter(String ticker, DayIndex index, int position, long time) throws IOException {
+        for (; position < index.size(); position++) {
+            BarSeries series = getDay(ticker, index, position, true);
+            int barIndex = series.getTimeIndex().indexOnOrAfter(time);
+            if (barIndex < series.size()) return getMarket(series, barIndex);
+        }
+        
+        return null;
+    }
+    
+    private Market getOnOrBefore(String ticker, DayIndex index, int position, long time) throws IOException {
+        for (; position >= 0; position--) {
+            BarSeries series = getDay(ticker, index, position, true);
+            int barIndex = series.getTimeIndex().indexOnOrBefore(time);
+            if (barIndex >= 0) return getMarket(series, barIndex);
+        }
+        
+        return null;
+    }
+    
+    private Market getMarket(BarStore store, int index) {
+        return new BarMarketTick(store, index, dataSource);
+    }
+    
+    /**
+     * Returns true if given bar is in a resident day of this data source.
+     * Stores of other data sources may hold several days, or days left out
+     * here, such as by the session calendar.
+     */
+    private boolean isOwnStore(BarMarketTick tick) {
+        BarStore store = tick.getBarStore();
+        if (!(store instanceof BarSeries)) return false;
+        
+        String ticker = store.getTicker().toUpperCase();
+        synchronized (this) {
+            DayIndex index = dayIndexes.get(ticker);
+            if (index == null) return false;
+            
+            int position = index.floor(getDay(store.getTime(tick.getIndex())));
+            return position >= 0 && days.get(ticker + "/" + index.days[position]) == store;
+        }
+    }
+    
+    /**
+     * Returns the bars of the day at given position of the day index,
+     * loading them if not resident.
+     */
+    private BarSeries getDay(String ticker, DayIndex index, int position, boolean prefetch) throws IOException {
+        long day = index.days[position];
+        String key = ticker + "/" + day;
+        
+        BarSeries series;
+        synchronized (this) {
+            series = days.get(key);
+        }
+        
+        if (series == null) {
+            series = loadDay(ticker, day);
+            synchronized (this) {
+                days.put(key, series);
+            }
+        }
+        
+        if (prefetch) {
+            for (int x = 1; x <= prefetchDays; x++) {
+                if (position + x < index.size())
+                    prefetch(ticker, index, position + x);
+                if (position - x >= 0)
+                    prefetch(ticker, index, position - x);
+            }
+        }
+        
+        return series;
+    }
+    
+    private void prefetch(final String ticker, final DayIndex index, final int position) {
+        final String key = ticker + "/" + index.days[position];
+        
+        synchronized (this) {
+            if (days.containsKey(key) || !pending.add(key)) return;
+        }
+        
+        try {
+            prefetcher.execute(new Runnable() {
+                public void run() {
+                    try {
+                        getDay(ticker, index, position, false);
+                    }
+                    catch (Exception e) {
+                        System.err.println(e.toString());
+                    }
+                    finally {
+                        synchronized (MarketDataMinuteDir.this) {
+                            pending.remove(key);
+                        }
+                    }
+                }
+            });
+        }
+        catch (java.util.concurrent.RejectedExecutionException e) {
+            // Closed
+            synchronized (this) {
+                pending.remove(key);
+            }
+        }
+    }
+    
+    private BarSeries loadDay(String ticker, long day) throws IOException {
+        File file = TimeUtils.getMinuteDataPath(base, new Minute(day), ticker);
+        if (file == null) return new BarSeries(ticker, "Minute", 1);
+        
+        BarSeries series = readers.get().readMinutes(ticker, new Day(day), file.toPath());
+        series.trimToSize();
+        
+        return series;
+    }
+    
+    /**
+     * Returns the day index of given ticker, building it if needed,
+     * or null if no data is available.
+     */
+    private DayIndex getDayIndex(String ticker) throws IOException {
+        synchronized (this) {
+            if (dayIndexes.containsKey(ticker)) return dayIndexes.get(ticker);
+        }
+        
+        DayIndex index = buildDayIndex(ticker);
+        
+        synchronized (this) {
+            dayIndexes.put(ticker, index);
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Build the day index of given ticker from the day directories. Bars
+     * are only counted for days missing from the saved index, or whose
+     * file length has changed, and the saved index is then updated.
+     */
+    private DayIndex buildDayIndex(String ticker) throws IOException {
+        File indexFile = getIndexFile(ticker);
+        DayIndex saved = readDayIndex(indexFile);
+        SessionCalendar calendar = sessionCalendar;
+        String name = ticker.toLowerCase() + ".txt";
+        
+        ArrayList<long[]> entries = new ArrayList<long[]>();
+        boolean changed = saved == null;
+        
+        for (File yearDir : listNumeric(base, true)) {
+            for (File monthDir : listNumeric(yearDir, true)) {
+                for (File dayDir : listNumeric(monthDir, true)) {
+                    File file = new File(dayDir, name);
+                    if (!file.isFile()) continue;
+                    
+                    long day = getDay(dayDir);
+                    if (calendar != null && getDay(calendar.getNextTradingTime(day)) != day) continue;
+                    
+                    long length = file.length();
+                    int position = saved == null ? -1 : saved.indexOf(day);
+                    
+                    long count;
+                    if (position >= 0 && saved.lengths[position] == length) {
+                        count = saved.counts[position];
+                    }
+                    else {
+                        count = readers.get().countBars(file.toPath());
+                        changed = true;
+                    }
+                    
+                    entries.add(new long[] { day, length, count });
+                }
+            }
+        }
+        
+        if (saved != null && saved.size() != entries.size())
+            changed = true;
+        
+        if (entries.isEmpty()) return null;
+        
+        long[] dayValues = new long[entries.size()];
+        long[] lengths = new long[entries.size()];
+        int[] counts = new int[entries.size()];
+        for (int x = 0; x < dayValues.length; x++) {
+            long[] entry = entries.get(x);
+            dayValues[x] = entry[0];
+            lengths[x] = entry[1];
+            counts[x] = (int) entry[2];
+        }
+        
+        DayIndex index = new DayIndex(dayValues, lengths, counts);
+        
+        if (changed) {
+            try {
+                writeDayIndex(index, indexFile);
+            }
+            catch (IOException e) {
+                // Read only data dir, the index is then built again next time
+                System.err.println(e.toString());
+            }
+        }
+        
+        return index;
+    }
+    
+    private File getIndexFile(String ticker) {
+        return new File(base, ticker.toLowerCase() + INDEX_SUFFIX);
+    }
+    
+    /**
+     * Read a saved day index, or return null if missing or unreadable.
+     */
+    private static DayIndex readDayIndex(File file) {
+        if (!file.isFile()) return null;
+        
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != INDEX_VERSION) return null;
+                
+                int size = in.readInt();
+                long[] dayValues = new long[size];
+                long[] lengths = new long[size];
+                int[] counts = new int[size];
+                for (int x = 0; x < size; x++) {
+                    dayValues[x] = in.readLong();
+                    lengths[x] = in.readLong();
+                    counts[x] = in.readInt();
+                }
+                
+                return new DayIndex(dayValues, lengths, counts);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            System.err.println(e.toString());
+            return null;
+        }
+    }
+    
+    /**
+     * Save given day index, writing to a temporary file first so readers
+     * never see a half written index.
+     */
+    private static void writeDayIndex(DayIndex index, File file) throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(index.size());
+            for (int x = 0; x < index.size(); x++) {
+                out.writeLong(index.days[x]);
+                out.writeLong(index.lengths[x]);
+                out.writeInt(index.counts[x]);
+            }
+        }
+        finally {
+            out.close();
+        }
+        
+        if (file.exists() && !file.delete())
+            throw new IOException("Unable to replace " + file);
+        if (!tmpFile.renameTo(file))
+            throw new IOException("Unable to rename " + tmpFile + " to " + file);
+    }
+    
+    /**
+     * Scan the directory tree for the last day directory holding data
+     * for any ticker.
+     */
+    private File findLastDayDir() {
+        for (File yearDir : listNumeric(base, false)) {
+            for (File monthDir : listNumeric(yearDir, false)) {
+                for (File dayDir : listNumeric(monthDir, false)) {
+                    String[] names = dayDir.list();
+                    if (names != null && names.length > 0) return dayDir;
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    private static File[] listNumeric(File dir, final boolean ascending) {
+        ArrayList<File> dirs = new ArrayList<File>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory() && file.getName().matches("[0-9]+"))
+                    dirs.add(file);
+            }
+        }
+        
+        File[] sorted = dirs.toArray(new File[dirs.size()]);
+        Arrays.sort(sorted, new java.util.Comparator<File>() {
+            public int compare(File a, File b) {
+                int rc = Integer.valueOf(a.getName()).compareTo(Integer.valueOf(b.getName()));
+                return ascending ? rc : -rc;
+            }
+        });
+        
+        return sorted;
+    }
+    
+    private static long getDay(File dayDir) {
+        File monthDir = dayDir.getParentFile();
+        File yearDir = monthDir.getParentFile();
+        
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(Integer.parseInt(yearDir.getName()), Integer.parseInt(monthDir.getName()) - 1, Integer.parseInt(dayDir.getName()));
+        
+        return cal.getTimeInMillis();
+    }
+    
+    private static long getDay(long time) {
+        return new Day(time).getTimeInMillis();
+    }
+}
@@ -0,0 +1,861 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.awt.EventQueue;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import org.jpchart.market.Market;
+import org.jpchart.time.TimeUnit;
+
+/**
+ * Data source wrapper loading bars ahead of the visible range on a background
+ * thread, in the direction the user is panning. The further and faster the
+ * visible range moves, the more bars are loaded ahead of it.
+ * 
+ * Loaded bars form a contiguous window per ticker, holding at most a given
+ * number of bars, for the few most recently used tickers. Calls within that
+ * window are answered without touching the wrapped data source. The number of bars between a time outside the
+ * window, such as the last bar of a chart panned far back, and the window
+ * is loaded once and kept, so getTicksBetween can also be answered for it.
+ * 
+ * The wrapped data source is only used by the loader thread, so it does not
+ * need to be thread safe. Other threads wait for the loader when asking for
+ * bars outside the window, but the event dispatch thread never waits. It is
+ * given null, or an estimate for getTicksBetween, and listeners are told
+ * once the missing bars have been loaded, so the chart can be painted again.
+ *
+ * @author cfelde
+ */
+public class MarketDataPrefetch implements MarketData, VisibleRangeListener, MarketDataObservable {
+    /** Default max number of bars kept per ticker */
+    public final static int DEFAULT_MAX_BARS = 16384;
+    
+    /** Number of seconds of panning, at the current speed, to load ahead */
+    private final static double LOOKAHEAD_SECONDS = 1.5;
+    /** Max number of visible widths to load ahead */
+    private final static int MAX_LOOKAHEAD_WIDTHS = 20;
+    /** Number of bars loaded per loader task */
+    private final static int BLOCK_SIZE = 64;
+    /** Max number of distances kept per ticker */
+    private final static int MAX_DISTANCES = 64;
+    /** Max number of tickers with loaded bars kept */
+    private final static int MAX_WINDOWS = 8;
+    
+    private final MarketData dataSource;
+    private final int maxBars;
+    // Windows by ticker, least recently used first
+    private final Map<String, Window> windows = new LinkedHashMap<String, Window>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+            return size() > MAX_WINDOWS;
+        }
+    };
+    private final CopyOnWriteArrayList<MarketDataListener> listeners = new CopyOnWriteArrayList<MarketDataListener>();
+    private final ExecutorService loader;
+    private volatile Thread loaderThread = null;
+    private volatile String[] availableTickers = null;
+    
+    /**
+     * Contiguous range of loaded bars for one ticker, oldest first, in a ring
+     * with a power of two length. All fields except the pan tracking are
+     * guarded by the window. Only the loader thread changes the bars.
+     */
+    private static class Window {
+        final String ticker;
+        long[] times = new long[16];
+        Market[] bars = new Market[16];
+        int head = 0, size = 0;
+        boolean atStart = false, atEnd = false;
+        
+        // First and last bar of the wrapped data source
+        boolean endsKnown = false;
+        Market sourceFirst = null, sourceLast = null;
+        
+        long wantFirst = Long.MAX_VALUE, wantLast = Long.MIN_VALUE;
+        TimeUnit seed = null;
+        long barSpan = 1;
+        
+        // Rank of a time outside the window less the rank of a bar in it, by time
+        final Map<Long, long[]> distances = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > MAX_DISTANCES;
+            }
+        };
+        final Map<Long, TimeUnit> pendingDistances = new HashMap<Long, TimeUnit>();
+        
+        // True if the event dispatch thread was given a placeholder since the last load
+        boolean missed = false;
+        boolean scheduled = false;
+        
+        // Pan tracking, only used by the thread reporting visible ranges
+        long lastVisibleTime = 0;
+        long lastNanos = 0;
+        double barsPerSecond = 0;
+        
+        Window(String ticker) {
+            this.ticker = ticker;
+        }
+        
+        long getTime(int index) {
+            return times[(head + index) & (times.length - 1)];
+        }
+        
+        Market get(int index) {
+            return bars[(head + index) & (times.length - 1)];
+        }
+        
+        long getFirstTime() {
+            return getTime(0);
+        }
+        
+        long getLastTime() {
+            return getTime(size - 1);
+        }
+        
+        /**
+         * Returns true if the loaded bars tell which bars exist around given time.
+         */
+        boolean covers(long time) {
+            return size > 0 && (time >= getFirstTime() || atStart) && (time <= getLastTime() || atEnd);
+        }
+        
+        /**
+         * Returns the index of the last bar at or before given time, or -1.
+         */
+        int indexOnOrBefore(long time) {
+            int low = 0, high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (getTime(mid) <= time)
+                    low = mid + 1;
+                else
+                    high = mid - 1;
+            }
+            
+            return high;
+        }
+        
+        /**
+         * Returns the number of bars at or before given time, counted from
+         * the start of the window, or Long.MIN_VALUE if not known.
+         */
+        long getRank(long time) {
+            if (covers(time))
+                return indexOnOrBefore(time) + 1;
+            
+            long[] distance = distances.get(time);
+            if (distance != null && covers(distance[0]))
+                return distance[1] + indexOnOrBefore(distance[0]) + 1;
+            
+            return Long.MIN_VALUE;
+        }
+        
+        /**
+         * Returns an estimate of the number of bars between given times,
+         * based on the average time between loaded bars.
+         */
+        int estimateTicks(long begin, long end) {
+            long span = size > 1 ? (getLastTime() - getFirstTime()) / (size - 1) : barSpan;
+            return (int) Math.min((end - begin) / Math.max(span, 1), Integer.MAX_VALUE);
+        }
+        
+        /**
+         * Add a bar before the first bar, dropping the last bar if full.
+         */
+        void addFirst(Market market, int maxBars) {
+            if (size == times.length) {
+                if (size < maxBars) {
+                    grow();
+                }
+                else {
+                    size--;
+                    atEnd = false;
+                }
+            }
+            
+            head = (head - 1) & (times.length - 1);
+            times[head] = time(market);
+            bars[head] = market;
+            size++;
+        }
+        
+        /**
+         * Add a bar after the last bar, dropping the first bar if full.
+         */
+        void addLast(Market market, int maxBars) {
+            if (size == times.length) {
+                if (size < maxBars) {
+                    grow();
+                }
+                else {
+                    bars[head] = null;
+                    head = (head + 1) & (times.length - 1);
+                    size--;
+                    atStart = false;
+                }
+            }
+            
+            int index = (head + size) & (times.length - 1);
+            times[index] = time(market);
+            bars[index] = market;
+            size++;
+        }
+        
+        void clear() {
+            java.util.Arrays.fill(bars, null);
+            head = 0;
+            size = 0;
+            atStart = false;
+            atEnd = false;
+        }
+        
+        private void grow() {
+            long[] newTimes = new long[times.length * 2];
+            Market[] newBars = new Market[times.length * 2];
+            for (int x = 0; x < size; x++) {
+                newTimes[x] = getTime(x);
+                newBars[x] = get(x);
+            }
+            
+            times = newTimes;
+            bars = newBars;
+            head = 0;
+        }
+    }
+    
+    public MarketDataPrefetch(MarketData dataSource) {
+        this(dataSource, DEFAULT_MAX_BARS);
+    }
+    
+    /**
+     * Creates a prefetching wrapper around given data source.
+     * 
+     * @param dataSource Data source to wrap
+     * @param maxBars Max number of bars kept per ticker, rounded up to a power of two
+     */
+    public MarketDataPrefetch(MarketData dataSource, int maxBars) {
+        this.dataSource = dataSource;
+        this.maxBars = Integer.highestOneBit(Math.max(maxBars, 16) * 2 - 1);
+        dataSource.setMarketDataSource(this);
+        
+        this.loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MarketDataPrefetch loader");
+                thread.setDaemon(true);
+                loaderThread = thread;
+                return thread;
+            }
+        });
+    }
+    
+    public void addMarketDataListener(MarketDataListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+    
+    public void removeMarketDataListener(MarketDataListener listener) {
+        listeners.remove(listener);
+    }
+    
+    public void visibleRangeChanged(String ticker, TimeUnit first, TimeUnit last, int visibleBars) {
+        if (first == null || last == null) return;
+        
+        Window window = getWindow(ticker);
+        long firstTime = first.getTimeInMillis();
+        long lastTime = last.getTimeInMillis();
+        visibleBars = Math.max(visibleBars, 1);
+        long barSpan = Math.max((lastTime - firstTime) / visibleBars, 1);
+        
+        // Track pan velocity in bars per second, positive when moving back in time
+        long nanos = System.nanoTime();
+        if (window.lastNanos != 0) {
+            double seconds = (nanos - window.lastNanos) / 1e9;
+            double bars = (double) (window.lastVisibleTime - firstTime) / barSpan;
+            if (seconds > 0 && seconds < 1)
+                window.barsPerSecond = 0.5 * window.barsPerSecond + 0.5 * (bars / seconds);
+            else
+                window.barsPerSecond = 0;
+        }
+        window.lastNanos = nanos;
+        window.lastVisibleTime = firstTime;
+        
+        // Always keep one visible width loaded on each side, and more in the pan direction
+        double ahead = Math.min(Math.abs(window.barsPerSecond) * LOOKAHEAD_SECONDS, MAX_LOOKAHEAD_WIDTHS * visibleBars);
+        long backBars = visibleBars + (window.barsPerSecond > 0 ? (long) ahead : 0);
+        long forwardBars = visibleBars + (window.barsPerSecond < 0 ? (long) ahead : 0);
+        
+        synchronized (window) {
+            window.wantFirst = firstTime - backBars * barSpan;
+            window.wantLast = lastTime + forwardBars * barSpan;
+            window.seed = last;
+            window.barSpan = barSpan;
+        }
+        
+        schedule(window);
+    }
+    
+    private void schedule(final Window window) {
+        synchronized (window) {
+            if (window.scheduled) return;
+            window.scheduled = true;
+        }
+        
+        try {
+            loader.execute(new Runnable() {
+                public void run() {
+                    boolean more = false;
+                    try {
+                        more = fill(window);
+                    }
+                    catch (Exception e) {
+                        System.err.println(e.toString());
+                    }
+                    finally {
+                        synchronized (window) {
+                            window.scheduled = false;
+                        }
+                    }
+                    
+                    // One block per task, so waiting callers get their turn in between
+                    if (more) schedule(window);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            // Closed
+            synchronized (window) {
+                window.scheduled = false;
+            }
+        }
+    }
+    
+    /**
+     * Extend the window of given ticker by one block towards the wanted
+     * range, and load any distances asked for. Runs on the loader thread.
+     * Returns true if there is more to do.
+     */
+    private boolean fill(Window window) throws Exception {
+        String ticker = window.ticker;
+        boolean changed = false;
+        
+        if (!window.endsKnown) {
+            Market first = dataSource.getFirst(ticker);
+            Market last = dataSource.getLast(ticker);
+            synchronized (window) {
+                window.sourceFirst = first;
+                window.sourceLast = last;
+                window.endsKnown = true;
+            }
+            changed = true;
+        }
+        
+        long wantFirst, wantLast;
+        TimeUnit seed;
+        boolean empty;
+        synchronized (window) {
+            wantFirst = window.wantFirst;
+            wantLast = window.wantLast;
+            seed = window.seed;
+            
+            // Start over if the wanted range has moved away from the window
+            if (window.size > 0 && (wantLast < window.getFirstTime() || wantFirst > window.getLastTime()))
+                window.clear();
+            empty = window.size == 0;
+        }
+        
+        if (window.sourceLast != null && wantFirst <= wantLast) {
+            if (empty) {
+                Market market = seed == null ? null : dataSource.getOnOrBefore(ticker, seed);
+                if (market == null) market = window.sourceFirst;
+                
+                synchronized (window) {
+                    window.addLast(market, maxBars);
+                }
+                changed = true;
+            }
+            
+            changed |= extendBack(window, wantFirst, wantLast);
+            changed |= extendForward(window, wantFirst, wantLast);
+        }
+        
+        changed |= loadDistances(window);
+        
+        Market first = null;
+        boolean more;
+        synchronized (window) {
+            if (changed && window.missed && window.size > 0) {
+                window.missed = false;
+                first = window.get(0);
+            }
+            
+            more = !window.pendingDistances.isEmpty() || isBackWanted(window) || isForwardWanted(window);
+        }
+        
+        // Tell listeners outside the lock, from the first loaded bar on
+        if (first != null)
+            fireMarketDataChanged(first);
+        
+        return more;
+    }
+    
+    private boolean isBackWanted(Window window) {
+        return window.size > 0 && !window.atStart && window.getFirstTime() > window.wantFirst
+                && (window.size < maxBars || window.getLastTime() > window.wantLast);
+    }
+    
+    private boolean isForwardWanted(Window window) {
+        return window.size > 0 && !window.atEnd && window.getLastTime() < window.wantLast
+                && (window.size < maxBars || window.getFirstTime() < window.wantFirst);
+    }
+    
+    private boolean extendBack(Window window, long wantFirst, long wantLast) throws Exception {
+        Market market;
+        synchronized (window) {
+            if (!isBackWanted(window)) return false;
+            market = window.get(0);
+        }
+        
+        Market[] block = new Market[BLOCK_SIZE];
+        int count = 0;
+        boolean atStart = false;
+        while (count < BLOCK_SIZE && time(market) > wantFirst) {
+            market = dataSource.getPrevious(market);
+            if (market == null) {
+                atStart = true;
+                break;
+            }
+            block[count++] = market;
+        }
+        
+        synchronized (window) {
+            for (int x = 0; x < count; x++)
+                window.addFirst(block[x], maxBars);
+            if (atStart)
+                window.atStart = true;
+        }
+        
+        return count > 0 || atStart;
+    }
+    
+    private boolean extendForward(Window window, long wantFirst, long wantLast) throws Exception {
+        Market market;
+        synchronized (window) {
+            if (!isForwardWanted(window)) return false;
+            market = window.get(window.size - 1);
+        }
+        
+        Market[] block = new Market[BLOCK_SIZE];
+        int count = 0;
+        boolean atEnd = false;
+        while (count < BLOCK_SIZE && time(market) < wantLast) {
+            market = dataSource.getNext(market);
+            if (market == null) {
+                atEnd = true;
+                break;
+            }
+            block[count++] = market;
+        }
+        
+        synchronized (window) {
+            for (int x = 0; x < count; x++)
+                window.addLast(block[x], maxBars);
+            if (atEnd)
+                window.atEnd = true;
+        }
+        
+        return count > 0 || atEnd;
+    }
+    
+    /**
+     * Load the number of bars between the first bar of the window and the
+     * times asked for by getTicksBetween.
+     */
+    private boolean loadDistances(Window window) throws Exception {
+        Map<Long, TimeUnit> pending;
+        Market reference;
+        synchronized (window) {
+            if (window.pendingDistances.isEmpty() || window.size == 0) return false;
+            
+            pending = new HashMap<Long, TimeUnit>(window.pendingDistances);
+            reference = window.get(0);
+        }
+        
+        for (Map.Entry<Long, TimeUnit> entry : pending.entrySet()) {
+            int ticks = dataSource.getTicksBetween(window.ticker, reference.getMarketTime(), entry.getValue());
+            long distance = entry.getKey() >= time(reference) ? ticks : -ticks;
+            
+            synchronized (window) {
+                window.distances.put(entry.getKey(), new long[] { time(reference), distance });
+                window.pendingDistances.remove(entry.getKey());
+            }
+        }
+        
+        return true;
+    }
+    
+    private void fireMarketDataChanged(Market market) {
+        for (MarketDataListener listener : listeners) {
+            try {
+                listener.marketDataChanged(this, market, false);
+            }
+            catch (Exception e) {
+                System.err.println(e.toString());
+            }
+        }
+    }
+    
+    /**
+     * Returns true if the calling thread may wait for the loader.
+     */
+    private static boolean mayWait() {
+        return !EventQueue.isDispatchThread();
+    }
+    
+    /**
+     * Run given call to the wrapped data source on the loader thread,
+     * waiting for the result.
+     */
+    private <T> T call(Callable<T> task) throws Exception {
+        if (Thread.currentThread() == loaderThread)
+            return task.call();
+        
+        try {
+            return loader.submit(task).get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+    
+    /**
+     * Note that the event dispatch thread was given a placeholder, and load
+     * the missing bars if they are wanted.
+     */
+    private void missed(Window window) {
+        synchronized (window) {
+            window.missed = true;
+        }
+        
+        schedule(window);
+    }
+    
+    /**
+     * Widen the wanted range to include given time, after a miss at the
+     * edge of the window, and load the missing bars.
+     */
+    private void missedEdge(Window window, long time, boolean back) {
+        synchronized (window) {
+            long span = window.size > 1 ? (window.getLastTime() - window.getFirstTime()) / (window.size - 1) : window.barSpan;
+            if (back)
+                window.wantFirst = Math.min(window.wantFirst, time - BLOCK_SIZE * span);
+            else
+                window.wantLast = Math.max(window.wantLast, time + BLOCK_SIZE * span);
+        }
+        
+        missed(window);
+    }
+    
+    private synchronized Window getWindow(String ticker) {
+        ticker = ticker.toUpperCase();
+        
+        Window window = windows.get(ticker);
+        if (window == null) {
+            window = new Window(ticker);
+            windows.put(ticker, window);
+        }
+        
+        return window;
+    }
+    
+    private static long time(Market market) {
+        return market.getMarketTime().getTimeInMillis();
+    }
+    
+    public void setMarketDataSource(MarketData dataSource) {
+        this.dataSource.setMarketDataSource(dataSource);
+    }
+    
+    public void close() throws Exception {
+        loader.shutdownNow();
+        loader.awaitTermination(10, java.util.concurrent.TimeUnit.SECONDS);
+        
+        synchronized (this) {
+            windows.clear();
+        }
+        
+        dataSource.close();
+    }
+    
+    public Market get(final String ticker, final TimeUnit time) throws Exception {
+        Window window = getWindow(ticker);
+        long timeValue = time.getTimeInMillis();
+        
+        synchronized (window) {
+            if (window.covers(timeValue)) {
+                int index = window.indexOnOrBefore(timeValue);
+                return index >= 0 && window.getTime(index) == timeValue ? window.get(index) : null;
+            }
+        }
+        
+        if (mayWait()) {
+            return call(new Callable<Market>() {
+                public Market call() throws Exception {
+                    return dataSource.get(ticker, time);
+                }
+            });
+        }
+        
+        missed(window);
+        return null;
+    }
+    
+    public Market getLast(final String ticker) throws Exception {
+        Window window = getWindow(ticker);
+        
+        synchronized (window) {
+            if (window.atEnd) return window.get(window.size - 1);
+            if (window.endsKnown) return window.sourceLast;
+        }
+        
+        if (mayWait()) {
+            return call(new Callable<Market>() {
+                public Market call() throws Exception {
+                    return dataSource.getLast(ticker);
+                }
+            });
+        }
+        
+        missed(window);
+        return null;
+    }
+    
+    public Market getFirst(final String ticker) throws Exception {
+        Window window = getWindow(ticker);
+        
+        synchronized (window) {
+            if (window.atStart) return window.get(0);
+            if (window.endsKnown) return window.sourceFirst;
+        }
+        
+        if (mayWait()) {
+            return call(new Callable<Market>() {
+                public Market call() throws Exception {
+                    return dataSource.getFirst(ticker);
+                }
+            });
+        }
+        
+        missed(window);
+        return null;
+    }
+    
+    public Market getOnOrAfter(final String ticker, final TimeUnit time) throws Exception {
+        Window window = getWindow(ticker);
+        long timeValue = time.getTimeInMillis();
+        
+        synchronized (window) {
+            if (window.covers(timeValue)) {
+                int index = window.indexOnOrBefore(timeValue - 1) + 1;
+                return index < window.size ? window.get(index) : null;
+            }
+        }
+        
+        if (mayWait()) {
+            return call(new Callable<Market>() {
+                public Market call() throws Exception {
+                    return dataSource.getOnOrAfter(ticker, time);
+                }
+            });
+        }
+        
+        missed(window);
+        return null;
+    }
+    
+    public Market getOnOrBefore(final String ticker, final TimeUnit time) throws Exception {
+        Window window = getWindow(ticker);
+        long timeValue = time.getTimeInMillis();
+        
+        synchronized (window) {
+            if (window.covers(timeValue)) {
+                int index = window.indexOnOrBefore(timeValue);
+                return index >= 0 ? window.get(index) : null;
+            }
+        }
+        
+        if (mayWait()) {
+            return call(new Callable<Market>() {
+                public Market call() throws Exception {
+                    return dataSource.getOnOrBefore(ticker, time);
+                }
+            });
+        }
+        
+        missed(window);
+        return null;
+    }
+    
+    public Market getNext(final Market current) throws Exception {
+        Window window = getWindow(current.getTicker());
+        long time = time(current);
+        boolean edge = false;
+        
+        synchronized (window) {
+            if (window.covers(time)) {
+                int index = window.indexOnOrBefore(time) + 1;
+                if (index < window.size) return window.get(index);
+                if (window.atEnd) return null;
+                edge = true;
+            }
+        }
+        
+        if (mayWait()) {
+            return call(new Callable<Market>() {
+                public Market call() throws Exception {
+                    return dataSource.getNext(current);
+                }
+            });
+        }
+        
+        if (edge)
+            missedEdge(window, time, false);
+        else
+            missed(window);
+        
+        return null;
+    }
+    
+    public Market getPrevious(final Market current) throws Exception {
+        Window window = getWindow(current.getTicker());
+        long time = time(current);
+        boolean edge = false;
+        
+        synchronized (window) {
+            if (window.covers(time)) {
+                int index = window.indexOnOrBefore(time - 1);
+                if (index >= 0) return window.get(index);
+                if (window.atStart) return null;
+                edge = true;
+            }
+        }
+        
+        if (mayWait()) {
+            return call(new Callable<Market>() {
+                public Market call() throws Exception {
+                    return dataSource.getPrevious(current);
+                }
+            });
+        }
+        
+        if (edge)
+            missedEdge(window, time, true);
+        else
+            missed(window);
+        
+        return null;
+    }
+    
+    public String[] getAvailableTickers() throws Exception {
+        String[] tickers = availableTickers;
+        if (tickers != null) return tickers.clone();
+        
+        if (!mayWait()) {
+            // Load in the background, for the next call
+            try {
+                loader.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            availableTickers = dataSource.getAvailableTickers();
+                        }
+                        catch (Exception e) {
+                            System.err.println(e.toString());
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                // Closed
+            }
+            
+            return new String[0];
+        }
+        
+        tickers = call(new Callable<String[]>() {
+            public String[] call() throws Exception {
+                return dataSource.getAvailableTickers();
+            }
+        });
+        
+        availableTickers = tickers;
+        return tickers.clone();
+    }
+    
+    public int getTicksBetween(final String ticker, final TimeUnit begin, final TimeUnit end) throws Exception {
+        Window window = getWindow(ticker);
+        long beginTime = begin.getTimeInMillis();
+        long endTime = end.getTimeInMillis();
+        
+        int estimate;
+        synchronized (window) {
+            long beginRank = window.getRank(beginTime);
+            long endRank = window.getRank(endTime);
+            if (beginRank != Long.MIN_VALUE && endRank != Long.MIN_VALUE)
+                return (int) Math.abs(endRank - beginRank);
+            
+            if (!mayWait()) {
+                // Times the window will not cover need their distance to the window
+                if (window.size > 0) {
+                    boolean full = window.size >= maxBars;
+                    if (beginRank == Long.MIN_VALUE && (full || beginTime < window.wantFirst || beginTime > window.wantLast))
+                        window.pendingDistances.put(beginTime, begin);
+                    if (endRank == Long.MIN_VALUE && (full || endTime < window.wantFirst || endTime > window.wantLast))
+                        window.pendingDistances.put(endTime, end);
+                }
+                
+                estimate = window.estimateTicks(Math.min(beginTime, endTime), Math.max(beginTime, endTime));
+            }
+            else {
+                estimate = -1;
+            }
+        }
+        
+        if (estimate < 0) {
+            return call(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    return dataSource.getTicksBetween(ticker, begin, end);
+                }
+            });
+        }
+        
+        missed(window);
+        return estimate;
+    }
+}
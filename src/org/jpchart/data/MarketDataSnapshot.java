@@ -0,0 +1,283 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jpchart.market.FixedPoint;
+import org.jpchart.market.Market;
+
+/**
+ * In-memory data source safe for any number of concurrent readers and a
+ * writer. Each ticker is published as an immutable BarSnapshot, so readers
+ * never lock and always see a consistent set of bars, while the writer
+ * updates the forming last bar or adds new bars and publishes a new
+ * snapshot after each change.
+ * 
+ * Completed bars are shared between snapshots, so publishing a change
+ * costs O(1) amortized and does not copy the series. Writes are
+ * serialized, and listeners are notified after each change.
+ *
+ * @author cfelde
+ */
+public class MarketDataSnapshot extends AbstractBarMarketData implements MarketDataObservable {
+    private final ConcurrentHashMap<String, BarSnapshot> snapshots = new ConcurrentHashMap<String, BarSnapshot>();
+    private final Map<String, Writer> writers = new HashMap<String, Writer>();
+    private final CopyOnWriteArrayList<MarketDataListener> listeners = new CopyOnWriteArrayList<MarketDataListener>();
+    
+    /**
+     * Writer side state of one ticker. Array elements below completed are
+     * never changed, as earlier snapshots may be reading them. Changes to
+     * those values are made in new arrays.
+     */
+    private static class Writer {
+        final String ticker;
+        final String resolution;
+        long[] time, open, high, low, close, volume;
+        int completed = 0;
+        int priceScale = 0, volumeScale = 0;
+        boolean hasLast = false;
+        long lastTime, lastOpen, lastHigh, lastLow, lastClose, lastVolume;
+        final BarPyramid.Levels[] pyramidLevels = BarPyramid.createLevels();
+        
+        Writer(String ticker, String resolution, int capacity) {
+            this.ticker = ticker;
+            this.resolution = resolution;
+            
+            capacity = Math.max(capacity, 16);
+            time = new long[capacity];
+            open = new long[capacity];
+            high = new long[capacity];
+            low = new long[capacity];
+            close = new long[capacity];
+            volume = new long[capacity];
+        }
+        
+        void update(long time, long open, long high, long low, long close, long volume) {
+            if (hasLast && time < lastTime)
+                throw new IllegalArgumentException("Only the last bar can be updated");
+            
+            if (hasLast && time > lastTime) {
+                if (completed == this.time.length) {
+                    int capacity = completed * 2;
+                    this.time = Arrays.copyOf(this.time, capacity);
+                    this.open = Arrays.copyOf(this.open, capacity);
+                    this.high = Arrays.copyOf(this.high, capacity);
+                    this.low = Arrays.copyOf(this.low, capacity);
+                    this.close = Arrays.copyOf(this.close, capacity);
+                    this.volume = Arrays.copyOf(this.volume, capacity);
+                }
+                
+                // Elements at completed and above are not visible to any snapshot
+                this.time[completed] = lastTime;
+                this.open[completed] = lastOpen;
+                this.high[completed] = lastHigh;
+                this.low[completed] = lastLow;
+                this.close[completed] = lastClose;
+                this.volume[completed] = lastVolume;
+                completed++;
+            }
+            
+            hasLast = true;
+            lastTime = time;
+            lastOpen = open;
+            lastHigh = high;
+            lastLow = low;
+            lastClose = close;
+            lastVolume = volume;
+        }
+        
+        void ensureScales(int priceScale, int volumeScale) {
+            if (priceScale > this.priceScale) {
+                long factor = BarSeries.powerOfTen(priceScale - this.priceScale);
+                open = rescale(open, factor);
+                high = rescale(high, factor);
+                low = rescale(low, factor);
+                close = rescale(close, factor);
+                lastOpen *= factor;
+                lastHigh *= factor;
+                lastLow *= factor;
+                lastClose *= factor;
+                this.priceScale = priceScale;
+            }
+            
+            if (volumeScale > this.volumeScale) {
+                long factor = BarSeries.powerOfTen(volumeScale - this.volumeScale);
+                volume = rescale(volume, factor);
+                lastVolume *= factor;
+                this.volumeScale = volumeScale;
+            }
+        }
+        
+        long[] rescale(long[] values, long factor) {
+            long[] rescaled = new long[values.length];
+            for (int x = 0; x < completed; x++)
+                rescaled[x] = values[x] * factor;
+            return rescaled;
+        }
+        
+        BarSnapshot snapshot() {
+            return new BarSnapshot(ticker, resolution, time, open, high, low, close, volume, completed, priceScale, volumeScale, pyramidLevels,
+                    hasLast, lastTime, lastOpen, lastHigh, lastLow, lastClose, lastVolume);
+        }
+    }
+    
+    public MarketDataSnapshot() {
+    }
+    
+    /**
+     * Creates a snapshot data source starting out with the history of
+     * given tickers from given data source.
+     * 
+     * @param dataSource Data source to load from
+     * @param tickers Tickers to load
+     * @throws Exception on errors
+     */
+    public MarketDataSnapshot(MarketData dataSource, String... tickers) throws Exception {
+        for (String ticker : tickers) {
+            BarSeries series = BarSeries.load(dataSource, ticker);
+            if (series == null) throw new IllegalArgumentException("Unable to fetch " + ticker + " from data source");
+            
+            publish(series);
+        }
+    }
+    
+    public void addMarketDataListener(MarketDataListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+    
+    public void removeMarketDataListener(MarketDataListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Returns the current snapshot of given ticker, or null if not available.
+     * This never blocks.
+     * 
+     * @param ticker
+     * @return Snapshot, or null
+     */
+    public BarSnapshot getSnapshot(String ticker) {
+        return snapshots.get(ticker.toUpperCase());
+    }
+
+    public BarStore getBarStore(String ticker) {
+        return getSnapshot(ticker);
+    }
+    
+    /**
+     * Replace all bars of the ticker of given store with a copy of the bars
+     * in the store. The last bar is treated as forming.
+     * 
+     * @param store Bars to publish
+     * @return The published snapshot
+     */
+    public BarSnapshot publish(BarStore store) {
+        BarSnapshot snapshot;
+        
+        synchronized (writers) {
+            String key = store.getTicker().toUpperCase();
+            Writer writer = new Writer(store.getTicker(), store.getResolution(), store.size());
+            writer.ensureScales(store.getPriceScale(), store.getVolumeScale());
+            
+            int size = store.size();
+            for (int x = 0; x < size; x++)
+                writer.update(store.getTime(x), store.getOpen(x), store.getHigh(x), store.getLow(x), store.getClose(x), store.getVolume(x));
+            
+            writers.put(key, writer);
+            snapshot = writer.snapshot();
+            snapshots.put(key, snapshot);
+        }
+        
+        if (snapshot.size() > 0)
+            fireMarketDataChanged(getMarket(snapshot, snapshot.size()-1), true);
+        
+        return snapshot;
+    }
+    
+    /**
+     * Update the forming last bar, or add a new last bar, of the ticker
+     * given by the market data, and publish a new snapshot. If the time
+     * equals the time of the last bar, the last bar is replaced. If it is
+     * after, a new bar is added.
+     * 
+     * @param market Bar to update or add
+     * @return True if a new bar was added
+     * @throws IllegalArgumentException if the time is before the last bar
+     */
+    public boolean update(Market market) {
+        boolean added;
+        BarSnapshot snapshot;
+        
+        synchronized (writers) {
+            String key = market.getTicker().toUpperCase();
+            Writer writer = writers.get(key);
+            if (writer == null) {
+                writer = new Writer(market.getTicker(), market.getMarketTime().getResolutionDescription(), 0);
+                writers.put(key, writer);
+            }
+            
+            int priceScale = market.getPriceScale();
+            int volumeScale = market.getVolumeScale();
+            writer.ensureScales(priceScale, volumeScale);
+            
+            long time = market.getMarketTime().getTimeInMillis();
+            added = !writer.hasLast || time != writer.lastTime;
+            
+            writer.update(time,
+                    FixedPoint.rescale(market.getOpenScaled(), priceScale, writer.priceScale),
+                    FixedPoint.rescale(market.getHighScaled(), priceScale, writer.priceScale),
+                    FixedPoint.rescale(market.getLowScaled(), priceScale, writer.priceScale),
+                    FixedPoint.rescale(market.getCloseScaled(), priceScale, writer.priceScale),
+                    FixedPoint.rescale(market.getVolumeScaled(), volumeScale, writer.volumeScale));
+            
+            snapshot = writer.snapshot();
+            snapshots.put(key, snapshot);
+        }
+        
+        fireMarketDataChanged(getMarket(snapshot, snapshot.size()-1), added);
+        return added;
+    }
+    
+    private void fireMarketDataChanged(Market market, boolean added) {
+        for (MarketDataListener listener : listeners) {
+            try {
+                listener.marketDataChanged(getMarketDataSource(), market, added);
+            }
+            catch (Exception e) {
+                System.err.println(e.toString());
+            }
+        }
+    }
+
+    public void close() throws Exception {
+        synchronized (writers) {
+            writers.clear();
+            snapshots.clear();
+        }
+    }
+
+    public String[] getAvailableTickers() throws Exception {
+        return snapshots.keySet().toArray(new String[0]);
+    }
+}
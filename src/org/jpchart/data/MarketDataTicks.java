@@ -0,0 +1,350 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jpchart.market.FixedPoint;
+import org.jpchart.market.Market;
+import org.jpchart.market.MarketTick;
+import org.jpchart.time.Tick;
+import org.jpchart.time.TimeUnit;
+
+/**
+ * In-memory data source of raw ticks, keeping each ticker as a TickSeries.
+ * Each tick is given as market data with the Tick resolution, with the
+ * tick price as open, high, low and close and the tick size as volume.
+ * 
+ * Times given as other time units than Tick refer to the first tick at
+ * their start. Cursor views read directly from the tick series, so walking
+ * ticks creates no objects per tick. Ticks may be appended to a series
+ * while it is being read.
+ *
+ * @author cfelde
+ */
+public class MarketDataTicks implements MarketData {
+    private final Map<String, TickSeries> seriesMap = new ConcurrentHashMap<String, TickSeries>();
+    private MarketData dataSource = this;
+    
+    public MarketDataTicks() {
+    }
+    
+    /**
+     * Add given series, replacing any existing series for the same ticker.
+     * 
+     * @param series Series to add
+     */
+    public void addSeries(TickSeries series) {
+        seriesMap.put(series.getTicker().toUpperCase(), series);
+    }
+    
+    /**
+     * Returns the series for given ticker, or null if not available.
+     * 
+     * @param ticker
+     * @return Series, or null
+     */
+    public TickSeries getSeries(String ticker) {
+        return seriesMap.get(ticker.toUpperCase());
+    }
+    
+    public void setMarketDataSource(MarketData dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void close() throws Exception {
+        seriesMap.clear();
+    }
+
+    public String[] getAvailableTickers() throws Exception {
+        return seriesMap.keySet().toArray(new String[0]);
+    }
+    
+    private Market getMarket(TickSeries series, int index) {
+        return new MarketTick(series.getTicker(), series.getTick(index),
+                series.getPrice(index), series.getPrice(index), series.getPrice(index), series.getPrice(index),
+                series.getSize(index), series.getPriceScale(), series.getSizeScale(), dataSource);
+    }
+
+    public Market get(String ticker, TimeUnit time) throws Exception {
+        TickSeries series = getSeries(ticker);
+        if (series == null) return null;
+        
+        int index = series.indexOf(new Tick(time));
+        if (index < 0) return null;
+        
+        return getMarket(series, index);
+    }
+
+    public Market getLast(String ticker) throws Exception {
+        TickSeries series = getSeries(ticker);
+        if (series == null) return null;
+        
+        int size = series.size();
+        return size == 0 ? null : getMarket(series, size - 1);
+    }
+
+    public Market getFirst(String ticker) throws Exception {
+        TickSeries series = getSeries(ticker);
+        if (series == null || series.size() == 0) return null;
+        
+        return getMarket(series, 0);
+    }
+
+    public Market getOnOrAfter(String ticker, TimeUnit time) throws Exception {
+        TickSeries series = getSeries(ticker);
+        if (series == null) return null;
+        
+        int index = series.indexOnOrAfter(new Tick(time));
+        if (index >= series.size()) return null;
+        
+        return getMarket(series, index);
+    }
+
+    public Market getOnOrBefore(String ticker, TimeUnit time) throws Exception {
+        TickSeries series = getSeries(ticker);
+        if (series == null) return null;
+        
+        int index = series.indexOnOrBefore(new Tick(time));
+        if (index < 0) return null;
+        
+        return getMarket(series, index);
+    }
+
+    public Market getNext(Market current) throws Exception {
+        TickSeries series = getSeries(current.getTicker());
+        if (series == null) return null;
+        
+        int index;
+        if (current instanceof TickView && ((TickView) current).series == series)
+            index = ((TickView) current).index + 1;
+        else
+            index = series.indexOnOrBefore(new Tick(current.getMarketTime())) + 1;
+        
+        if (index >= series.size()) return null;
+        
+        return getMarket(series, index);
+    }
+
+    public Market getPrevious(Market current) throws Exception {
+        TickSeries series = getSeries(current.getTicker());
+        if (series == null) return null;
+        
+        int index;
+        if (current instanceof TickView && ((TickView) current).series == series)
+            index = ((TickView) current).index - 1;
+        else
+            index = series.indexOnOrAfter(new Tick(current.getMarketTime())) - 1;
+        
+        if (index < 0) return null;
+        
+        return getMarket(series, index);
+    }
+
+    public int getTicksBetween(String ticker, TimeUnit begin, TimeUnit end) throws Exception {
+        TickSeries series = getSeries(ticker);
+        if (series == null) return 0;
+        
+        Tick beginTick = new Tick(begin);
+        Tick endTick = new Tick(end);
+        if (beginTick.compareTo(endTick) > 0) {
+            Tick tmp = beginTick;
+            beginTick = endTick;
+            endTick = tmp;
+        }
+        
+        return series.indexOnOrBefore(endTick) - series.indexOnOrBefore(beginTick);
+    }
+
+    public MarketCursor cursor(String ticker, TimeUnit from, TimeUnit to, boolean forward) throws Exception {
+        TickSeries series = getSeries(ticker);
+        if (series == null) return new TickCursor(null, 0, -1, forward);
+        
+        Tick fromTick = from == null ? null : new Tick(from);
+        Tick toTick = to == null ? null : new Tick(to);
+        if (fromTick != null && toTick != null && fromTick.compareTo(toTick) > 0) {
+            Tick tmp = fromTick;
+            fromTick = toTick;
+            toTick = tmp;
+        }
+        
+        int first = fromTick == null ? 0 : series.indexOnOrAfter(fromTick);
+        int last = toTick == null ? series.size() - 1 : series.indexOnOrBefore(toTick);
+        
+        return new TickCursor(series, first, last, forward);
+    }
+    
+    /**
+     * Cursor stepping through a tick series by index.
+     */
+    private class TickCursor implements MarketCursor {
+        private final TickSeries series;
+        private final int first, last;
+        private final boolean forward;
+        private int index;
+        private TickView view = null;
+        
+        TickCursor(TickSeries series, int first, int last, boolean forward) {
+            this.series = series;
+            this.first = first;
+            this.last = last;
+            this.forward = forward;
+            this.index = forward ? first - 1 : last + 1;
+        }
+        
+        public boolean next() {
+            if (forward && index < last) {
+                index++;
+                return true;
+            }
+            else if (!forward && index > first) {
+                index--;
+                return true;
+            }
+            
+            return false;
+        }
+        
+        public Market getMarket() {
+            return MarketDataTicks.this.getMarket(series, index);
+        }
+        
+        public Market getView() {
+            if (view == null)
+                view = new TickView(series);
+            
+            view.moveTo(index);
+            return view;
+        }
+        
+        public long getTime() {
+            return series.getTime(index);
+        }
+    }
+    
+    /**
+     * Reusable view of one tick, moved by its cursor. Only getMarketTime
+     * and the BigDecimal accessors create objects.
+     */
+    private final class TickView implements Market {
+        private final TickSeries series;
+        private int index;
+        private Tick marketTime;
+        
+        TickView(TickSeries series) {
+            this.series = series;
+        }
+        
+        void moveTo(int index) {
+            if (this.index != index)
+                marketTime = null;
+            
+            this.index = index;
+        }
+        
+        public String getTicker() {
+            return series.getTicker();
+        }
+
+        public TimeUnit getMarketTime() {
+            if (marketTime == null)
+                marketTime = series.getTick(index);
+            
+            return marketTime;
+        }
+
+        public BigDecimal getOpenPrice() {
+            return BigDecimal.valueOf(series.getPrice(index), series.getPriceScale());
+        }
+
+        public BigDecimal getHighPrice() {
+            return getOpenPrice();
+        }
+
+        public BigDecimal getLowPrice() {
+            return getOpenPrice();
+        }
+
+        public BigDecimal getClosePrice() {
+            return getOpenPrice();
+        }
+
+        public BigDecimal getVolume() {
+            return BigDecimal.valueOf(series.getSize(index), series.getSizeScale());
+        }
+
+        public int getPriceScale() {
+            return series.getPriceScale();
+        }
+
+        public int getVolumeScale() {
+            return series.getSizeScale();
+        }
+
+        public long getOpenScaled() {
+            return series.getPrice(index);
+        }
+
+        public long getHighScaled() {
+            return series.getPrice(index);
+        }
+
+        public long getLowScaled() {
+            return series.getPrice(index);
+        }
+
+        public long getCloseScaled() {
+            return series.getPrice(index);
+        }
+
+        public long getVolumeScaled() {
+            return series.getSize(index);
+        }
+
+        public double getOpenDouble() {
+            return FixedPoint.toDouble(series.getPrice(index), series.getPriceScale());
+        }
+
+        public double getHighDouble() {
+            return getOpenDouble();
+        }
+
+        public double getLowDouble() {
+            return getOpenDouble();
+        }
+
+        public double getCloseDouble() {
+            return getOpenDouble();
+        }
+
+        public double getVolumeDouble() {
+            return FixedPoint.toDouble(series.getSize(index), series.getSizeScale());
+        }
+
+        public Market getPrevious() throws Exception {
+            return dataSource.getPrevious(this);
+        }
+
+        public MarketData getMarketDataSource() {
+            return dataSource;
+        }
+    }
+}
@@ -19,195 +19,138 @@
 
 package org.jpchart.data;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.math.BigDecimal;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.net.URL;
-import java.net.URLConnection;
-import java.util.ArrayList;
-import org.jpchart.market.Market;
-import org.jpchart.market.MarketTick;
-import org.jpchart.time.Day;
-import org.jpchart.time.TimeUnit;
+import java.util.Calendar;
 
 /**
+ * Data source downloading daily bars in the Yahoo CSV layout over HTTP,
+ * parsed by CsvBarReader. Only the last used ticker is kept in memory, so
+ * wrap this in a MarketDataDiskCache to avoid downloading the full history
+ * in each new process. The base URL may point to any server taking the
+ * same query parameters.
  *
  * @author cfelde
  */
-public class MarketDataYahoo implements MarketData {
-    private ArrayList<Market> marketCache = new ArrayList<Market>();
-    private String ticker = null;
-    private MarketData dataSource;
+public class MarketDataYahoo extends AbstractBarMarketData implements IncrementalMarketData {
+    public final static String DEFAULT_BASE_URL = "http://ichart.finance.yahoo.com/table.csv";
+    
+    private final String baseUrl;
+    private BarSeries series = null;
+    private ProgressListener progressListener = null;
+    private long progressInterval = 250;
     
     public MarketDataYahoo() {
-        this.dataSource = this;
+        this(DEFAULT_BASE_URL);
+    }
+    
+    /**
+     * Creates a data source downloading from given base URL, to which the
+     * query string is added.
+     * 
+     * @param baseUrl Base URL, example: http://ichart.finance.yahoo.com/table.csv
+     */
+    public MarketDataYahoo(String baseUrl) {
+        this.baseUrl = baseUrl;
     }
     
-    private void prepareTicker(String ticker) {
-        ticker = ticker.toUpperCase();
-        if (this.ticker != null && this.ticker.equals(ticker)) return;
+    /**
+     * Set the listener given progress reports while downloading, at most
+     * once per given interval.
+     * 
+     * @param listener Progress listener, or null for none
+     * @param intervalMillis Min number of milliseconds between reports
+     */
+    public synchronized void setProgressListener(ProgressListener listener, long intervalMillis) {
+        this.progressListener = listener;
+        this.progressInterval = intervalMillis;
+    }
+    
+    public BarStore getBarStore(String ticker) throws Exception {
+        synchronized (this) {
+            if (series != null && series.getTicker().equals(ticker.toUpperCase())) return series;
+        }
         
-        this.ticker = null;
-        marketCache.clear();
-            
+        // Download without holding the lock, so several tickers can be fetched at once
+        BarSeries fetched = null;
         try {
-            URL yahooUrl = new URL("http://ichart.finance.yahoo.com/table.csv?s=" + ticker + "&a=00&b=1&c=1930&d=11&e=31&f=2050&g=d&ignore=.csv");
-            URLConnection conn = yahooUrl.openConnection();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            
-            String input = reader.readLine();
-            
-            // First line is header, use that as data check
-            if (!input.equals("Date,Open,High,Low,Close,Volume,Adj Close")) throw new IllegalArgumentException("Unknown header: " + input);
-            
-            System.out.print("Loading data from Yahoo..");
-            System.out.flush();
-            while ((input = reader.readLine()) != null) {
-                String[] parts = input.split(",");
-                if (parts.length != 7) throw new IllegalArgumentException("Incorrect data format: " + input);
-                
-                Day day = new Day(parts[0]);
-                BigDecimal open = new BigDecimal(parts[1]);
-                BigDecimal high = new BigDecimal(parts[2]);
-                BigDecimal low = new BigDecimal(parts[3]);
-                BigDecimal close = new BigDecimal(parts[6]);
-                BigDecimal volume = new BigDecimal(parts[5]);
-                
-                Market market = new MarketTick(ticker, day, open, high, low, close, volume, dataSource);
-                
-                // Note: Yahoo orders with newest first
-                marketCache.add(market);
-                System.out.print(".");
-                System.out.flush();
-            }
-            
-            reader.close();
-            
-            this.ticker = ticker;
-            
-            System.out.println("\nData loaded..");
+            fetched = fetchSince(ticker, Long.MIN_VALUE);
+            if (fetched != null && fetched.size() == 0) fetched = null;
         }
         catch (Exception e) {
             System.err.println(e.toString());
-            this.ticker = null;
-            marketCache.clear();
         }
-    }
-    
-    public void close() throws Exception {
-    }
-
-    public Market get(String ticker, TimeUnit time) throws Exception {
-        prepareTicker(ticker);
-        
-        for (Market market : marketCache)
-            if (market.getMarketTime().equals(time)) return market;
         
-        return null;
-    }
-
-    public Market getLast(String ticker) throws Exception {
-        prepareTicker(ticker);
-        
-        if (marketCache.isEmpty()) return null;
-        else return marketCache.get(0);
-    }
-
-    public Market getFirst(String ticker) throws Exception {
-        prepareTicker(ticker);
+        if (fetched != null)
+            fetched.trimToSize();
         
-        if (marketCache.isEmpty()) return null;
-        else return marketCache.get(marketCache.size()-1);
-    }
-
-    public Market getOnOrAfter(String ticker, TimeUnit time) throws Exception {
-        prepareTicker(ticker);
-        
-        for (int x = marketCache.size()-1; x >= 0; x--) {
-            Market current = marketCache.get(x);
-            
-            if (current.getMarketTime().getTime().getTimeInMillis() >= time.getTime().getTimeInMillis())
-                return current;
+        synchronized (this) {
+            series = fetched;
         }
         
-        return null;
+        return fetched;
     }
-
-    public Market getOnOrBefore(String ticker, TimeUnit time) throws Exception {
-        prepareTicker(ticker);
-        
-        for (int x = 0; x < marketCache.size(); x++) {
-            Market current = marketCache.get(x);
-            
-            if (current.getMarketTime().getTime().getTimeInMillis() <= time.getTime().getTimeInMillis())
-                return current;
+    
+    /**
+     * Fetch the bars of given ticker at or after given time. This method
+     * may be called by several threads at once.
+     */
+    public BarSeries fetchSince(String ticker, long fromTime) throws Exception {
+        InputStream in;
+        try {
+            in = new URL(getUrl(ticker.toUpperCase(), fromTime)).openStream();
+        }
+        catch (FileNotFoundException e) {
+            // Unknown ticker
+            return null;
         }
         
-        return null;
-    }
-
-    public Market getNext(Market current) throws Exception {
-        prepareTicker(current.getTicker());
-        
-        for (int x = marketCache.size()-1; x >= 0; x--) {
-            Market market = marketCache.get(x);
-            
-            if (market.equals(current)) {
-                if (x > 0) return marketCache.get(x-1);
-            }
+        CsvBarReader reader = new CsvBarReader();
+        synchronized (this) {
+            reader.setProgressListener(progressListener, progressInterval);
         }
         
-        return null;
+        try {
+            return reader.read(ticker, in);
+        }
+        finally {
+            in.close();
+        }
     }
-
-    public Market getPrevious(Market current) throws Exception {
-        prepareTicker(ticker);
-        
-        for (int x = 0; x < marketCache.size(); x++) {
-            Market market = marketCache.get(x);
-            
-            if (market.equals(current)) {
-                if (x < marketCache.size()-1) return marketCache.get(x+1);
-            }
+    
+    /**
+     * Returns the URL of the daily bars of given ticker from given time.
+     * 
+     * @param ticker Ticker
+     * @param fromTime Earliest bar time in milliseconds, or Long.MIN_VALUE for the full history
+     * @return Download URL
+     */
+    protected String getUrl(String ticker, long fromTime) {
+        // Months are zero based in the query
+        int fromYear = 1930, fromMonth = 0, fromDate = 1;
+        if (fromTime != Long.MIN_VALUE) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTimeInMillis(fromTime);
+            fromYear = cal.get(Calendar.YEAR);
+            fromMonth = cal.get(Calendar.MONTH);
+            fromDate = cal.get(Calendar.DATE);
         }
         
-        return null;
+        return baseUrl + "?s=" + ticker + "&a=" + twoDigits(fromMonth) + "&b=" + fromDate + "&c=" + fromYear
+                + "&d=11&e=31&f=2050&g=d&ignore=.csv";
     }
-
-    public String[] getAvailableTickers() throws Exception {
-        if (ticker != null) return new String[] { ticker };
-        else return new String[0];
+    
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
     }
-
-    public int getTicksBetween(String ticker, TimeUnit begin, TimeUnit end) throws Exception {
-        prepareTicker(ticker);
-        
-        // Swap if needed
-        if (begin.getTime().getTimeInMillis() > end.getTime().getTimeInMillis()) {
-            System.err.println("Warning: Needed to swap begin and end in getTicksBetween!");
-            TimeUnit tmp = begin;
-            begin = end;
-            end = tmp;
-        }
-        
-        for (int x = 0; x < marketCache.size(); x++) {
-            Market endMarket = marketCache.get(x);
-            
-            if (endMarket.getMarketTime().getTime().getTimeInMillis() >= end.getTime().getTimeInMillis()) {
-                for (int y = x; y < marketCache.size(); y++) {
-                    Market beginMarket = marketCache.get(y);
-                    
-                    if (beginMarket.getMarketTime().getTime().getTimeInMillis() <= begin.getTime().getTimeInMillis())
-                        return y-x;
-                }
-            }
-        }
-        
-        return marketCache.size();
+    
+    public synchronized void close() throws Exception {
+        series = null;
     }
 
-    public void setMarketDataSource(MarketData dataSource) {
-        this.dataSource = dataSource;
+    public synchronized String[] getAvailableTickers() throws Exception {
+        if (series != null) return new String[] { series.getTicker() };
+        else return new String[0];
     }
 }
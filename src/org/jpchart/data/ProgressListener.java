@@ -0,0 +1,36 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+/**
+ * Receives progress reports while market data is being loaded.
+ *
+ * @author cfelde
+ */
+public interface ProgressListener {
+    /**
+     * Called now and then while loading data for given ticker.
+     * 
+     * @param ticker Ticker being loaded
+     * @param bytesRead Number of bytes read so far
+     * @param barsRead Number of bars read so far
+     */
+    void progress(String ticker, long bytesRead, int barsRead);
+}
@@ -0,0 +1,231 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import java.util.Arrays;
+
+/**
+ * Range max and min index over a growable series of double values, such as
+ * computed indicator values by bar index. Kept as a segment tree, so setting
+ * a value and finding the max or min of any range both take O(log n).
+ * NaN marks a missing value, which is ignored by range queries.
+ * 
+ * Queries give the index of the max or min value, so callers keeping exact
+ * values elsewhere, such as BigDecimal indicator values, can look them up.
+ * This class is not thread safe.
+ *
+ * @author cfelde
+ */
+public class SeriesRangeIndex {
+    private double[] values;
+    
+    // Index of the max and min value below each node, or -1 if none.
+    // Node 1 is the root, and leaf i is found at capacity + i.
+    private int[] maxTree, minTree;
+    private int capacity;
+    private int size = 0;
+    
+    public SeriesRangeIndex() {
+        this(256);
+    }
+    
+    public SeriesRangeIndex(int capacity) {
+        this.capacity = 1;
+        while (this.capacity < capacity)
+            this.capacity <<= 1;
+        
+        values = new double[this.capacity];
+        Arrays.fill(values, Double.NaN);
+        maxTree = new int[this.capacity * 2];
+        minTree = new int[this.capacity * 2];
+        Arrays.fill(maxTree, -1);
+        Arrays.fill(minTree, -1);
+    }
+    
+    /**
+     * Set the value at given index, growing the series if needed.
+     * Indexes between the old size and given index get missing values.
+     * 
+     * @param index Index
+     * @param value Value, or NaN for a missing value
+     */
+    public void set(int index, double value) {
+        if (index < 0)
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        
+        if (index >= capacity)
+            grow(index + 1);
+        if (index >= size)
+            size = index + 1;
+        
+        values[index] = value;
+        
+        int node = capacity + index;
+        maxTree[node] = minTree[node] = Double.isNaN(value) ? -1 : index;
+        
+        for (node >>= 1; node > 0; node >>= 1) {
+            maxTree[node] = max(maxTree[node*2], maxTree[node*2+1]);
+            minTree[node] = min(minTree[node*2], minTree[node*2+1]);
+        }
+    }
+    
+    /**
+     * Returns the value at given index, or NaN if missing.
+     * 
+     * @param index Index
+     * @return Value
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        
+        return values[index];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Returns the approximate number of bytes of heap used by this index.
+     * 
+     * @return Approximate heap usage in bytes
+     */
+    public long getMemoryUsage() {
+        // One double and two int arrays, each with a 16 byte header
+        return 48 + 8L * capacity + 2 * (16 + 8L * capacity) + 16;
+    }
+    
+    /**
+     * Remove all values.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, size, Double.NaN);
+        Arrays.fill(maxTree, -1);
+        Arrays.fill(minTree, -1);
+        size = 0;
+    }
+    
+    /**
+     * Returns the index of the max value from given index, inclusive, to
+     * given index, exclusive.
+     * 
+     * @param from First index
+     * @param to Last index + 1
+     * @return Index of max value, or -1 if all values in range are missing
+     */
+    public int getMaxIndex(int from, int to) {
+        checkRange(from, to);
+        
+        int result = -1;
+        for (int left = from + capacity, right = to + capacity; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) result = max(result, maxTree[left++]);
+            if ((right & 1) == 1) result = max(result, maxTree[--right]);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Returns the index of the min value from given index, inclusive, to
+     * given index, exclusive.
+     * 
+     * @param from First index
+     * @param to Last index + 1
+     * @return Index of min value, or -1 if all values in range are missing
+     */
+    public int getMinIndex(int from, int to) {
+        checkRange(from, to);
+        
+        int result = -1;
+        for (int left = from + capacity, right = to + capacity; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) result = min(result, minTree[left++]);
+            if ((right & 1) == 1) result = min(result, minTree[--right]);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Returns the max value from given index, inclusive, to given index, exclusive.
+     * 
+     * @param from First index
+     * @param to Last index + 1
+     * @return Max value, or NaN if all values in range are missing
+     */
+    public double getMax(int from, int to) {
+        int index = getMaxIndex(from, to);
+        return index < 0 ? Double.NaN : values[index];
+    }
+    
+    /**
+     * Returns the min value from given index, inclusive, to given index, exclusive.
+     * 
+     * @param from First index
+     * @param to Last index + 1
+     * @return Min value, or NaN if all values in range are missing
+     */
+    public double getMin(int from, int to) {
+        int index = getMinIndex(from, to);
+        return index < 0 ? Double.NaN : values[index];
+    }
+    
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException("Invalid range: " + from + " to " + to);
+    }
+    
+    private int max(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return values[b] > values[a] ? b : a;
+    }
+    
+    private int min(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return values[b] < values[a] ? b : a;
+    }
+    
+    private void grow(int minCapacity) {
+        int newCapacity = capacity;
+        while (newCapacity < minCapacity)
+            newCapacity <<= 1;
+        
+        int oldCapacity = capacity;
+        int[] oldMax = maxTree, oldMin = minTree;
+        
+        values = Arrays.copyOf(values, newCapacity);
+        Arrays.fill(values, oldCapacity, newCapacity, Double.NaN);
+        capacity = newCapacity;
+        maxTree = new int[capacity * 2];
+        minTree = new int[capacity * 2];
+        Arrays.fill(maxTree, -1);
+        Arrays.fill(minTree, -1);
+        
+        // Copy the leaves and build the nodes above them again
+        System.arraycopy(oldMax, oldCapacity, maxTree, capacity, oldCapacity);
+        System.arraycopy(oldMin, oldCapacity, minTree, capacity, oldCapacity);
+        for (int node = capacity - 1; node > 0; node--) {
+            maxTree[node] = max(maxTree[node*2], maxTree[node*2+1]);
+            minTree[node] = min(minTree[node*2], minTree[node*2+1]);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import org.jpchart.time.Tick;
+
+/**
+ * Append-only columnar storage of the ticks of one ticker. Each tick is a
+ * timestamp in microseconds, a scaled price and a scaled size, kept in
+ * primitive arrays of fixed size chunks. Growing never copies existing
+ * ticks, so tens of millions of ticks can be added at a steady 24 bytes
+ * each without creating objects per tick.
+ * 
+ * Timestamps must not decrease, but several ticks may share a timestamp;
+ * these are told apart by their sequence number, see Tick.
+ * 
+ * Ticks may be added by one thread while any number of threads read. A
+ * reader sees the ticks added before its call to size.
+ *
+ * @author cfelde
+ */
+public class TickSeries {
+    private final static int CHUNK_BITS = 16;
+    private final static int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private final static int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    private final String ticker;
+    private final int priceScale;
+    private final int sizeScale;
+    
+    private volatile long[][] micros = new long[4][];
+    private volatile long[][] price = new long[4][];
+    private volatile long[][] size = new long[4][];
+    private volatile int count = 0;
+    
+    /**
+     * Creates an empty tick series.
+     * 
+     * @param ticker Ticker
+     * @param priceScale Number of decimals of the scaled prices
+     * @param sizeScale Number of decimals of the scaled sizes
+     */
+    public TickSeries(String ticker, int priceScale, int sizeScale) {
+        if (priceScale < 0 || priceScale > BarSeries.MAX_SCALE || sizeScale < 0 || sizeScale > BarSeries.MAX_SCALE)
+            throw new IllegalArgumentException("Unsupported scale: " + priceScale + ", " + sizeScale);
+        
+        this.ticker = ticker;
+        this.priceScale = priceScale;
+        this.sizeScale = sizeScale;
+    }
+    
+    /**
+     * Add a new last tick.
+     * 
+     * @param micros Timestamp in microseconds, not before the current last tick
+     * @param price Scaled price
+     * @param size Scaled size
+     */
+    public void add(long micros, long price, long size) {
+        int index = count;
+        if (index > 0 && micros < getMicros(index - 1))
+            throw new IllegalArgumentException("Ticks must be added in time order");
+        
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk == this.micros.length)
+            grow();
+        if (this.micros[chunk] == null) {
+            this.micros[chunk] = new long[CHUNK_SIZE];
+            this.price[chunk] = new long[CHUNK_SIZE];
+            this.size[chunk] = new long[CHUNK_SIZE];
+        }
+        
+        int offset = index & CHUNK_MASK;
+        this.micros[chunk][offset] = micros;
+        this.price[chunk][offset] = price;
+        this.size[chunk][offset] = size;
+        
+        // Publishes the tick to readers
+        count = index + 1;
+    }
+    
+    private void grow() {
+        int length = micros.length * 2;
+        
+        long[][] newMicros = new long[length][];
+        long[][] newPrice = new long[length][];
+        long[][] newSize = new long[length][];
+        System.arraycopy(micros, 0, newMicros, 0, micros.length);
+        System.arraycopy(price, 0, newPrice, 0, price.length);
+        System.arraycopy(size, 0, newSize, 0, size.length);
+        
+        price = newPrice;
+        size = newSize;
+        micros = newMicros;
+    }
+    
+    public String getTicker() {
+        return ticker;
+    }
+    
+    public int getPriceScale() {
+        return priceScale;
+    }
+    
+    public int getSizeScale() {
+        return sizeScale;
+    }
+    
+    /**
+     * Returns the number of ticks.
+     * 
+     * @return Number of ticks
+     */
+    public int size() {
+        return count;
+    }
+    
+    public long getMicros(int index) {
+        return micros[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+    
+    /**
+     * Returns the timestamp of given tick in milliseconds.
+     */
+    public long getTime(int index) {
+        return Math.floorDiv(getMicros(index), 1000L);
+    }
+    
+    public long getPrice(int index) {
+        return price[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+    
+    public long getSize(int index) {
+        return size[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+    
+    /**
+     * Returns the number of ticks before given tick with the same timestamp.
+     * 
+     * @param index Tick index
+     * @return Sequence number
+     */
+    public int getSequence(int index) {
+        long time = getMicros(index);
+        if (index == 0 || getMicros(index - 1) != time)
+            return 0;
+        
+        // Find the first tick of the timestamp, however many share it
+        int low = 0;
+        int high = index - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getMicros(mid) < time) low = mid + 1;
+            else high = mid;
+        }
+        
+        return index - low;
+    }
+    
+    /**
+     * Returns the time unit of given tick.
+     * 
+     * @param index Tick index
+     * @return Tick time unit
+     */
+    public Tick getTick(int index) {
+        return Tick.ofMicros(getMicros(index), getSequence(index));
+    }
+    
+    /**
+     * Returns the index of the first tick at or after given timestamp, or
+     * size if there is none.
+     * 
+     * @param micros Timestamp in microseconds
+     * @return Tick index
+     */
+    public int indexOnOrAfter(long micros) {
+        int low = 0;
+        int high = count;
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getMicros(mid) < micros) low = mid + 1;
+            else high = mid;
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Returns the index of the first tick at or after given tick, or size
+     * if there is none.
+     * 
+     * @param tick Tick time unit
+     * @return Tick index
+     */
+    public int indexOnOrAfter(Tick tick) {
+        int index = indexOnOrAfter(tick.getMicros()) + tick.getSequence();
+        if (index < count && getMicros(index) == tick.getMicros())
+            return index;
+        
+        // Fewer ticks at the timestamp than the sequence number
+        return indexOnOrAfter(tick.getMicros() + 1);
+    }
+    
+    /**
+     * Returns the index of the last tick at or before given tick, or -1 if
+     * there is none.
+     * 
+     * @param tick Tick time unit
+     * @return Tick index
+     */
+    public int indexOnOrBefore(Tick tick) {
+        int index = indexOnOrAfter(tick.getMicros()) + tick.getSequence();
+        if (index < count && getMicros(index) == tick.getMicros())
+            return index;
+        
+        return indexOnOrAfter(tick.getMicros() + 1) - 1;
+    }
+    
+    /**
+     * Returns the index of given tick, or -1 if there is no such tick.
+     * 
+     * @param tick Tick time unit
+     * @return Tick index, or -1
+     */
+    public int indexOf(Tick tick) {
+        int index = indexOnOrAfter(tick.getMicros()) + tick.getSequence();
+        if (index < count && getMicros(index) == tick.getMicros())
+            return index;
+        
+        return -1;
+    }
+    
+    /**
+     * Returns the approximate number of bytes of heap used by this series.
+     * 
+     * @return Approximate heap usage in bytes
+     */
+    public long getMemoryUsage() {
+        long chunks = 0;
+        for (long[] chunk : micros)
+            if (chunk != null) chunks++;
+        
+        return 3 * (chunks * (16 + 8L * CHUNK_SIZE) + 16 + 8L * micros.length) + 64;
+    }
+}
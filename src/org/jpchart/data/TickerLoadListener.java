@@ -0,0 +1,46 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+/**
+ * Listener told about each ticker completed by MarketDataLoader. Methods
+ * are called on the loader threads, possibly by several threads at once.
+ *
+ * @author cfelde
+ */
+public interface TickerLoadListener {
+    /**
+     * Called when a ticker has been loaded.
+     * 
+     * @param dataSource Data source the ticker was loaded from
+     * @param ticker Ticker
+     * @param store Bars loaded
+     */
+    public void tickerLoaded(MarketData dataSource, String ticker, BarStore store);
+    
+    /**
+     * Called when a ticker could not be loaded.
+     * 
+     * @param dataSource Data source the ticker was loaded from
+     * @param ticker Ticker
+     * @param e Cause
+     */
+    public void tickerFailed(MarketData dataSource, String ticker, Exception e);
+}
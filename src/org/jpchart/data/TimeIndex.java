@@ -0,0 +1,109 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+/**
+ * Sorted index of bar times, giving binary search lookups on time and
+ * tick counts by rank subtraction. Times are in milliseconds, as given by
+ * TimeUnit.getTimeInMillis(), and must be strictly increasing
+ * with the index.
+ *
+ * @author cfelde
+ */
+public abstract class TimeIndex {
+    /**
+     * Returns the number of times in this index.
+     * 
+     * @return Number of times
+     */
+    public abstract int size();
+    
+    /**
+     * Returns the time at given index.
+     * 
+     * @param index Index, 0 being the earliest time
+     * @return Time in milliseconds
+     */
+    public abstract long getTime(int index);
+    
+    /**
+     * Returns the index of given time, or -1 if not found.
+     * 
+     * @param time Time in milliseconds
+     * @return Index, or -1
+     */
+    public int indexOf(long time) {
+        int index = indexOnOrAfter(time);
+        if (index < size() && getTime(index) == time) return index;
+        else return -1;
+    }
+    
+    /**
+     * Returns the index of the first time on or after given time,
+     * or size() if no such time.
+     * 
+     * @param time Time in milliseconds
+     * @return Index, or size()
+     */
+    public int indexOnOrAfter(long time) {
+        int low = 0;
+        int high = size();
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTime(mid) < time) low = mid + 1;
+            else high = mid;
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Returns the index of the last time on or before given time,
+     * or -1 if no such time.
+     * 
+     * @param time Time in milliseconds
+     * @return Index, or -1
+     */
+    public int indexOnOrBefore(long time) {
+        int index = indexOnOrAfter(time);
+        if (index < size() && getTime(index) == time) return index;
+        else return index - 1;
+    }
+    
+    /**
+     * Returns the number of ticks between given times, found by subtracting
+     * the rank of the last time on or before begin from the rank of the last
+     * time on or before end. The order of begin and end does not matter.
+     * 
+     * @param begin Time in milliseconds
+     * @param end Time in milliseconds
+     * @return Number of ticks
+     */
+    public int getTicksBetween(long begin, long end) {
+        if (begin > end) {
+            long tmp = begin;
+            begin = end;
+            end = tmp;
+        }
+        
+        return indexOnOrBefore(end) - indexOnOrBefore(begin);
+    }
+}
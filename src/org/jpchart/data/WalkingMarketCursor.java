@@ -0,0 +1,144 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.data;
+
+import org.jpchart.market.Market;
+import org.jpchart.time.TimeUnit;
+
+/**
+ * Cursor for data sources without a faster way of iterating bars, walking
+ * them using getNext or getPrevious.
+ *
+ * @author cfelde
+ */
+public class WalkingMarketCursor implements MarketCursor {
+    private final MarketData dataSource;
+    private final String ticker;
+    private final TimeUnit from, to;
+    private final boolean forward;
+    
+    private boolean started = false;
+    private Market current = null;
+    
+    /**
+     * Creates a cursor over the bars of given ticker from given time to
+     * given time, both inclusive. A null time leaves that end of the range
+     * open.
+     * 
+     * @param dataSource Data source to walk
+     * @param ticker Ticker
+     * @param from Earliest time, or null
+     * @param to Latest time, or null
+     * @param forward True to walk in increasing time order
+     */
+    public WalkingMarketCursor(MarketData dataSource, String ticker, TimeUnit from, TimeUnit to, boolean forward) {
+        if (from != null && to != null && from.getTimeInMillis() > to.getTimeInMillis()) {
+            TimeUnit tmp = from;
+            from = to;
+            to = tmp;
+        }
+        
+        this.dataSource = dataSource;
+        this.ticker = ticker;
+        this.from = from;
+        this.to = to;
+        this.forward = forward;
+    }
+    
+    /**
+     * Returns a cursor going backward from given bar, inclusive. Uses the
+     * cursor of the data source the bar came from if known, otherwise
+     * walks the bars using getPrevious.
+     * 
+     * @param market First bar
+     * @return Backward cursor
+     * @throws Exception on errors
+     */
+    public static MarketCursor backwardFrom(final Market market) throws Exception {
+        MarketData dataSource = market.getMarketDataSource();
+        if (dataSource != null)
+            return dataSource.cursor(market.getTicker(), null, market.getMarketTime(), false);
+        
+        return new MarketCursor() {
+            private boolean started = false;
+            private Market current = market;
+            
+            public boolean next() throws Exception {
+                if (!started)
+                    started = true;
+                else if (current != null)
+                    current = current.getPrevious();
+                
+                return current != null;
+            }
+            
+            public Market getMarket() {
+                return current;
+            }
+            
+            public Market getView() {
+                return current;
+            }
+            
+            public long getTime() {
+                return current.getMarketTime().getTimeInMillis();
+            }
+        };
+    }
+    
+    public boolean next() throws Exception {
+        if (!started) {
+            started = true;
+            if (forward)
+                current = from == null ? dataSource.getFirst(ticker) : dataSource.getOnOrAfter(ticker, from);
+            else
+                current = to == null ? dataSource.getLast(ticker) : dataSource.getOnOrBefore(ticker, to);
+        }
+        else if (current != null) {
+            current = forward ? dataSource.getNext(current) : dataSource.getPrevious(current);
+        }
+        
+        if (current != null) {
+            long time = current.getMarketTime().getTimeInMillis();
+            if (forward && to != null && time > to.getTimeInMillis())
+                current = null;
+            else if (!forward && from != null && time < from.getTimeInMillis())
+                current = null;
+        }
+        
+        return current != null;
+    }
+    
+    public Market getMarket() {
+        return current;
+    }
+    
+    /**
+     * Returns the current bar, which as the bars are already created by
+     * the data source is the same as getMarket.
+     */
+    public Market getView() {
+        return current;
+    }
+    
+    public long getTime() {
+        return current.getMarketTime().getTimeInMillis();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.math.BigDecimal;
+import org.jpchart.market.Market;
+
+/**
+ * Base class for indicators given as IndicatorNode. The node is computed
+ * as a SeriesIndicator through a graph holding it and its inputs, and per
+ * bar values are given through a SeriesIndicatorAdapter.
+ *
+ * @author cfelde
+ */
+public abstract class AbstractIndicatorNode implements IndicatorNode, SeriesIndicator, SimpleIndicator {
+    protected final static IndicatorNode[] NO_INPUTS = new IndicatorNode[0];
+    
+    private final SeriesIndicatorAdapter adapter = new SeriesIndicatorAdapter(this);
+    private volatile IndicatorGraph graph = null;
+    
+    public BigDecimal getValue(Market market) {
+        return adapter.getValue(market);
+    }
+    
+    /**
+     * Returns the number of bars needed before a bar, through all inputs.
+     */
+    public int getLookback() {
+        return getGraph().getLookback(this);
+    }
+    
+    public SeriesComputation start() {
+        IndicatorGraph graph = getGraph();
+        final int slot = graph.getSlot(this);
+        final IndicatorGraph.Computation computation = graph.start();
+        
+        return new SeriesComputation() {
+            public BigDecimal next(Market market) {
+                computation.next(market);
+                return computation.getValue(slot);
+            }
+        };
+    }
+    
+    /**
+     * Returns the graph of this node and its inputs. Nodes do not change,
+     * so the graph is built once and then only read.
+     */
+    private IndicatorGraph getGraph() {
+        IndicatorGraph graph = this.graph;
+        if (graph == null) {
+            graph = new IndicatorGraph();
+            graph.add(this);
+            this.graph = graph;
+        }
+        
+        return graph;
+    }
+}
@@ -17,6 +17,7 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
 
+
 package org.jpchart.indicator;
 
 import java.math.BigDecimal;
@@ -28,37 +29,70 @@ import org.jpchart.market.Market;
  *
  * @author cfelde
  */
-public class CutlerRSI implements SimpleIndicator {
+public class CutlerRSI extends AbstractIndicatorNode {
     private final int periode;
+    private final PriceField close = new PriceField(SimpleMovingAverage.UsePrice.CLOSE);
     
     public CutlerRSI(int periode) {
         this.periode = periode;
     }
-
-    public BigDecimal getValue(Market market) {
-        BigDecimal up = new BigDecimal(0);
-        BigDecimal down = new BigDecimal(0);
-        
-        for (int x = 0; x < periode; x++) {
-            try {
-                Market prevMarket = market.getPrevious();
-                if (prevMarket == null) return null;
+    
+    public IndicatorNode[] getInputs() {
+        return new IndicatorNode[] {close};
+    }
+    
+    public int getInputLookback() {
+        return periode;
+    }
+    
+    /**
+     * Reads the closes as scaled longs from the bars, instead of as
+     * BigDecimal values of the input.
+     */
+    public NodeComputation startNode() {
+        return new NodeComputation() {
+            // The last periode+1 closes, and rolling sums of the price changes between them
+            private final RollingWindow closes = new RollingWindow(periode + 1);
+            private long up = 0;
+            private long down = 0;
+            
+            public BigDecimal next(Market market, BigDecimal[] inputs) {
+                int closeScale = market.getPriceScale();
+                long factor = closes.ensureScale(closeScale);
+                up *= factor;
+                down *= factor;
+                
+                // Remove the change leaving the window
+                if (closes.isFull())
+                    remove(closes.get(periode-1) - closes.get(periode));
                 
-                if (market.getClosePrice().compareTo(prevMarket.getClosePrice()) > 0) {
-                    up = up.add(market.getClosePrice().subtract(prevMarket.getClosePrice()));
-                }
-                else if (market.getClosePrice().compareTo(prevMarket.getClosePrice()) < 0) {
-                    down = down.add(prevMarket.getClosePrice().subtract(market.getClosePrice()));
-                }
+                closes.add(market.getCloseScaled(), closeScale);
+                if (closes.size() > 1)
+                    add(closes.get(0) - closes.get(1));
                 
-                market = prevMarket;
+                if (!closes.isFull()) return null;
+                
+                return getRSI(BigDecimal.valueOf(closes.toWindowScale(up), closes.getWindowScale()),
+                        BigDecimal.valueOf(closes.toWindowScale(down), closes.getWindowScale()));
             }
-            catch (Exception e) {
-                e.printStackTrace();
-                return null;
+            
+            private void add(long change) {
+                if (change > 0)
+                    up += change;
+                else if (change < 0)
+                    down -= change;
             }
-        }
-        
+            
+            private void remove(long change) {
+                if (change > 0)
+                    up -= change;
+                else if (change < 0)
+                    down += change;
+            }
+        };
+    }
+    
+    private BigDecimal getRSI(BigDecimal up, BigDecimal down) {
         // Calculate average
         BigDecimal avgUp = up.divide(BigDecimal.valueOf(periode), RoundingMode.HALF_EVEN);
         BigDecimal avgDown = down.divide(BigDecimal.valueOf(periode), RoundingMode.HALF_EVEN);
@@ -75,4 +109,14 @@ public class CutlerRSI implements SimpleIndicator {
         
         return rsi;
     }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CutlerRSI && periode == ((CutlerRSI) obj).periode;
+    }
+    
+    @Override
+    public int hashCode() {
+        return 41 * periode;
+    }
 }
@@ -0,0 +1,415 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jpchart.data.MarketData;
+import org.jpchart.data.MarketDataListener;
+import org.jpchart.data.MarketDataObservable;
+import org.jpchart.market.Market;
+
+/**
+ * Indicator values shared by all renderers and charts, kept per indicator,
+ * data source, ticker and resolution. Indicators are matched using equals,
+ * so two charts showing the same SMA(14) of the same ticker share the
+ * values. The least recently used values are evicted when the cache grows
+ * beyond its memory budget.
+ * 
+ * The cached indicators of the same bars are computed together, as one
+ * IndicatorGraph, so inputs shared by several indicators are computed once.
+ * 
+ * Data sources notifying of changes are listened to, and the values of a
+ * ticker are computed again from the changed bar on. Values kept by bar
+ * index are also computed again if the bar store of the data source is
+ * replaced by other bars.
+ * 
+ * Data sources are referenced weakly, so the cache does not keep them in
+ * use, and their values are dropped once they are collected. Call release
+ * to drop the values of a data source right away, such as when closing it.
+ *
+ * @author cfelde
+ */
+public class IndicatorCache implements MarketDataListener {
+    public final static long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+    
+    private final static IndicatorCache defaultCache = new IndicatorCache(DEFAULT_MEMORY_BUDGET);
+    
+    private final long memoryBudget;
+    
+    // Access ordered, so the first entry is the least recently used
+    private final Map<Key, IndicatorValues> cache = new LinkedHashMap<Key, IndicatorValues>(16, 0.75f, true);
+    
+    // Values by bar index, computed together for all indicators of the same bars
+    private final Map<SeriesKey, IndicatorSeries> series = new HashMap<SeriesKey, IndicatorSeries>();
+    
+    // Data sources of series keys that have been collected
+    private final ReferenceQueue<MarketData> collected = new ReferenceQueue<MarketData>();
+    
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    
+    /**
+     * Key of the bars of a ticker and resolution of a data source. Data
+     * sources are referenced weakly and compared by identity. A key whose
+     * data source is collected only equals itself.
+     */
+    private static class SeriesKey {
+        final WeakReference<MarketData> dataSource;
+        final String ticker;
+        final String resolution;
+        final int hash;
+        
+        SeriesKey(MarketData dataSource, String ticker, String resolution, ReferenceQueue<MarketData> queue) {
+            this.dataSource = new WeakReference<MarketData>(dataSource, queue);
+            this.ticker = ticker;
+            this.resolution = resolution;
+            
+            int hash = System.identityHashCode(dataSource);
+            hash = 31 * hash + ticker.hashCode();
+            hash = 31 * hash + resolution.hashCode();
+            this.hash = hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof SeriesKey))
+                return false;
+            
+            SeriesKey other = (SeriesKey) obj;
+            MarketData source = dataSource.get();
+            return source != null && source == other.dataSource.get() && ticker.equals(other.ticker) && resolution.equals(other.resolution);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    /**
+     * Key of cached values.
+     */
+    private static class Key {
+        final IndicatorNode node;
+        final SeriesKey series;
+        
+        Key(IndicatorNode node, SeriesKey series) {
+            this.node = node;
+            this.series = series;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            
+            Key other = (Key) obj;
+            return node.equals(other.node) && series.equals(other.series);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * node.hashCode() + series.hashCode();
+        }
+    }
+    
+    /**
+     * Creates a cache using at most roughly the given number of bytes.
+     * Most code should use the shared cache given by getDefault.
+     * 
+     * @param memoryBudget Memory budget in bytes
+     */
+    public IndicatorCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+    
+    /**
+     * Returns the cache shared by all renderers.
+     * 
+     * @return Shared cache
+     */
+    public static IndicatorCache getDefault() {
+        return defaultCache;
+    }
+    
+    /**
+     * Returns the values of given indicator for given ticker and resolution
+     * of given data source, creating them if not cached. Values evicted
+     * after being returned stay usable, but are no longer shared or kept
+     * up to date, so callers should get them again for each use.
+     * 
+     * @param indicator Indicator
+     * @param dataSource Data source
+     * @param ticker Ticker
+     * @param resolution Resolution description
+     * @return Cached indicator values
+     */
+    public synchronized IndicatorValues get(SimpleIndicator indicator, MarketData dataSource, String ticker, String resolution) {
+        expungeCollected();
+        
+        IndicatorNode node = IndicatorGraph.toNode(indicator);
+        SeriesKey seriesKey = new SeriesKey(dataSource, ticker.toUpperCase(), resolution, collected);
+        Key key = new Key(node, seriesKey);
+        
+        IndicatorValues values = cache.get(key);
+        if (values != null) {
+            hitCount++;
+        }
+        else {
+            missCount++;
+            
+            IndicatorSeries indicatorSeries = series.get(seriesKey);
+            if (indicatorSeries == null) {
+                if (!hasSeries(dataSource))
+                    observe(dataSource);
+                
+                indicatorSeries = new IndicatorSeries(dataSource);
+                series.put(seriesKey, indicatorSeries);
+            }
+            
+            values = new IndicatorValues(indicator, indicatorSeries, indicatorSeries.addMember(node));
+            cache.put(key, values);
+        }
+        
+        evict(key);
+        return values;
+    }
+    
+    /**
+     * Called by observed data sources when a bar changes.
+     */
+    public void marketDataChanged(MarketData dataSource, Market market, boolean added) {
+        String ticker = market.getTicker().toUpperCase();
+        long time = market.getMarketTime().getTimeInMillis();
+        
+        // Invalidate outside the lock, as the values may be in use while painting
+        List<IndicatorValues> changed = new ArrayList<IndicatorValues>();
+        synchronized (this) {
+            for (Map.Entry<Key, IndicatorValues> entry : cache.entrySet()) {
+                if (entry.getKey().series.ticker.equals(ticker))
+                    changed.add(entry.getValue());
+            }
+        }
+        
+        for (IndicatorValues values : changed)
+            values.invalidate(time);
+    }
+    
+    /**
+     * Remove all cached values.
+     */
+    public synchronized void clear() {
+        for (SeriesKey seriesKey : series.keySet())
+            unobserve(seriesKey.dataSource.get());
+        
+        cache.clear();
+        series.clear();
+    }
+    
+    /**
+     * Remove the cached values of given data source, and stop listening to
+     * it. Values are also removed once a data source is collected, but
+     * releasing them when closing the data source frees them right away.
+     * 
+     * @param dataSource Data source
+     */
+    public synchronized void release(MarketData dataSource) {
+        Iterator<Map.Entry<Key, IndicatorValues>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey().series.dataSource.get() == dataSource)
+                it.remove();
+        }
+        
+        Iterator<SeriesKey> seriesIt = series.keySet().iterator();
+        while (seriesIt.hasNext()) {
+            if (seriesIt.next().dataSource.get() == dataSource)
+                seriesIt.remove();
+        }
+        
+        unobserve(dataSource);
+    }
+    
+    /**
+     * Returns the number of lookups served from the cache.
+     * 
+     * @return Hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    /**
+     * Returns the number of lookups creating new values.
+     * 
+     * @return Miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    
+    /**
+     * Returns the number of values evicted to stay within the memory budget.
+     * 
+     * @return Eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    /**
+     * Returns the approximate number of bytes used by cached values.
+     * 
+     * @return Memory usage in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        long memoryUsage = 0;
+        for (IndicatorValues values : cache.values())
+            memoryUsage += values.getMemoryUsage();
+        
+        return memoryUsage;
+    }
+    
+    /**
+     * Returns the memory budget in bytes.
+     * 
+     * @return Memory budget in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+    
+    /**
+     * Returns the number of cached indicator values.
+     * 
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+    
+    /**
+     * Evict least recently used values, but never those of the bars of the
+     * most recently used values, as they are computed together. Those are
+     * trimmed to the bars last asked for instead. Must be called holding
+     * the lock. Values grow as they are computed, so their
+     * size is summed again each time.
+     * 
+     * @param recent Key of the most recently used values
+     */
+    private void evict(Key recent) {
+        long memoryUsage = getMemoryUsage();
+        
+        Iterator<Map.Entry<Key, IndicatorValues>> it = cache.entrySet().iterator();
+        while (memoryUsage > memoryBudget && it.hasNext()) {
+            Map.Entry<Key, IndicatorValues> eldest = it.next();
+            SeriesKey seriesKey = eldest.getKey().series;
+            if (seriesKey.equals(recent.series)) continue;
+            
+            it.remove();
+            memoryUsage -= eldest.getValue().getMemoryUsage();
+            evictionCount++;
+            
+            IndicatorSeries indicatorSeries = series.get(seriesKey);
+            if (indicatorSeries == null) {
+                // The data source was collected, but is not queued yet
+                removeCollectedSeries();
+                continue;
+            }
+            
+            indicatorSeries.removeMember(eldest.getKey().node);
+            if (indicatorSeries.isEmpty()) {
+                series.remove(seriesKey);
+                
+                MarketData dataSource = seriesKey.dataSource.get();
+                if (dataSource != null && !hasSeries(dataSource))
+                    unobserve(dataSource);
+            }
+        }
+        
+        // Still too large, so keep only the bars last asked for of the most recent series
+        if (memoryUsage > memoryBudget) {
+            IndicatorSeries indicatorSeries = series.get(recent.series);
+            if (indicatorSeries != null)
+                indicatorSeries.trim();
+        }
+    }
+    
+    /**
+     * Remove the values of data sources that have been collected, must be
+     * called holding the lock.
+     */
+    private void expungeCollected() {
+        if (collected.poll() == null) return;
+        while (collected.poll() != null);
+        
+        Iterator<Map.Entry<Key, IndicatorValues>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey().series.dataSource.get() == null)
+                it.remove();
+        }
+        
+        removeCollectedSeries();
+    }
+    
+    /**
+     * Remove the series of data sources that have been collected, must be
+     * called holding the lock.
+     */
+    private void removeCollectedSeries() {
+        Iterator<SeriesKey> seriesIt = series.keySet().iterator();
+        while (seriesIt.hasNext()) {
+            if (seriesIt.next().dataSource.get() == null)
+                seriesIt.remove();
+        }
+    }
+    
+    /**
+     * Returns true if any series of given data source is cached.
+     */
+    private boolean hasSeries(MarketData dataSource) {
+        for (SeriesKey seriesKey : series.keySet()) {
+            if (seriesKey.dataSource.get() == dataSource)
+                return true;
+        }
+        
+        return false;
+    }
+    
+    private void observe(MarketData dataSource) {
+        if (dataSource instanceof MarketDataObservable)
+            ((MarketDataObservable) dataSource).addMarketDataListener(this);
+    }
+    
+    private void unobserve(MarketData dataSource) {
+        if (dataSource instanceof MarketDataObservable)
+            ((MarketDataObservable) dataSource).removeMarketDataListener(this);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jpchart.market.Market;
+
+/**
+ * Set of indicator nodes computed together in one forward pass over the
+ * bars. Equal nodes are added only once, also when they are inputs of
+ * other nodes, so an SMA shown on its own and used by a delta SMA is
+ * computed once per bar. Nodes are kept with inputs before the nodes
+ * using them, and computed in that order.
+ * 
+ * This class is not thread safe, and nodes must not be added while a
+ * computation is running.
+ *
+ * @author cfelde
+ */
+public class IndicatorGraph {
+    private final Map<IndicatorNode, Integer> slots = new HashMap<IndicatorNode, Integer>();
+    private final List<IndicatorNode> nodes = new ArrayList<IndicatorNode>();
+    private final List<int[]> inputSlots = new ArrayList<int[]>();
+    private final List<Integer> lookbacks = new ArrayList<Integer>();
+    
+    /**
+     * Add given node and its inputs, unless equal nodes are already added.
+     * 
+     * @param node Node to add
+     * @return The node kept by this graph, which may be an equal node added before
+     */
+    public IndicatorNode add(IndicatorNode node) {
+        Integer slot = slots.get(node);
+        if (slot != null) return nodes.get(slot);
+        
+        IndicatorNode[] inputs = node.getInputs();
+        int[] nodeInputSlots = new int[inputs.length];
+        int lookback = 0;
+        for (int x = 0; x < inputs.length; x++) {
+            nodeInputSlots[x] = slots.get(add(inputs[x]));
+            lookback = Math.max(lookback, lookbacks.get(nodeInputSlots[x]));
+        }
+        
+        slots.put(node, nodes.size());
+        nodes.add(node);
+        inputSlots.add(nodeInputSlots);
+        lookbacks.add(lookback + node.getInputLookback());
+        
+        return node;
+    }
+    
+    /**
+     * Returns given indicator as a node, wrapping it if it is not one.
+     * Wrapped series indicators are computed in the pass like other nodes,
+     * while other indicators compute each bar by themselves. Wrapped
+     * indicators are equal if the indicators are equal.
+     * 
+     * @param indicator Indicator
+     * @return Node
+     */
+    public static IndicatorNode toNode(SimpleIndicator indicator) {
+        if (indicator instanceof IndicatorNode)
+            return (IndicatorNode) indicator;
+        
+        return new IndicatorWrapper(indicator);
+    }
+    
+    /**
+     * Returns the position of given node in the computation order, as used
+     * by Computation.getValue, or -1 if the node is not in this graph.
+     * 
+     * @param node Node
+     * @return Slot of node, or -1
+     */
+    public int getSlot(IndicatorNode node) {
+        Integer slot = slots.get(node);
+        return slot == null ? -1 : slot;
+    }
+    
+    /**
+     * Returns the nodes of this graph, inputs before the nodes using them.
+     * 
+     * @return Nodes
+     */
+    public List<IndicatorNode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+    
+    public int size() {
+        return nodes.size();
+    }
+    
+    /**
+     * Returns the number of bars before a bar needed to compute the value
+     * of given node, through all its inputs.
+     * 
+     * @param node Node in this graph
+     * @return Number of bars needed before a bar
+     * @throws IllegalArgumentException if the node is not in this graph
+     */
+    public int getLookback(IndicatorNode node) {
+        int slot = getSlot(node);
+        if (slot < 0)
+            throw new IllegalArgumentException("Node not in graph: " + node);
+        
+        return lookbacks.get(slot);
+    }
+    
+    /**
+     * Returns the number of bars before a bar needed to compute the values
+     * of all nodes.
+     * 
+     * @return Number of bars needed before a bar
+     */
+    public int getLookback() {
+        int lookback = 0;
+        for (int nodeLookback : lookbacks)
+            lookback = Math.max(lookback, nodeLookback);
+        
+        return lookback;
+    }
+    
+    /**
+     * Starts a new computation of all nodes.
+     * 
+     * @return New computation
+     */
+    public Computation start() {
+        return new Computation();
+    }
+    
+    /**
+     * One forward pass over the bars, computing every node once per bar.
+     */
+    public class Computation {
+        private final NodeComputation[] computations = new NodeComputation[nodes.size()];
+        private final int[][] nodeInputSlots = inputSlots.toArray(new int[nodes.size()][]);
+        private final BigDecimal[][] inputs = new BigDecimal[nodes.size()][];
+        private final BigDecimal[] values = new BigDecimal[nodes.size()];
+        
+        private Computation() {
+            for (int x = 0; x < computations.length; x++) {
+                computations[x] = nodes.get(x).startNode();
+                inputs[x] = new BigDecimal[nodeInputSlots[x].length];
+            }
+        }
+        
+        /**
+         * Add the next bar, computing the value of every node at it.
+         * 
+         * @param market Next bar, may be a cursor view
+         */
+        public void next(Market market) {
+            for (int x = 0; x < computations.length; x++) {
+                int[] slots = nodeInputSlots[x];
+                BigDecimal[] nodeInputs = inputs[x];
+                for (int y = 0; y < slots.length; y++)
+                    nodeInputs[y] = values[slots[y]];
+                
+                values[x] = computations[x].next(market, nodeInputs);
+            }
+        }
+        
+        /**
+         * Returns the value at the last bar of the node at given slot.
+         * 
+         * @param slot Slot of node, see getSlot
+         * @return Node value or null
+         */
+        public BigDecimal getValue(int slot) {
+            return values[slot];
+        }
+    }
+    
+    /**
+     * Node computing an indicator that is not a node.
+     */
+    private static class IndicatorWrapper implements IndicatorNode {
+        private final static IndicatorNode[] NO_INPUTS = new IndicatorNode[0];
+        
+        private final SimpleIndicator indicator;
+        
+        IndicatorWrapper(SimpleIndicator indicator) {
+            this.indicator = indicator;
+        }
+        
+        public IndicatorNode[] getInputs() {
+            return NO_INPUTS;
+        }
+        
+        public int getInputLookback() {
+            return indicator instanceof SeriesIndicator ? ((SeriesIndicator) indicator).getLookback() : 0;
+        }
+        
+        public NodeComputation startNode() {
+            if (indicator instanceof SeriesIndicator) {
+                final SeriesComputation computation = ((SeriesIndicator) indicator).start();
+                return new NodeComputation() {
+                    public BigDecimal next(Market market, BigDecimal[] inputs) {
+                        return computation.next(market);
+                    }
+                };
+            }
+            
+            return new NodeComputation() {
+                public BigDecimal next(Market market, BigDecimal[] inputs) {
+                    return indicator.getValue(market);
+                }
+            };
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IndicatorWrapper && indicator.equals(((IndicatorWrapper) obj).indicator);
+        }
+        
+        @Override
+        public int hashCode() {
+            return indicator.hashCode();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import org.jpchart.data.BarStore;
+import org.jpchart.market.FixedPoint;
+
+/**
+ * Indicator kernels working on primitive price columns, for screening and
+ * charting many bars where BigDecimal arithmetic is too slow.
+ * 
+ * Each kernel reads the first n values of its input arrays, oldest first,
+ * and writes n values to its output arrays. Bars without a value, such as
+ * those before the first full periode, are set to NaN. Output arrays may
+ * not be the same as input arrays.
+ * 
+ * The kernels use the common textbook definitions, so values are close to,
+ * but not always the same as, those of the BigDecimal indicators, which
+ * keep the rules of previous versions. SimpleMovingAverage for example
+ * requires a bar before the periode, and CutlerRSI is not smoothed.
+ * 
+ * Element wise work is kept in separate simple loops over arrays, which
+ * the JIT compiler can unroll and vectorize. Running sums and smoothing
+ * depend on the previous bar, and are done in their own sequential loops.
+ *
+ * @author cfelde
+ */
+public final class IndicatorKernels {
+    private IndicatorKernels() {
+    }
+    
+    /**
+     * Returns the given price of the bars of given store as doubles.
+     * 
+     * @param store Bars
+     * @param price Price to use
+     * @param out Array to use, or null. A new array is used if too short
+     * @return Prices, by bar index
+     */
+    public static double[] getPrices(BarStore store, SimpleMovingAverage.UsePrice price, double[] out) {
+        int n = store.size();
+        if (out == null || out.length < n)
+            out = new double[n];
+        
+        double divisor = FixedPoint.powerOfTen(store.getPriceScale());
+        for (int x = 0; x < n; x++) {
+            long value;
+            if (price == SimpleMovingAverage.UsePrice.OPEN)
+                value = store.getOpen(x);
+            else if (price == SimpleMovingAverage.UsePrice.HIGH)
+                value = store.getHigh(x);
+            else if (price == SimpleMovingAverage.UsePrice.LOW)
+                value = store.getLow(x);
+            else
+                value = store.getClose(x);
+            
+            out[x] = value / divisor;
+        }
+        
+        return out;
+    }
+    
+    /**
+     * Converts scaled longs to doubles.
+     * 
+     * @param in Scaled values
+     * @param scale Number of decimals
+     * @param n Number of values
+     * @param out Values as doubles
+     */
+    public static void toDouble(long[] in, int scale, int n, double[] out) {
+        double divisor = FixedPoint.powerOfTen(scale);
+        for (int x = 0; x < n; x++)
+            out[x] = in[x] / divisor;
+    }
+    
+    /**
+     * Simple moving average of scaled prices. The running sum is kept as
+     * a long, so it is exact however long the input is.
+     * 
+     * @param in Scaled prices
+     * @param scale Number of decimals
+     * @param n Number of values
+     * @param periode Number of bars averaged
+     * @param out Averages, NaN for the first periode-1 bars
+     */
+    public static void sma(long[] in, int scale, int n, int periode, double[] out) {
+        checkPeriode(periode);
+        
+        double divisor = (double) periode * FixedPoint.powerOfTen(scale);
+        long sum = 0;
+        for (int x = 0; x < n; x++) {
+            sum += in[x];
+            if (x >= periode)
+                sum -= in[x-periode];
+            
+            out[x] = x < periode-1 ? Double.NaN : sum / divisor;
+        }
+    }
+    
+    /**
+     * Simple moving average.
+     * 
+     * @param in Prices
+     * @param n Number of values
+     * @param periode Number of bars averaged
+     * @param out Averages, NaN for the first periode-1 bars
+     */
+    public static void sma(double[] in, int n, int periode, double[] out) {
+        checkPeriode(periode);
+        
+        double sum = 0;
+        for (int x = 0; x < n; x++) {
+            sum += in[x];
+            if (x >= periode)
+                sum -= in[x-periode];
+            
+            out[x] = x < periode-1 ? Double.NaN : sum / periode;
+        }
+    }
+    
+    /**
+     * Exponential moving average, with weight 2/(periode+1), starting from
+     * the simple moving average of the first periode bars. NaN input values
+     * before the first number are skipped, so the average of another
+     * indicator can be taken.
+     * 
+     * @param in Prices
+     * @param n Number of values
+     * @param periode Periode
+     * @param out Averages, NaN until periode bars with a value are seen
+     */
+    public static void ema(double[] in, int n, int periode, double[] out) {
+        checkPeriode(periode);
+        
+        int first = 0;
+        while (first < n && Double.isNaN(in[first]))
+            out[first++] = Double.NaN;
+        
+        double alpha = 2.0 / (periode + 1);
+        double value = 0;
+        for (int x = first; x < n; x++) {
+            int count = x - first + 1;
+            if (count < periode) {
+                value += in[x];
+                out[x] = Double.NaN;
+            }
+            else if (count == periode) {
+                value = (value + in[x]) / periode;
+                out[x] = value;
+            }
+            else {
+                value += alpha * (in[x] - value);
+                out[x] = value;
+            }
+        }
+    }
+    
+    /**
+     * Relative strength index, using the smoothing of Welles Wilder. The
+     * first average gain and loss are the simple averages of the first
+     * periode price changes.
+     * 
+     * @param in Prices
+     * @param n Number of values
+     * @param periode Periode
+     * @param out RSI from 0 to 100, NaN for the first periode bars
+     */
+    public static void rsi(double[] in, int n, int periode, double[] out) {
+        checkPeriode(periode);
+        if (n == 0) return;
+        
+        out[0] = Double.NaN;
+        double avgUp = 0, avgDown = 0;
+        for (int x = 1; x < n; x++) {
+            double change = in[x] - in[x-1];
+            double up = change > 0 ? change : 0;
+            double down = change < 0 ? -change : 0;
+            
+            if (x <= periode) {
+                avgUp += up;
+                avgDown += down;
+                if (x < periode) {
+                    out[x] = Double.NaN;
+                    continue;
+                }
+                
+                avgUp /= periode;
+                avgDown /= periode;
+            }
+            else {
+                avgUp = (avgUp * (periode-1) + up) / periode;
+                avgDown = (avgDown * (periode-1) + down) / periode;
+            }
+            
+            out[x] = avgDown == 0 ? 100 : 100 - 100 / (1 + avgUp / avgDown);
+        }
+    }
+    
+    /**
+     * Moving average convergence divergence, the difference between a
+     * fast and a slow exponential moving average, with a signal line
+     * that is the exponential moving average of that difference.
+     * 
+     * @param in Prices
+     * @param n Number of values
+     * @param fast Periode of fast average, typically 12
+     * @param slow Periode of slow average, typically 26
+     * @param signal Periode of signal line, typically 9
+     * @param macdOut MACD line
+     * @param signalOut Signal line
+     * @param histogramOut MACD line minus signal line
+     */
+    public static void macd(double[] in, int n, int fast, int slow, int signal, double[] macdOut, double[] signalOut, double[] histogramOut) {
+        // The histogram array holds the slow average until the end
+        ema(in, n, fast, macdOut);
+        ema(in, n, slow, histogramOut);
+        
+        for (int x = 0; x < n; x++)
+            macdOut[x] -= histogramOut[x];
+        
+        ema(macdOut, n, signal, signalOut);
+        
+        for (int x = 0; x < n; x++)
+            histogramOut[x] = macdOut[x] - signalOut[x];
+    }
+    
+    /**
+     * Bollinger bands, the simple moving average plus and minus a number
+     * of standard deviations of the prices it averages. The population
+     * standard deviation is used.
+     * 
+     * @param in Prices
+     * @param n Number of values
+     * @param periode Periode, typically 20
+     * @param deviations Width of bands in standard deviations, typically 2
+     * @param middleOut Simple moving average
+     * @param upperOut Upper band
+     * @param lowerOut Lower band
+     */
+    public static void bollinger(double[] in, int n, int periode, double deviations, double[] middleOut, double[] upperOut, double[] lowerOut) {
+        checkPeriode(periode);
+        
+        // Rolling mean and sum of squared differences from it, which unlike
+        // a sum of squares does not lose precision for large prices.
+        // The upper band array holds the standard deviation until the end.
+        double mean = 0, m2 = 0;
+        for (int x = 0; x < n; x++) {
+            double value = in[x];
+            if (x < periode) {
+                double delta = value - mean;
+                mean += delta / (x + 1);
+                m2 += delta * (value - mean);
+            }
+            else {
+                double old = in[x-periode];
+                double oldMean = mean;
+                mean += (value - old) / periode;
+                m2 += (value - old) * (value - mean + old - oldMean);
+            }
+            
+            if (x < periode-1) {
+                middleOut[x] = Double.NaN;
+                upperOut[x] = Double.NaN;
+            }
+            else {
+                middleOut[x] = mean;
+                upperOut[x] = m2 > 0 ? Math.sqrt(m2 / periode) : 0;
+            }
+        }
+        
+        for (int x = 0; x < n; x++) {
+            double width = deviations * upperOut[x];
+            lowerOut[x] = middleOut[x] - width;
+            upperOut[x] = middleOut[x] + width;
+        }
+    }
+    
+    /**
+     * Average true range, using the smoothing of Welles Wilder. The true
+     * range of the first bar is its high minus low.
+     * 
+     * @param high High prices
+     * @param low Low prices
+     * @param close Close prices
+     * @param n Number of values
+     * @param periode Periode, typically 14
+     * @param out Average true range, NaN for the first periode-1 bars
+     */
+    public static void atr(double[] high, double[] low, double[] close, int n, int periode, double[] out) {
+        checkPeriode(periode);
+        if (n == 0) return;
+        
+        // True range first, element wise
+        out[0] = high[0] - low[0];
+        for (int x = 1; x < n; x++) {
+            double previous = close[x-1];
+            out[x] = (high[x] > previous ? high[x] : previous) - (low[x] < previous ? low[x] : previous);
+        }
+        
+        // Then smoothed in place
+        double value = 0;
+        for (int x = 0; x < n; x++) {
+            double trueRange = out[x];
+            if (x < periode) {
+                value += trueRange;
+                if (x < periode-1) {
+                    out[x] = Double.NaN;
+                    continue;
+                }
+                
+                value /= periode;
+            }
+            else {
+                value = (value * (periode-1) + trueRange) / periode;
+            }
+            
+            out[x] = value;
+        }
+    }
+    
+    /**
+     * Stochastic oscillator. %K is where the close lies within the high
+     * and low of the last kPeriode bars, and %D is the simple moving
+     * average of %K. If the high and low are equal, %K is 50.
+     * 
+     * The highest high and lowest low are found with monotonic queues,
+     * so the cost does not depend on kPeriode.
+     * 
+     * @param high High prices
+     * @param low Low prices
+     * @param close Close prices
+     * @param n Number of values
+     * @param kPeriode Periode of %K, typically 14
+     * @param dPeriode Periode of %D, typically 3
+     * @param kOut %K from 0 to 100, NaN for the first kPeriode-1 bars
+     * @param dOut %D, NaN for the first kPeriode+dPeriode-2 bars
+     */
+    public static void stochastic(double[] high, double[] low, double[] close, int n, int kPeriode, int dPeriode, double[] kOut, double[] dOut) {
+        checkPeriode(kPeriode);
+        checkPeriode(dPeriode);
+        
+        // Indexes of bars that may still become the highest or lowest, in
+        // rings with a power of two size so wrapping is a mask
+        int capacity = Integer.highestOneBit(Math.max(1, Math.min(n, kPeriode)) * 2 - 1);
+        int mask = capacity - 1;
+        int[] highs = new int[capacity];
+        int[] lows = new int[capacity];
+        int highStart = 0, highEnd = 0, lowStart = 0, lowEnd = 0;
+        
+        for (int x = 0; x < n; x++) {
+            if (highEnd > highStart && highs[highStart & mask] <= x - kPeriode)
+                highStart++;
+            while (highEnd > highStart && high[highs[(highEnd - 1) & mask]] <= high[x])
+                highEnd--;
+            highs[highEnd++ & mask] = x;
+            
+            if (lowEnd > lowStart && lows[lowStart & mask] <= x - kPeriode)
+                lowStart++;
+            while (lowEnd > lowStart && low[lows[(lowEnd - 1) & mask]] >= low[x])
+                lowEnd--;
+            lows[lowEnd++ & mask] = x;
+            
+            if (x < kPeriode-1) {
+                kOut[x] = Double.NaN;
+                continue;
+            }
+            
+            double highest = high[highs[highStart & mask]];
+            double lowest = low[lows[lowStart & mask]];
+            kOut[x] = highest == lowest ? 50 : 100 * (close[x] - lowest) / (highest - lowest);
+        }
+        
+        // %D, skipping the bars without %K
+        int first = Math.min(n, kPeriode-1);
+        for (int x = 0; x < first; x++)
+            dOut[x] = Double.NaN;
+        
+        double sum = 0;
+        for (int x = first; x < n; x++) {
+            sum += kOut[x];
+            if (x - first >= dPeriode)
+                sum -= kOut[x-dPeriode];
+            
+            dOut[x] = x - first < dPeriode-1 ? Double.NaN : sum / dPeriode;
+        }
+    }
+    
+    private static void checkPeriode(int periode) {
+        if (periode < 1)
+            throw new IllegalArgumentException("Periode must be at least 1: " + periode);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+/**
+ * Indicator computed from the values of other nodes, its inputs, such as
+ * price fields or other indicators. Nodes are combined in an
+ * IndicatorGraph, where equal nodes are computed only once per bar, so
+ * nodes must implement equals and hashCode, including their inputs.
+ * 
+ * The value of a node at a bar must only depend on the bar and the input
+ * values of the bar and the getInputLookback bars before it.
+ *
+ * @author cfelde
+ */
+public interface IndicatorNode {
+    /**
+     * Returns the inputs of this node, which are computed before it.
+     * 
+     * @return Input nodes, empty if none
+     */
+    IndicatorNode[] getInputs();
+    
+    /**
+     * Returns the number of bars before a bar at which the input values
+     * are needed to compute its value.
+     * 
+     * @return Number of bars needed before a bar
+     */
+    int getInputLookback();
+    
+    /**
+     * Starts a new computation of this node. Bars are given to it oldest
+     * first, without gaps, together with the input values at each bar.
+     * 
+     * @return New computation
+     */
+    NodeComputation startNode();
+}
@@ -0,0 +1,386 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.MarketCursor;
+import org.jpchart.data.MarketData;
+import org.jpchart.data.SeriesRangeIndex;
+import org.jpchart.time.TimeUtils;
+
+/**
+ * Values by bar index of all cached indicators of one ticker and resolution
+ * of a data source. The indicators are nodes of one graph, so nodes shared
+ * by several indicators, such as an SMA shown on its own and used by a
+ * delta SMA, are computed once, in one pass for all indicators.
+ * 
+ * Values are kept for the member indicators only, not for their inputs.
+ * 
+ * Neither the data source nor its bar store is kept strongly, so cached
+ * values do not keep them from being collected. The bars computed are
+ * recognised by the times of their first and last bar, so a new snapshot
+ * of the same bars keeps the values already computed.
+ *
+ * @author cfelde
+ */
+class IndicatorSeries {
+    private final WeakReference<MarketData> dataSource;
+    
+    // Member indicators, with the number of cache entries using them
+    private final Map<IndicatorNode, Integer> members = new HashMap<IndicatorNode, Integer>();
+    private final Map<IndicatorNode, Column> columns = new HashMap<IndicatorNode, Column>();
+    private IndicatorGraph graph = new IndicatorGraph();
+    
+    // Bars when last computed, and the earliest bar changed since
+    private int storeSize = 0;
+    private long firstTime, lastTime;
+    private long invalidFrom = Long.MAX_VALUE;
+    private final BitSet computed = new BitSet();
+    
+    // Bars asked for by the last update
+    private int usedFirst = 0, usedLast = -1;
+    
+    /**
+     * Values of one member indicator. Values are kept in chunks of bars,
+     * allocated for the bars computed only, so a few hundred bars viewed
+     * in a long series do not cost the memory of the whole series. Each
+     * chunk has its own range index, and the max and min of each chunk are
+     * indexed again for ranges over several chunks.
+     */
+    static class Column {
+        private final static int CHUNK_BITS = 10;
+        private final static int CHUNK_SIZE = 1 << CHUNK_BITS;
+        private final static int CHUNK_MASK = CHUNK_SIZE - 1;
+        // A chunk of values with its range index
+        private final static long CHUNK_MEMORY_USAGE = 16 + 8L * CHUNK_SIZE + new SeriesRangeIndex(CHUNK_SIZE).getMemoryUsage();
+        
+        private BigDecimal[][] chunks = new BigDecimal[0][];
+        private SeriesRangeIndex[] chunkIndexes = new SeriesRangeIndex[0];
+        private SeriesRangeIndex chunkMax = new SeriesRangeIndex(16);
+        private SeriesRangeIndex chunkMin = new SeriesRangeIndex(16);
+        private int chunkCount = 0;
+        private int size = 0;
+        
+        void set(int index, BigDecimal value) {
+            int chunk = index >>> CHUNK_BITS;
+            if (chunk >= chunks.length) {
+                int length = Math.max(chunk + 1, chunks.length * 2);
+                chunks = Arrays.copyOf(chunks, length);
+                chunkIndexes = Arrays.copyOf(chunkIndexes, length);
+            }
+            
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new BigDecimal[CHUNK_SIZE];
+                chunkIndexes[chunk] = new SeriesRangeIndex(CHUNK_SIZE);
+                chunkCount++;
+            }
+            
+            SeriesRangeIndex rangeIndex = chunkIndexes[chunk];
+            chunks[chunk][index & CHUNK_MASK] = value;
+            rangeIndex.set(index & CHUNK_MASK, value == null ? Double.NaN : value.doubleValue());
+            chunkMax.set(chunk, rangeIndex.getMax(0, rangeIndex.size()));
+            chunkMin.set(chunk, rangeIndex.getMin(0, rangeIndex.size()));
+            size = Math.max(size, index + 1);
+        }
+        
+        BigDecimal get(int index) {
+            int chunk = index >>> CHUNK_BITS;
+            if (chunk >= chunks.length || chunks[chunk] == null)
+                return null;
+            
+            return chunks[chunk][index & CHUNK_MASK];
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        /**
+         * Returns the index of the max, or min, value from given index,
+         * inclusive, to given index, exclusive, or -1 if none.
+         */
+        int getIndex(int from, int to, boolean max) {
+            if (from >= to) return -1;
+            
+            int firstChunk = from >>> CHUNK_BITS;
+            int lastChunk = (to - 1) >>> CHUNK_BITS;
+            if (firstChunk == lastChunk)
+                return getIndex(firstChunk, from & CHUNK_MASK, ((to - 1) & CHUNK_MASK) + 1, max);
+            
+            int result = getIndex(firstChunk, from & CHUNK_MASK, CHUNK_SIZE, max);
+            if (firstChunk + 1 < lastChunk) {
+                SeriesRangeIndex chunkIndex = max ? chunkMax : chunkMin;
+                int toChunk = Math.min(lastChunk, chunkIndex.size());
+                int chunk = -1;
+                if (firstChunk + 1 < toChunk)
+                    chunk = max ? chunkIndex.getMaxIndex(firstChunk + 1, toChunk) : chunkIndex.getMinIndex(firstChunk + 1, toChunk);
+                if (chunk >= 0)
+                    result = better(result, getIndex(chunk, 0, CHUNK_SIZE, max), max);
+            }
+            
+            return better(result, getIndex(lastChunk, 0, ((to - 1) & CHUNK_MASK) + 1, max), max);
+        }
+        
+        private int getIndex(int chunk, int from, int to, boolean max) {
+            if (chunk >= chunks.length || chunks[chunk] == null)
+                return -1;
+            
+            SeriesRangeIndex rangeIndex = chunkIndexes[chunk];
+            to = Math.min(to, rangeIndex.size());
+            if (from >= to) return -1;
+            
+            int index = max ? rangeIndex.getMaxIndex(from, to) : rangeIndex.getMinIndex(from, to);
+            return index < 0 ? -1 : (chunk << CHUNK_BITS) + index;
+        }
+        
+        private int better(int a, int b, boolean max) {
+            if (a < 0) return b;
+            if (b < 0) return a;
+            
+            double valueA = chunkIndexes[a >>> CHUNK_BITS].get(a & CHUNK_MASK);
+            double valueB = chunkIndexes[b >>> CHUNK_BITS].get(b & CHUNK_MASK);
+            return (max ? valueB > valueA : valueB < valueA) ? b : a;
+        }
+        
+        /**
+         * Remove the values outside the given chunks, freeing their chunks.
+         */
+        void retain(int firstChunk, int lastChunk) {
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                if (chunks[chunk] != null && (chunk < firstChunk || chunk > lastChunk)) {
+                    chunks[chunk] = null;
+                    chunkIndexes[chunk] = null;
+                    chunkMax.set(chunk, Double.NaN);
+                    chunkMin.set(chunk, Double.NaN);
+                    chunkCount--;
+                }
+            }
+        }
+        
+        /**
+         * Remove all values, freeing their chunks.
+         */
+        void clear() {
+            chunks = new BigDecimal[0][];
+            chunkIndexes = new SeriesRangeIndex[0];
+            chunkMax = new SeriesRangeIndex(16);
+            chunkMin = new SeriesRangeIndex(16);
+            chunkCount = 0;
+            size = 0;
+        }
+        
+        /**
+         * Returns the approximate number of bytes of heap used by the
+         * chunks, not counting the values in them.
+         */
+        long getMemoryUsage() {
+            return 16 + 16L * chunks.length + chunkCount * CHUNK_MEMORY_USAGE + chunkMax.getMemoryUsage() + chunkMin.getMemoryUsage();
+        }
+    }
+    
+    IndicatorSeries(MarketData dataSource) {
+        this.dataSource = new WeakReference<MarketData>(dataSource);
+    }
+    
+    /**
+     * Add an indicator to the graph, or count another use of it.
+     * 
+     * @param node Indicator node
+     * @return Column keeping the values of the indicator
+     */
+    synchronized Column addMember(IndicatorNode node) {
+        Integer count = members.get(node);
+        members.put(node, count == null ? 1 : count + 1);
+        
+        if (count == null) {
+            columns.put(node, new Column());
+            
+            // The new indicator has no values yet, so all are computed again
+            graph.add(node);
+            computed.clear();
+        }
+        
+        return columns.get(node);
+    }
+    
+    /**
+     * Count one use less of an indicator, removing it when no longer used.
+     * 
+     * @param node Indicator node
+     */
+    synchronized void removeMember(IndicatorNode node) {
+        Integer count = members.get(node);
+        if (count == null) return;
+        
+        if (count > 1) {
+            members.put(node, count - 1);
+            return;
+        }
+        
+        members.remove(node);
+        columns.remove(node);
+        
+        // Nodes only used by the removed indicator are no longer computed
+        graph = new IndicatorGraph();
+        for (IndicatorNode member : members.keySet())
+            graph.add(member);
+    }
+    
+    synchronized boolean isEmpty() {
+        return members.isEmpty();
+    }
+    
+    /**
+     * Compute the values of given bars of given store not already known,
+     * for all member indicators in one pass. The last bar of the store is
+     * always computed again, as it may still be forming. If the store does
+     * not hold the bars used before, all values are computed again.
+     * 
+     * @param store Bar store of the data source
+     * @param first Index of first bar
+     * @param last Index of last bar
+     * @throws Exception on errors
+     */
+    synchronized void update(BarStore store, int first, int last) throws Exception {
+        MarketData source = dataSource.get();
+        if (source == null) return;
+        
+        int size = store.size();
+        if (storeSize == 0 || size < storeSize || store.getTime(0) != firstTime || store.getTime(storeSize-1) != lastTime) {
+            // Other bars than those computed, such as after the store was replaced
+            computed.clear();
+            for (Column column : columns.values())
+                column.clear();
+        }
+        else if (size != storeSize) {
+            // The bar that was last when computed may have changed since
+            computed.clear(storeSize - 1, computed.length());
+        }
+        
+        if (invalidFrom != Long.MAX_VALUE) {
+            int index = store.getTimeIndex().indexOnOrAfter(invalidFrom);
+            if (index < computed.length())
+                computed.clear(index, computed.length());
+            invalidFrom = Long.MAX_VALUE;
+        }
+        
+        storeSize = size;
+        if (size > 0) {
+            firstTime = store.getTime(0);
+            lastTime = store.getTime(size-1);
+        }
+        
+        if (size == 0 || last < first || members.isEmpty()) return;
+        
+        usedFirst = Math.max(first, 0);
+        usedLast = Math.min(last, size-1);
+        
+        computed.clear(size-1);
+        
+        int missing = computed.nextClearBit(first);
+        if (missing > last) return;
+        
+        // The columns of the members, by graph slot
+        Column[] slotColumns = new Column[graph.size()];
+        for (Map.Entry<IndicatorNode, Column> entry : columns.entrySet()) {
+            slotColumns[graph.getSlot(entry.getKey())] = entry.getValue();
+        }
+        
+        // Compute all nodes in one pass, starting the lookback bars before
+        int start = Math.max(0, missing - graph.getLookback());
+        IndicatorGraph.Computation computation = graph.start();
+        
+        String resolution = store.getResolution();
+        MarketCursor cursor = source.cursor(store.getTicker(),
+                TimeUtils.getTimeUnit(resolution, store.getTime(start)), TimeUtils.getTimeUnit(resolution, store.getTime(last)), true);
+        
+        for (int index = start; index <= last && cursor.next(); index++) {
+            computation.next(cursor.getView());
+            if (index < missing || computed.get(index)) continue;
+            
+            for (int slot = 0; slot < slotColumns.length; slot++) {
+                if (slotColumns[slot] != null)
+                    slotColumns[slot].set(index, computation.getValue(slot));
+            }
+            computed.set(index);
+        }
+    }
+    
+    /**
+     * Forget the values of all but the bars asked for by the last update,
+     * to free memory while keeping those being plotted.
+     */
+    synchronized void trim() {
+        if (usedLast < usedFirst) {
+            computed.clear();
+            for (Column column : columns.values())
+                column.clear();
+            return;
+        }
+        
+        int firstChunk = usedFirst >>> Column.CHUNK_BITS;
+        int lastChunk = usedLast >>> Column.CHUNK_BITS;
+        for (Column column : columns.values())
+            column.retain(firstChunk, lastChunk);
+        
+        computed.clear(0, firstChunk << Column.CHUNK_BITS);
+        computed.clear((lastChunk + 1) << Column.CHUNK_BITS, Math.max(computed.length(), (lastChunk + 1) << Column.CHUNK_BITS));
+    }
+    
+    /**
+     * Returns the value of given bar in given column, as computed by update.
+     */
+    synchronized BigDecimal getValue(Column column, int index) {
+        return column.get(index);
+    }
+    
+    synchronized int getMaxIndex(Column column, int from, int to) {
+        return column.getIndex(from, Math.min(to, column.size()), true);
+    }
+    
+    synchronized int getMinIndex(Column column, int from, int to) {
+        return column.getIndex(from, Math.min(to, column.size()), false);
+    }
+    
+    /**
+     * Forget the values of bars from given time on, as the bar at that
+     * time has changed. The values are computed again on the next update.
+     * 
+     * @param time Time of changed bar in milliseconds
+     */
+    synchronized void invalidate(long time) {
+        invalidFrom = Math.min(invalidFrom, time);
+    }
+    
+    /**
+     * Returns the approximate number of bytes of heap used by given column.
+     */
+    synchronized long getMemoryUsage(Column column) {
+        // A BigDecimal is about 40 bytes
+        return column.getMemoryUsage() + 40L * computed.cardinality();
+    }
+}
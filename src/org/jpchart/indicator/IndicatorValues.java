@@ -0,0 +1,172 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.math.BigDecimal;
+import java.util.TreeMap;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.MarketCursor;
+import org.jpchart.market.Market;
+
+/**
+ * Computed values of one indicator for one ticker and resolution of a data
+ * source, as kept by IndicatorCache. Values are kept by bar index when the
+ * bars are in a bar store, and by bar time otherwise. Values by bar index
+ * are computed together with those of the other cached indicators of the
+ * same bars, see IndicatorSeries.
+ * 
+ * Values are computed when first asked for, and computed again after the
+ * bars they depend on change. Instances are thread safe.
+ *
+ * @author cfelde
+ */
+public class IndicatorValues {
+    private final SimpleIndicator indicator;
+    
+    // Values by bar index, for bars kept in a bar store
+    private final IndicatorSeries series;
+    private final IndicatorSeries.Column column;
+    
+    // Values by bar time, for other data sources
+    private final TreeMap<Long, BigDecimal> valuesByTime = new TreeMap<Long, BigDecimal>();
+    
+    IndicatorValues(SimpleIndicator indicator, IndicatorSeries series, IndicatorSeries.Column column) {
+        this.indicator = indicator;
+        this.series = series;
+        this.column = column;
+    }
+    
+    public SimpleIndicator getIndicator() {
+        return indicator;
+    }
+    
+    /**
+     * Compute the values of given bars of given store not already known.
+     * The last bar of the store is always computed again, as it may still
+     * be forming. If the store does not hold the bars used before, all
+     * values are computed again.
+     * 
+     * @param store Bar store of the data source
+     * @param first Index of first bar
+     * @param last Index of last bar
+     * @throws Exception on errors
+     */
+    public void update(BarStore store, int first, int last) throws Exception {
+        series.update(store, first, last);
+    }
+    
+    /**
+     * Returns the value of given bar, which must have been computed using
+     * update.
+     * 
+     * @param index Bar index
+     * @return Indicator value or null
+     */
+    public BigDecimal getValue(int index) {
+        return series.getValue(column, index);
+    }
+    
+    /**
+     * Returns the index of the bar with the largest value from given index,
+     * inclusive, to given index, exclusive, as computed using update.
+     * 
+     * @param from First index
+     * @param to Last index + 1
+     * @return Bar index, or -1 if no bar in range has a value
+     */
+    public int getMaxIndex(int from, int to) {
+        return series.getMaxIndex(column, from, to);
+    }
+    
+    /**
+     * Returns the index of the bar with the smallest value from given index,
+     * inclusive, to given index, exclusive, as computed using update.
+     * 
+     * @param from First index
+     * @param to Last index + 1
+     * @return Bar index, or -1 if no bar in range has a value
+     */
+    public int getMinIndex(int from, int to) {
+        return series.getMinIndex(column, from, to);
+    }
+    
+    /**
+     * Returns the value of the current bar of given cursor, computing it
+     * if not known.
+     * 
+     * @param cursor Cursor over the bars of the data source
+     * @return Indicator value or null
+     */
+    public synchronized BigDecimal getValue(MarketCursor cursor) {
+        long time = cursor.getTime();
+        if (valuesByTime.containsKey(time))
+            return valuesByTime.get(time);
+        
+        BigDecimal value = indicator.getValue(cursor.getView());
+        valuesByTime.put(time, value);
+        return value;
+    }
+    
+    /**
+     * Returns the value of given bar, computing it if not known.
+     * 
+     * @param market Bar of the data source
+     * @return Indicator value or null
+     */
+    public synchronized BigDecimal getValue(Market market) {
+        long time = market.getMarketTime().getTimeInMillis();
+        if (valuesByTime.containsKey(time))
+            return valuesByTime.get(time);
+        
+        BigDecimal value = indicator.getValue(market);
+        valuesByTime.put(time, value);
+        return value;
+    }
+    
+    /**
+     * Forget the values of bars from given time on, as the bar at that
+     * time has changed.
+     * 
+     * @param time Time of changed bar in milliseconds
+     */
+    public void invalidate(long time) {
+        series.invalidate(time);
+        
+        synchronized (this) {
+            valuesByTime.tailMap(time).clear();
+        }
+    }
+    
+    /**
+     * Returns the approximate number of bytes of heap used by the kept
+     * values.
+     * 
+     * @return Approximate heap usage in bytes
+     */
+    public long getMemoryUsage() {
+        long memoryUsage = series.getMemoryUsage(column);
+        
+        // A tree map entry with its key and BigDecimal is about 96 bytes
+        synchronized (this) {
+            return memoryUsage + 96L * valuesByTime.size() + 64;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.math.BigDecimal;
+import org.jpchart.market.Market;
+
+/**
+ * The state of one forward pass of an IndicatorNode.
+ *
+ * @author cfelde
+ */
+public interface NodeComputation {
+    /**
+     * Add the next bar, returning the value of the node at that bar.
+     * If no value is available, null is returned.
+     * 
+     * The given market may be a cursor view, and neither it nor the
+     * inputs array is kept after this call.
+     * 
+     * @param market Next bar
+     * @param inputs Values of the input nodes at this bar, in the order given by getInputs
+     * @return Node value or null
+     */
+    BigDecimal next(Market market, BigDecimal[] inputs);
+}
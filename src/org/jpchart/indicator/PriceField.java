@@ -0,0 +1,81 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.math.BigDecimal;
+import org.jpchart.market.Market;
+
+/**
+ * A price of each bar, as input to other indicators.
+ *
+ * @author cfelde
+ */
+public class PriceField extends AbstractIndicatorNode {
+    private final SimpleMovingAverage.UsePrice price;
+    
+    public PriceField(SimpleMovingAverage.UsePrice price) {
+        this.price = price;
+    }
+    
+    public SimpleMovingAverage.UsePrice getPrice() {
+        return price;
+    }
+    
+    @Override
+    public BigDecimal getValue(Market market) {
+        if (price == SimpleMovingAverage.UsePrice.OPEN)
+            return market.getOpenPrice();
+        else if (price == SimpleMovingAverage.UsePrice.HIGH)
+            return market.getHighPrice();
+        else if (price == SimpleMovingAverage.UsePrice.LOW)
+            return market.getLowPrice();
+        else if (price == SimpleMovingAverage.UsePrice.CLOSE)
+            return market.getClosePrice();
+        else
+            return null; // Undef
+    }
+    
+    public IndicatorNode[] getInputs() {
+        return NO_INPUTS;
+    }
+    
+    public int getInputLookback() {
+        return 0;
+    }
+    
+    public NodeComputation startNode() {
+        return new NodeComputation() {
+            public BigDecimal next(Market market, BigDecimal[] inputs) {
+                return getValue(market);
+            }
+        };
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof PriceField && price == ((PriceField) obj).price;
+    }
+    
+    @Override
+    public int hashCode() {
+        return 43 + (price == null ? 0 : price.hashCode());
+    }
+}
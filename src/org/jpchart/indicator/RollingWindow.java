@@ -0,0 +1,127 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import org.jpchart.market.FixedPoint;
+
+/**
+ * Ring of the last scaled values seen by a rolling computation. Values are
+ * kept at the largest scale seen so far, while the largest scale of the
+ * values currently in the window is tracked separately, so results can be
+ * given at the same scale as when computed from the window alone.
+ *
+ * @author cfelde
+ */
+class RollingWindow {
+    private final long[] values;
+    private final int[] scales;
+    private final int[] scaleCount = new int[FixedPoint.MAX_SCALE + 1];
+    private int next = 0;
+    private int size = 0;
+    private int scale = 0;
+    
+    RollingWindow(int capacity) {
+        values = new long[capacity];
+        scales = new int[capacity];
+    }
+    
+    /**
+     * Increase the scale values are kept at, if needed.
+     * 
+     * @param valueScale Scale of a value about to be added
+     * @return Factor the kept values were multiplied with, 1 if unchanged
+     */
+    long ensureScale(int valueScale) {
+        if (valueScale <= scale) return 1;
+        
+        long factor = FixedPoint.powerOfTen(valueScale - scale);
+        for (int x = 0; x < values.length; x++)
+            values[x] *= factor;
+        
+        scale = valueScale;
+        return factor;
+    }
+    
+    /**
+     * Add a value as the newest, removing the oldest if full. The value
+     * scale must not be above the kept scale, see ensureScale.
+     * 
+     * @param value Scaled value
+     * @param valueScale Scale of value
+     */
+    void add(long value, int valueScale) {
+        if (size == values.length)
+            scaleCount[scales[next]]--;
+        else
+            size++;
+        
+        values[next] = FixedPoint.rescale(value, valueScale, scale);
+        scales[next] = valueScale;
+        scaleCount[valueScale]++;
+        
+        next = next + 1 == values.length ? 0 : next + 1;
+    }
+    
+    /**
+     * Returns a value, at the kept scale, by age.
+     * 
+     * @param age 0 for the newest value, size-1 for the oldest
+     * @return Scaled value
+     */
+    long get(int age) {
+        int index = next - 1 - age;
+        return values[index < 0 ? index + values.length : index];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isFull() {
+        return size == values.length;
+    }
+    
+    /**
+     * Returns the scale values are kept at.
+     */
+    int getScale() {
+        return scale;
+    }
+    
+    /**
+     * Returns the largest scale of the values in the window.
+     */
+    int getWindowScale() {
+        for (int x = scale; x > 0; x--) {
+            if (scaleCount[x] > 0) return x;
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Returns given value, at the kept scale, at the window scale. The
+     * value must be a sum or difference of values in the window.
+     */
+    long toWindowScale(long value) {
+        return value / FixedPoint.powerOfTen(scale - getWindowScale());
+    }
+}
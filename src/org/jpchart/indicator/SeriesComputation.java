@@ -0,0 +1,43 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.math.BigDecimal;
+import org.jpchart.market.Market;
+
+/**
+ * The state of one forward pass of a SeriesIndicator.
+ *
+ * @author cfelde
+ */
+public interface SeriesComputation {
+    /**
+     * Add the next bar, returning the indicator value at that bar.
+     * If no indicator value is available, null is returned.
+     * 
+     * The given market may be a cursor view, and is not kept after
+     * this call.
+     * 
+     * @param market Next bar
+     * @return Indicator value or null
+     */
+    BigDecimal next(Market market);
+}
@@ -0,0 +1,49 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+/**
+ * Indicator computed for a whole range of bars in one forward pass. The
+ * computation keeps rolling state between bars, so a range of n bars costs
+ * O(n + lookback) instead of looking back from every bar.
+ * 
+ * Use SeriesIndicatorAdapter where a SimpleIndicator is needed.
+ *
+ * @author cfelde
+ */
+public interface SeriesIndicator {
+    /**
+     * Returns the number of bars before a bar that are needed to compute
+     * its value. Computing a range should start this many bars before the
+     * first bar of the range. Starting further back gives the same values.
+     * 
+     * @return Number of bars needed before a bar
+     */
+    int getLookback();
+    
+    /**
+     * Starts a new computation. Bars are given to it oldest first, without
+     * gaps, using SeriesComputation.next.
+     * 
+     * @return New computation
+     */
+    SeriesComputation start();
+}
@@ -0,0 +1,103 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.indicator;
+
+import java.math.BigDecimal;
+import org.jpchart.data.MarketCursor;
+import org.jpchart.data.MarketData;
+import org.jpchart.market.Market;
+import org.jpchart.time.TimeUnit;
+import org.jpchart.time.TimeUtils;
+
+/**
+ * Gives the per bar values of a SeriesIndicator, for renderers and other
+ * code using SimpleIndicator. Each value is computed by a forward pass
+ * over the bar and the lookback bars before it.
+ * 
+ * Code computing many bars should use the SeriesIndicator directly.
+ *
+ * @author cfelde
+ */
+public class SeriesIndicatorAdapter implements SimpleIndicator, SeriesIndicator {
+    private final SeriesIndicator indicator;
+    
+    public SeriesIndicatorAdapter(SeriesIndicator indicator) {
+        this.indicator = indicator;
+    }
+    
+    public SeriesIndicator getSeriesIndicator() {
+        return indicator;
+    }
+    
+    public BigDecimal getValue(Market market) {
+        if (market == null) return null;
+        
+        int lookback = indicator.getLookback();
+        if (lookback == 0)
+            return indicator.start().next(market);
+        
+        MarketData dataSource = market.getMarketDataSource();
+        if (dataSource == null) return null;
+        
+        try {
+            // Find the first bar needed, going back from given bar
+            TimeUnit to = market.getMarketTime();
+            MarketCursor cursor = dataSource.cursor(market.getTicker(), null, to, false);
+            if (!cursor.next()) return null;
+            
+            long firstTime = cursor.getTime();
+            for (int x = 0; x < lookback && cursor.next(); x++)
+                firstTime = cursor.getTime();
+            
+            // Then compute forward up to given bar
+            TimeUnit from = TimeUtils.getTimeUnit(to.getResolutionDescription(), firstTime);
+            cursor = dataSource.cursor(market.getTicker(), from, to, true);
+            
+            SeriesComputation computation = indicator.start();
+            BigDecimal value = null;
+            while (cursor.next())
+                value = computation.next(cursor.getView());
+            
+            return value;
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+    
+    public int getLookback() {
+        return indicator.getLookback();
+    }
+    
+    public SeriesComputation start() {
+        return indicator.start();
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SeriesIndicatorAdapter && indicator.equals(((SeriesIndicatorAdapter) obj).indicator);
+    }
+    
+    @Override
+    public int hashCode() {
+        return indicator.hashCode();
+    }
+}
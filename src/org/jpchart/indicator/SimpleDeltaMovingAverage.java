@@ -17,37 +17,57 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
 
+
 package org.jpchart.indicator;
 
 import java.math.BigDecimal;
 import org.jpchart.market.Market;
 
 /**
+ * Change of a simple moving average from the previous bar.
  *
  * @author cfelde
  */
-public class SimpleDeltaMovingAverage implements SimpleIndicator {
-    private final int periode;
-    private final SimpleMovingAverage.UsePrice price;
+public class SimpleDeltaMovingAverage extends AbstractIndicatorNode {
     private final SimpleMovingAverage sma;
     
     public SimpleDeltaMovingAverage(int periode, SimpleMovingAverage.UsePrice price) {
-        this.periode = periode;
-        this.price = price;
         this.sma = new SimpleMovingAverage(periode, price);
     }
     
-    public BigDecimal getValue(Market market) {
-        try {
-            BigDecimal current = sma.getValue(market);
-            BigDecimal previous = sma.getValue(market.getPrevious());
-            
-            if (current == null || previous == null) return null;
+    public SimpleDeltaMovingAverage(int periode, IndicatorNode input) {
+        this.sma = new SimpleMovingAverage(periode, input);
+    }
+    
+    public IndicatorNode[] getInputs() {
+        return new IndicatorNode[] {sma};
+    }
+    
+    public int getInputLookback() {
+        return 1;
+    }
+    
+    public NodeComputation startNode() {
+        return new NodeComputation() {
+            private BigDecimal previous = null;
             
-            return current.subtract(previous);
-        }
-        catch (Exception e) {
-            return null;
-        }
+            public BigDecimal next(Market market, BigDecimal[] inputs) {
+                BigDecimal current = inputs[0];
+                BigDecimal value = current == null || previous == null ? null : current.subtract(previous);
+                
+                previous = current;
+                return value;
+            }
+        };
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SimpleDeltaMovingAverage && sma.equals(((SimpleDeltaMovingAverage) obj).sma);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 37 * sma.hashCode();
     }
 }
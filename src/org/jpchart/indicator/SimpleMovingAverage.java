@@ -17,6 +17,7 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
 
+
 package org.jpchart.indicator;
 
 import java.math.BigDecimal;
@@ -24,45 +25,130 @@ import java.math.RoundingMode;
 import org.jpchart.market.Market;
 
 /**
+ * Simple moving average of a price, or of another indicator such as
+ * new SimpleMovingAverage(5, new CutlerRSI(14)).
  *
  * @author cfelde
  */
-public class SimpleMovingAverage implements SimpleIndicator {
+public class SimpleMovingAverage extends AbstractIndicatorNode {
     public static enum UsePrice { OPEN, HIGH, LOW, CLOSE };
     
     private final int periode;
-    private final UsePrice price;
+    private final IndicatorNode input;
     
     public SimpleMovingAverage(int periode, UsePrice price) {
+        this(periode, new PriceField(price));
+    }
+    
+    public SimpleMovingAverage(int periode, IndicatorNode input) {
         this.periode = periode;
-        this.price = price;
+        this.input = input;
+    }
+    
+    public IndicatorNode[] getInputs() {
+        return new IndicatorNode[] {input};
+    }
+    
+    /**
+     * Requires a value before the periode, as previous versions did.
+     */
+    public int getInputLookback() {
+        return periode;
     }
     
-    public BigDecimal getValue(Market market) {
-        BigDecimal sum = new BigDecimal(0);
+    public NodeComputation startNode() {
+        if (input instanceof PriceField)
+            return startPrice(((PriceField) input).getPrice());
         
-        for (int x = 0; x < periode && market != null; x++) {
-            if (price == UsePrice.OPEN)
-                sum = sum.add(market.getOpenPrice());
-            else if (price == UsePrice.HIGH)
-                sum = sum.add(market.getHighPrice());
-            else if (price == UsePrice.LOW)
-                sum = sum.add(market.getLowPrice());
-            else if (price == UsePrice.CLOSE)
-                sum = sum.add(market.getClosePrice());
-            else
-                market = null; // Undef
+        return new NodeComputation() {
+            // The last periode input values, and their sum
+            private final BigDecimal[] window = new BigDecimal[periode];
+            private BigDecimal sum = BigDecimal.ZERO;
+            private int next = 0;
+            private int count = 0;
             
-            try {
-                market = market.getPrevious();
+            public BigDecimal next(Market market, BigDecimal[] inputs) {
+                BigDecimal value = inputs[0];
+                if (value == null) {
+                    // Start again after a missing value
+                    sum = BigDecimal.ZERO;
+                    count = 0;
+                    return null;
+                }
+                
+                if (count >= periode)
+                    sum = sum.subtract(window[next]);
+                
+                window[next] = value;
+                sum = sum.add(value);
+                next = next + 1 == periode ? 0 : next + 1;
+                
+                if (count <= periode) count++;
+                if (count <= periode) return null;
+                
+                // Average at the largest scale of the values averaged, as for prices
+                int scale = 0;
+                for (BigDecimal windowValue : window)
+                    scale = Math.max(scale, windowValue.scale());
+                
+                return sum.setScale(scale, RoundingMode.UNNECESSARY).divide(BigDecimal.valueOf(periode), RoundingMode.HALF_EVEN);
             }
-            catch (Exception e) {
-                market = null;
+        };
+    }
+    
+    /**
+     * Average of a price, read as scaled longs from the bars instead of
+     * as BigDecimal values of the input.
+     */
+    private NodeComputation startPrice(final UsePrice price) {
+        return new NodeComputation() {
+            // Rolling sum of the scaled prices in the window, at the window's kept scale
+            private final RollingWindow window = new RollingWindow(periode);
+            private long sum = 0;
+            private boolean hasPrevious = false;
+            
+            public BigDecimal next(Market market, BigDecimal[] inputs) {
+                long value;
+                if (price == UsePrice.OPEN)
+                    value = market.getOpenScaled();
+                else if (price == UsePrice.HIGH)
+                    value = market.getHighScaled();
+                else if (price == UsePrice.LOW)
+                    value = market.getLowScaled();
+                else if (price == UsePrice.CLOSE)
+                    value = market.getCloseScaled();
+                else
+                    return null; // Undef
+                
+                int valueScale = market.getPriceScale();
+                sum *= window.ensureScale(valueScale);
+                
+                if (window.isFull()) {
+                    sum -= window.get(periode-1);
+                    hasPrevious = true;
+                }
+                
+                window.add(value, valueScale);
+                sum += window.get(0);
+                
+                if (!hasPrevious) return null;
+                
+                return BigDecimal.valueOf(window.toWindowScale(sum), window.getWindowScale()).divide(BigDecimal.valueOf(periode), RoundingMode.HALF_EVEN);
             }
-        }
-        
-        if (market == null) return null;
+        };
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SimpleMovingAverage))
+            return false;
         
-        return sum.divide(BigDecimal.valueOf(periode), RoundingMode.HALF_EVEN);
+        SimpleMovingAverage other = (SimpleMovingAverage) obj;
+        return periode == other.periode && input.equals(other.input);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * periode + input.hashCode();
     }
 }
@@ -17,6 +17,7 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
 
+
 package org.jpchart.indicator;
 
 import java.math.BigDecimal;
@@ -26,8 +27,35 @@ import org.jpchart.market.Market;
  *
  * @author cfelde
  */
-public class Volume implements SimpleIndicator {
+public class Volume extends AbstractIndicatorNode {
+    @Override
     public BigDecimal getValue(Market market) {
         return market.getVolume();
     }
+    
+    public IndicatorNode[] getInputs() {
+        return NO_INPUTS;
+    }
+    
+    public int getInputLookback() {
+        return 0;
+    }
+    
+    public NodeComputation startNode() {
+        return new NodeComputation() {
+            public BigDecimal next(Market market, BigDecimal[] inputs) {
+                return market.getVolume();
+            }
+        };
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Volume;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Volume.class.hashCode();
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.market;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point decimal values kept as a long scaled by a number of decimals,
+ * the scale. A price of 12.34 with scale 2 is kept as 1234. All prices of
+ * an instrument share one scale, so they can be compared and subtracted as
+ * plain longs without BigDecimal arithmetic.
+ *
+ * @author cfelde
+ */
+public final class FixedPoint {
+    /**
+     * Max number of decimals kept. Values with more decimals are rounded
+     * half even.
+     */
+    public final static int MAX_SCALE = 8;
+    
+    private final static long[] POWERS_OF_TEN = new long[MAX_SCALE+1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int x = 1; x < POWERS_OF_TEN.length; x++)
+            POWERS_OF_TEN[x] = POWERS_OF_TEN[x-1] * 10;
+    }
+    
+    private FixedPoint() {
+    }
+    
+    /**
+     * Returns 10 to the power of given exponent, from 0 up to MAX_SCALE.
+     * 
+     * @param exponent Exponent
+     * @return Power of ten
+     */
+    public static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+    
+    /**
+     * Returns the given value as a long scaled by given number of decimals.
+     * 
+     * @param value Value to scale
+     * @param scale Number of decimals
+     * @return Scaled value
+     * @throws ArithmeticException if the scaled value does not fit in a long
+     */
+    public static long toScaled(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+    
+    /**
+     * Returns the scale needed to keep all decimals of given value, up to
+     * MAX_SCALE.
+     * 
+     * @param value Value
+     * @return Scale, from 0 up to MAX_SCALE
+     */
+    public static int getScale(BigDecimal value) {
+        return Math.max(0, Math.min(MAX_SCALE, value.scale()));
+    }
+    
+    /**
+     * Returns given scaled value as a BigDecimal.
+     * 
+     * @param value Scaled value
+     * @param scale Number of decimals
+     * @return Value as BigDecimal
+     */
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+    
+    /**
+     * Returns given scaled value as a double.
+     * 
+     * @param value Scaled value
+     * @param scale Number of decimals
+     * @return Value as double
+     */
+    public static double toDouble(long value, int scale) {
+        return value / (double) POWERS_OF_TEN[scale];
+    }
+    
+    /**
+     * Returns given scaled value rescaled to a larger or equal scale.
+     * 
+     * @param value Scaled value
+     * @param fromScale Current number of decimals
+     * @param toScale New number of decimals, at least fromScale
+     * @return Rescaled value
+     */
+    public static long rescale(long value, int fromScale, int toScale) {
+        if (toScale < fromScale)
+            throw new IllegalArgumentException("Unable to rescale from " + fromScale + " to " + toScale + " decimals");
+        
+        return value * POWERS_OF_TEN[toScale - fromScale];
+    }
+}
@@ -19,10 +19,18 @@
 
 package org.jpchart.market;
 
+import org.jpchart.data.MarketData;
 import org.jpchart.time.TimeUnit;
 import java.math.BigDecimal;
 
 /**
+ * Market data for one ticker and time unit.
+ * 
+ * Prices and volume are kept as fixed-point longs, see FixedPoint, with one
+ * scale for all prices and one for the volume. The scaled and double
+ * accessors give the values without creating objects, and should be used
+ * for comparisons and pixel calculations. The BigDecimal accessors give
+ * the same values as BigDecimals with the price or volume scale.
  *
  * @author cfelde
  */
@@ -38,10 +46,45 @@ public interface Market {
     
     public BigDecimal getVolume();
     
+    /**
+     * Returns the number of decimals of the scaled prices.
+     * 
+     * @return Price scale
+     */
+    public int getPriceScale();
+    
+    /**
+     * Returns the number of decimals of the scaled volume.
+     * 
+     * @return Volume scale
+     */
+    public int getVolumeScale();
+    
+    public long getOpenScaled();
+    public long getHighScaled();
+    public long getLowScaled();
+    public long getCloseScaled();
+    
+    public long getVolumeScaled();
+    
+    public double getOpenDouble();
+    public double getHighDouble();
+    public double getLowDouble();
+    public double getCloseDouble();
+    
+    public double getVolumeDouble();
+    
     /**
      * Get previous market data of same type, or null if not available.
      * 
      * @return Previous market data of same type
      */
     public Market getPrevious() throws Exception;
+    
+    /**
+     * Get the data source this market data came from, or null if unknown.
+     * 
+     * @return Data source, or null
+     */
+    public MarketData getMarketDataSource();
 }
@@ -24,6 +24,8 @@ import org.jpchart.time.TimeUnit;
 import java.math.BigDecimal;
 
 /**
+ * Market data kept as fixed-point longs, with one scale for the prices and
+ * one for the volume. The BigDecimal accessors are derived from these.
  *
  * @author cfelde
  */
@@ -32,16 +34,51 @@ public class MarketTick implements Market {
     
     private final String ticker;
     private final TimeUnit marketTime;
-    private final BigDecimal openPrice, highPrice, lowPrice, closePrice, volume;
+    private final long open, high, low, close, volume;
+    private final int priceScale, volumeScale;
 
+    /**
+     * Creates market data from BigDecimal values. The price scale is the
+     * largest scale of the four prices, and prices and volume with more than
+     * FixedPoint.MAX_SCALE decimals are rounded half even.
+     */
     public MarketTick(String ticker, TimeUnit marketTime, BigDecimal openPrice, BigDecimal highPrice, BigDecimal lowPrice, BigDecimal closePrice, BigDecimal volume, MarketData dataSource) {
         this.ticker = ticker;
         this.marketTime = marketTime;
-        this.openPrice = openPrice;
-        this.highPrice = highPrice;
-        this.lowPrice = lowPrice;
-        this.closePrice = closePrice;
+        
+        this.priceScale = Math.max(
+                Math.max(FixedPoint.getScale(openPrice), FixedPoint.getScale(highPrice)),
+                Math.max(FixedPoint.getScale(lowPrice), FixedPoint.getScale(closePrice)));
+        this.volumeScale = FixedPoint.getScale(volume);
+        
+        this.open = FixedPoint.toScaled(openPrice, priceScale);
+        this.high = FixedPoint.toScaled(highPrice, priceScale);
+        this.low = FixedPoint.toScaled(lowPrice, priceScale);
+        this.close = FixedPoint.toScaled(closePrice, priceScale);
+        this.volume = FixedPoint.toScaled(volume, volumeScale);
+        
+        this.dataSource = dataSource;
+    }
+    
+    /**
+     * Creates market data from scaled values.
+     * 
+     * @param priceScale Number of decimals of the scaled prices
+     * @param volumeScale Number of decimals of the scaled volume
+     */
+    public MarketTick(String ticker, TimeUnit marketTime, long open, long high, long low, long close, long volume, int priceScale, int volumeScale, MarketData dataSource) {
+        if (priceScale < 0 || priceScale > FixedPoint.MAX_SCALE || volumeScale < 0 || volumeScale > FixedPoint.MAX_SCALE)
+            throw new IllegalArgumentException("Unsupported scale: " + priceScale + ", " + volumeScale);
+        
+        this.ticker = ticker;
+        this.marketTime = marketTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
         this.volume = volume;
+        this.priceScale = priceScale;
+        this.volumeScale = volumeScale;
         
         this.dataSource = dataSource;
     }
@@ -55,28 +92,80 @@ public class MarketTick implements Market {
     }
     
     public BigDecimal getOpenPrice() {
-        return openPrice;
+        return BigDecimal.valueOf(open, priceScale);
     }
 
     public BigDecimal getHighPrice() {
-        return highPrice;
+        return BigDecimal.valueOf(high, priceScale);
     }
 
     public BigDecimal getLowPrice() {
-        return lowPrice;
+        return BigDecimal.valueOf(low, priceScale);
     }
 
     public BigDecimal getClosePrice() {
-        return closePrice;
+        return BigDecimal.valueOf(close, priceScale);
     }
 
     public BigDecimal getVolume() {
+        return BigDecimal.valueOf(volume, volumeScale);
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+
+    public long getOpenScaled() {
+        return open;
+    }
+
+    public long getHighScaled() {
+        return high;
+    }
+
+    public long getLowScaled() {
+        return low;
+    }
+
+    public long getCloseScaled() {
+        return close;
+    }
+
+    public long getVolumeScaled() {
         return volume;
     }
 
+    public double getOpenDouble() {
+        return FixedPoint.toDouble(open, priceScale);
+    }
+
+    public double getHighDouble() {
+        return FixedPoint.toDouble(high, priceScale);
+    }
+
+    public double getLowDouble() {
+        return FixedPoint.toDouble(low, priceScale);
+    }
+
+    public double getCloseDouble() {
+        return FixedPoint.toDouble(close, priceScale);
+    }
+
+    public double getVolumeDouble() {
+        return FixedPoint.toDouble(volume, volumeScale);
+    }
+
     public Market getPrevious() throws Exception {
         return dataSource.getPrevious(this);
     }
+    
+    public MarketData getMarketDataSource() {
+        return dataSource;
+    }
 
     @Override
     public boolean equals(Object obj) {
@@ -93,19 +182,13 @@ public class MarketTick implements Market {
         if (this.marketTime != other.marketTime && (this.marketTime == null || !this.marketTime.equals(other.marketTime))) {
             return false;
         }
-        if (this.openPrice != other.openPrice && (this.openPrice == null || !this.openPrice.equals(other.openPrice))) {
-            return false;
-        }
-        if (this.highPrice != other.highPrice && (this.highPrice == null || !this.highPrice.equals(other.highPrice))) {
-            return false;
-        }
-        if (this.lowPrice != other.lowPrice && (this.lowPrice == null || !this.lowPrice.equals(other.lowPrice))) {
+        if (this.priceScale != other.priceScale || this.volumeScale != other.volumeScale) {
             return false;
         }
-        if (this.closePrice != other.closePrice && (this.closePrice == null || !this.closePrice.equals(other.closePrice))) {
+        if (this.open != other.open || this.high != other.high || this.low != other.low || this.close != other.close) {
             return false;
         }
-        if (this.volume != other.volume && (this.volume == null || !this.volume.equals(other.volume))) {
+        if (this.volume != other.volume) {
             return false;
         }
         return true;
@@ -116,11 +199,13 @@ public class MarketTick implements Market {
         int hash = 5;
         hash = 19 * hash + (this.ticker != null ? this.ticker.hashCode() : 0);
         hash = 19 * hash + (this.marketTime != null ? this.marketTime.hashCode() : 0);
-        hash = 19 * hash + (this.openPrice != null ? this.openPrice.hashCode() : 0);
-        hash = 19 * hash + (this.highPrice != null ? this.highPrice.hashCode() : 0);
-        hash = 19 * hash + (this.lowPrice != null ? this.lowPrice.hashCode() : 0);
-        hash = 19 * hash + (this.closePrice != null ? this.closePrice.hashCode() : 0);
-        hash = 19 * hash + (this.volume != null ? this.volume.hashCode() : 0);
+        hash = 19 * hash + (int) (this.open ^ (this.open >>> 32));
+        hash = 19 * hash + (int) (this.high ^ (this.high >>> 32));
+        hash = 19 * hash + (int) (this.low ^ (this.low >>> 32));
+        hash = 19 * hash + (int) (this.close ^ (this.close >>> 32));
+        hash = 19 * hash + (int) (this.volume ^ (this.volume >>> 32));
+        hash = 19 * hash + this.priceScale;
+        hash = 19 * hash + this.volumeScale;
         return hash;
     }
 }
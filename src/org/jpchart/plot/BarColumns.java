@@ -0,0 +1,170 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.plot;
+
+import org.jpchart.data.BarPyramid;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.BarStoreSource;
+import org.jpchart.data.MarketData;
+import org.jpchart.market.FixedPoint;
+import org.jpchart.market.Market;
+
+/**
+ * Walks the pixel columns of a zoomed out plot frame, where several bars
+ * share each column, from right to left. For each column the first, max,
+ * min and last value of its bars is found using a BarPyramid, so renderers
+ * can draw one column per pixel instead of one shape per bar.
+ *
+ * @author cfelde
+ */
+public class BarColumns {
+    private final PlotFrame plotFrame;
+    private final BarPyramid pyramid;
+    private final int priceScale;
+    private final int lastIndex;
+    private final int lastX;
+    private final double barSpacing;
+    private final long[] values = new long[4];
+    
+    private int x;
+    
+    private BarColumns(PlotFrame plotFrame, BarPyramid pyramid, int lastIndex, int lastX, int width) {
+        this.plotFrame = plotFrame;
+        this.pyramid = pyramid;
+        this.priceScale = pyramid.getBarStore().getPriceScale();
+        this.lastIndex = lastIndex;
+        this.lastX = lastX;
+        this.barSpacing = plotFrame.getBarSpacing();
+        this.x = Math.min(width, lastX + 1);
+    }
+    
+    /**
+     * Returns the columns of given plot frame, or null if bars do not share
+     * columns or the data source does not keep its bars in a BarStore.
+     * 
+     * @param plotFrame Plot frame
+     * @param field BarPyramid.OHLC, or one of the single field types
+     * @param width Width of the area to paint
+     * @return Columns, or null
+     */
+    public static BarColumns create(PlotFrame plotFrame, int field, int width) {
+        MarketData dataSource = plotFrame.getDataSource();
+        Market lastMarket = plotFrame.getLastMarket();
+        
+        if (plotFrame.getBarSpacing() >= 1 || !(dataSource instanceof BarStoreSource) || lastMarket == null)
+            return null;
+        
+        try {
+            BarStore store = ((BarStoreSource) dataSource).getBarStore(lastMarket.getTicker());
+            if (store == null) return null;
+            
+            int lastIndex = store.getTimeIndex().indexOnOrBefore(lastMarket.getMarketTime().getTimeInMillis());
+            if (lastIndex < 0) return null;
+            
+            int lastX = plotFrame.getXForTime(lastMarket.getMarketTime());
+            return new BarColumns(plotFrame, BarPyramid.get(store, field), lastIndex, lastX, width);
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Move to the next column to the left.
+     * 
+     * @return False if there are no more columns with bars
+     */
+    public boolean next() {
+        if (--x < 0)
+            return false;
+        
+        int to = lastIndex - getTicksForX(x) + 1;
+        int from = Math.max(0, lastIndex - getTicksForX(x - 1) + 1);
+        if (to <= 0)
+            return false;
+        
+        pyramid.getRange(from, to, values);
+        return true;
+    }
+    
+    /**
+     * Returns the X position of the current column.
+     */
+    public int getX() {
+        return x;
+    }
+    
+    /**
+     * Returns the scaled value of the first bar in the current column.
+     */
+    public long getFirst() {
+        return values[BarPyramid.FIRST];
+    }
+    
+    /**
+     * Returns the max scaled value of the bars in the current column.
+     */
+    public long getMax() {
+        return values[BarPyramid.MAX];
+    }
+    
+    /**
+     * Returns the min scaled value of the bars in the current column.
+     */
+    public long getMin() {
+        return values[BarPyramid.MIN];
+    }
+    
+    /**
+     * Returns the scaled value of the last bar in the current column.
+     */
+    public long getLast() {
+        return values[BarPyramid.LAST];
+    }
+    
+    /**
+     * Returns the Y position of given scaled value.
+     */
+    public int getY(long value) {
+        return plotFrame.getYForPrice(FixedPoint.toDouble(value, priceScale));
+    }
+    
+    private int getXForTicks(int ticks) {
+        return lastX - (int) Math.floor(ticks * barSpacing);
+    }
+    
+    /**
+     * Returns the number of bars before the last bar of the last bar
+     * starting at or before given X.
+     */
+    private int getTicksForX(int x) {
+        int distance = lastX - x;
+        if (distance <= 0)
+            return 0;
+        
+        int ticks = (int) Math.ceil(distance / barSpacing);
+        while (ticks > 0 && getXForTicks(ticks - 1) <= x)
+            ticks--;
+        while (getXForTicks(ticks) > x)
+            ticks++;
+        
+        return ticks;
+    }
+}
@@ -20,6 +20,7 @@
 package org.jpchart.plot;
 
 import org.jpchart.plot.price.PricePlotRenderer;
+import org.jpchart.data.MarketCursor;
 import org.jpchart.data.MarketData;
 import org.jpchart.market.Market;
 import org.jpchart.time.TimeUnit;
@@ -63,6 +64,26 @@ public interface PlotFrame {
      * @return X pixel position
      */
     int getXForTime(TimeUnit time);
+    
+    /**
+     * Returns the X pixel position of the bar at given time in milliseconds,
+     * as getXForTime(TimeUnit), without creating a time unit for bars
+     * already seen. For tick data this is the first tick of the millisecond.
+     *
+     * @param time
+     * @return X pixel position
+     */
+    int getXForTime(long time);
+    
+    /**
+     * Returns the X pixel position of the current bar of given cursor. Ticks
+     * sharing a millisecond are told apart, other bars are found by time in
+     * milliseconds as by getXForTime(long).
+     *
+     * @param cursor Cursor positioned on a bar
+     * @return X pixel position
+     */
+    int getXForCursor(MarketCursor cursor);
 
     /**
      * Returns the width of the Y axis
@@ -81,11 +102,28 @@ public interface PlotFrame {
     int getYForPrice(BigDecimal price);
     
     /**
-     * Returns the width of the price bar
+     * Returns the Y pixel position of given price, as getYForPrice(BigDecimal)
+     * but using double arithmetic, for use when painting many prices.
+     *
+     * @param price
+     * @return Y pixel position
+     */
+    int getYForPrice(double price);
+    
+    /**
+     * Returns the width of the price bar, in whole pixels and at least one
      * 
      * @return bar width
      */
     int getBarWidth();
+    
+    /**
+     * Returns the number of pixels per bar. This is below one when zoomed
+     * out so far that several bars share each pixel column.
+     * 
+     * @return bar spacing
+     */
+    double getBarSpacing();
 
     /**
      * Returns true if mouse is clicked
@@ -22,9 +22,18 @@ package org.jpchart.plot;
 import org.jpchart.plot.indicator.InlineIndicatorRenderer;
 import org.jpchart.plot.indicator.StandaloneIndicatorRenderer;
 import org.jpchart.plot.price.PricePlotRenderer;
+import org.jpchart.data.BarPyramid;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.BarStoreSource;
+import org.jpchart.data.MarketCursor;
 import org.jpchart.data.MarketData;
+import org.jpchart.data.MarketDataObservable;
+import org.jpchart.data.MarketDataListener;
+import org.jpchart.data.VisibleRangeListener;
 import org.jpchart.market.Market;
+import org.jpchart.time.Tick;
 import org.jpchart.time.TimeUnit;
+import org.jpchart.time.TimeUtils;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
@@ -43,13 +52,16 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 
 /**
  *
  * @author cfelde
  */
-public class PlotFrameComponent extends JComponent implements MouseListener, MouseMotionListener, MouseWheelListener, PlotFrame {
+public class PlotFrameComponent extends JComponent implements MouseListener, MouseMotionListener, MouseWheelListener, MarketDataListener, PlotFrame {
     private final static int TIME_LINE_HEIGHT = 20;
     
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
@@ -105,14 +117,29 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
     
     private MarketData dataSource = null;
     private Market firstMarket = null, lastMarket = null;
+    // Number of bars before the last bar of bars by time in milliseconds, and
+    // of ticks by timestamp and sequence number, as ticks may share a millisecond
     private Map<Long, Integer> xCacheForTime = new HashMap<Long, Integer>();
-    private Map<Integer, TimeUnit> timeCacheForX = new HashMap<Integer, TimeUnit>();
+    private Map<Tick, Integer> xCacheForTick = new HashMap<Tick, Integer>();
+    // Time of the bar given number of bars before the last bar
+    private TreeMap<Integer, TimeUnit> timeCacheForX = new TreeMap<Integer, TimeUnit>();
+    private final static int MAX_TIME_CACHE_SIZE = 4096;
+    private final static int MAX_X_CACHE_SIZE = 65536;
+    
+    // Live updates, coalesced into one refresh on the event dispatch thread
+    private final AtomicBoolean liveRefreshPending = new AtomicBoolean(false);
+    private long liveTime = Long.MIN_VALUE;
     
     // Position of the last bar, relative to open price
     private int lastBarOpenX = dim.width - yAxisWidth - 10;
     private int lastBarOpenY = pricePlotHeight/2;
     private BigDecimal pricePixel = null;
-    private int barWidth = 5; // 5
+    // Same as pricePixel, for getYForPrice(double)
+    private double pricePixelDouble = 0;
+    // Number of pixels per bar, below one when zoomed out so far that bars share pixels
+    private final static double MIN_BAR_SPACING = 1.0/4096;
+    private double barSpacing = 5;
+    private boolean autoScale = false;
     
     private int barType = BAR_TYPE_OHLC;
     
@@ -149,42 +176,73 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
     }
     
     public void setMarketData(MarketData dataSource, Market lastMarket) throws Exception {
+        if (this.dataSource instanceof MarketDataObservable)
+            ((MarketDataObservable) this.dataSource).removeMarketDataListener(this);
+        if (dataSource instanceof MarketDataObservable)
+            ((MarketDataObservable) dataSource).addMarketDataListener(this);
+        
         this.dataSource = dataSource;
         this.lastMarket = lastMarket;
         this.firstMarket = dataSource.getFirst(lastMarket.getTicker());
         
+        xCacheForTime.clear();
+        xCacheForTick.clear();
+        timeCacheForX.clear();
+        Market liveMarket = dataSource.getLast(lastMarket.getTicker());
+        liveTime = liveMarket == null ? Long.MIN_VALUE : liveMarket.getMarketTime().getTimeInMillis();
+        
         // Initialize plot/price valiables
         try {
-            // Get number of visible bars
-            int visibleBars = (dim.width-yAxisWidth)/barWidth;
-            
-            // Get max and min price for visible bars, for initial y axis range
-            BigDecimal max = new BigDecimal(Long.MIN_VALUE);
-            BigDecimal min = new BigDecimal(Long.MAX_VALUE);
-            Market currentMarket = lastMarket;
-            for (int x = 0; x < visibleBars && currentMarket != null; x++) {
-                if (max.compareTo(currentMarket.getHighPrice()) < 0)
-                    max = currentMarket.getHighPrice();
-                if (min.compareTo(currentMarket.getLowPrice()) > 0)
-                    min = currentMarket.getLowPrice();
-                currentMarket = currentMarket.getPrevious();
-            }
-            // Calculate pixelPrice
-            pricePixel = max.subtract(min).divide(new BigDecimal(pricePlotHeight), RoundingMode.HALF_UP);
+            lastBarOpenX = dim.width-getYAxisWidth()-1-getBarWidth()-10;
             
-            // Calculate lastBarOpenY and lastBarOpenX
-            BigDecimal openMinDiff = lastMarket.getOpenPrice().subtract(min);
-            lastBarOpenY = openMinDiff.divide(pricePixel, RoundingMode.HALF_DOWN).intValue()+10;
-            lastBarOpenX = dim.width-getYAxisWidth()-1-barWidth-10;
+            // Data sources loading in the background may not have the bars yet,
+            // in which case the price axis is set up once they tell us they do
+            pricePixel = null;
+            initPriceScale();
         }
         catch (Exception e) {
+            if (dataSource instanceof MarketDataObservable)
+                ((MarketDataObservable) dataSource).removeMarketDataListener(this);
             this.dataSource = null;
             this.lastMarket = null;
         }
         finally {
+            fireVisibleRangeChanged();
             repaint();
         }
     }
+    
+    /**
+     * Fit the price axis to the bars visible up to the last bar. Returns
+     * false if the prices of those bars are not known yet.
+     */
+    private boolean initPriceScale() throws Exception {
+        // Get number of visible bars
+        int visibleBars = (int) ((dim.width-yAxisWidth)/barSpacing);
+        
+        // Get max and min price for visible bars, for initial y axis range
+        BigDecimal[] range = getPriceRange(visibleBars-1, 0);
+        if (range == null) return false;
+        
+        BigDecimal max = range[0];
+        BigDecimal min = range[1];
+        
+        // Calculate pixelPrice
+        setPricePixel(max.subtract(min).divide(new BigDecimal(pricePlotHeight), RoundingMode.HALF_UP));
+        
+        // Calculate lastBarOpenY
+        BigDecimal openMinDiff = lastMarket.getOpenPrice().subtract(min);
+        lastBarOpenY = openMinDiff.divide(pricePixel, RoundingMode.HALF_DOWN).intValue()+10;
+        
+        return true;
+    }
+    
+    /**
+     * Returns true if there is a data source with a price axis to plot.
+     */
+    private boolean hasPriceData() {
+        return dataSource != null && lastMarket != null && pricePixel != null;
+    }
 
     public void mouseClicked(MouseEvent e) {
         mouseClickedState = true;
@@ -226,45 +284,226 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
         boolean doRepaint = false;
         
         if (isOverPricePlot(e)) {
+            double lastBarSpacing = barSpacing;
+            TimeUnit timeOnX = getTimeForX(e.getX());
+            
             if (e.getUnitsToScroll()/Math.abs(e.getUnitsToScroll()) > 0) {
-                barWidth++;
-                
-                try {
-                    TimeUnit timeOnX = getTimeForX(e.getX());
-                    int between = dataSource.getTicksBetween(lastMarket.getTicker(), timeOnX, lastMarket.getMarketTime());
-                    lastBarOpenX += between;
-                }
-                catch (Exception ex) {}
+                // Whole pixels from 3 and up, otherwise fractions of a pixel
+                if (barSpacing >= 3)
+                    barSpacing++;
+                else
+                    barSpacing = Math.min(3, barSpacing * 1.25);
             }
-            else if (barWidth > 3) {
-                barWidth--;
-                try {
-                    TimeUnit timeOnX = getTimeForX(e.getX());
-                    int between = dataSource.getTicksBetween(lastMarket.getTicker(), timeOnX, lastMarket.getMarketTime());
-                    lastBarOpenX -= between;
-                }
-                catch (Exception ex) {}
+            else if (barSpacing > 3) {
+                barSpacing--;
+            }
+            else {
+                barSpacing = Math.max(MIN_BAR_SPACING, barSpacing / 1.25);
             }
             
+            // Keep the bar under the mouse in place
+            try {
+                int between = dataSource.getTicksBetween(lastMarket.getTicker(), timeOnX, lastMarket.getMarketTime());
+                lastBarOpenX += (int) Math.round(between * (barSpacing - lastBarSpacing));
+            }
+            catch (Exception ex) {}
             
             doRepaint = true;
         }
-        else if (isOverPricePlotYAxis(e)) {
+        else if (isOverPricePlotYAxis(e) && pricePixel != null) {
             double adjust = pricePixel.doubleValue()*0.05*(e.getUnitsToScroll()/Math.abs(e.getUnitsToScroll()));
             // NOTE dirty hack, make this better..
             if (Math.abs(adjust) < 0.005)
                 adjust = 0.005*(adjust/Math.abs(adjust));
-            pricePixel = pricePixel.multiply(new BigDecimal(1+adjust), MathContext.DECIMAL32);
+            setPricePixel(pricePixel.multiply(new BigDecimal(1+adjust), MathContext.DECIMAL32));
+            autoScale = false;
             
             doRepaint = true;
         }
         
         if (doRepaint) {
+            autoScale();
             renderCache = null;
+            fireVisibleRangeChanged();
             repaint();
         }
     }
     
+    public void marketDataChanged(MarketData dataSource, Market market, boolean added) {
+        Market currentMarket = lastMarket;
+        if (currentMarket == null || !currentMarket.getTicker().equalsIgnoreCase(market.getTicker()))
+            return;
+        
+        if (liveRefreshPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    liveRefreshPending.set(false);
+                    refreshLiveData();
+                }
+            });
+        }
+    }
+    
+    /**
+     * Pick up changes made to the data source since the last refresh. If the
+     * last bar was the last plotted bar, new bars are plotted at its position,
+     * so the plot follows the live data.
+     */
+    private void refreshLiveData() {
+        if (dataSource == null || lastMarket == null)
+            return;
+        
+        try {
+            String ticker = lastMarket.getTicker();
+            Market liveMarket = dataSource.getLast(ticker);
+            if (liveMarket == null) return;
+            
+            TimeUnit lastMarketUnit = lastMarket.getMarketTime();
+            long lastMarketTime = lastMarketUnit.getTimeInMillis();
+            Market newLastMarket;
+            if (lastMarketTime >= liveTime)
+                newLastMarket = liveMarket;
+            else
+                newLastMarket = dataSource.get(ticker, lastMarket.getMarketTime());
+            
+            if (newLastMarket != null) {
+                // Keep the price axis in place, since y positions are relative to the last open price
+                if (pricePixel != null) {
+                    BigDecimal openDiff = newLastMarket.getOpenPrice().subtract(lastMarket.getOpenPrice());
+                    lastBarOpenY += openDiff.divide(pricePixel, RoundingMode.HALF_UP).intValue();
+                }
+                lastMarket = newLastMarket;
+            }
+            
+            // First bars loaded by a data source loading in the background
+            if (firstMarket == null)
+                firstMarket = dataSource.getFirst(ticker);
+            if (pricePixel == null)
+                initPriceScale();
+            
+            liveTime = liveMarket.getMarketTime().getTimeInMillis();
+            xCacheForTime.clear();
+            xCacheForTick.clear();
+            
+            // Bars before the last bar keep their place unless the last bar moved,
+            // which for ticks may be to another tick of the same millisecond
+            if (newLastMarket != null && !newLastMarket.getMarketTime().equals(lastMarketUnit))
+                timeCacheForX.clear();
+            autoScale();
+            fireVisibleRangeChanged();
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+        }
+        
+        renderCache = null;
+        repaint();
+    }
+    
+    /**
+     * Set whether the price axis follows the visible bars, so that their
+     * high and low fill the price plot while panning and zooming. Moving
+     * the price axis by hand turns this off.
+     * 
+     * @param autoScale True to scale the price axis automatically
+     */
+    public void setAutoScale(boolean autoScale) {
+        this.autoScale = autoScale;
+        
+        if (autoScale) {
+            autoScale();
+            renderCache = null;
+            repaint();
+        }
+    }
+    
+    public boolean isAutoScale() {
+        return autoScale;
+    }
+    
+    /**
+     * Fit the price axis to the visible bars, if auto scale is on.
+     */
+    private void autoScale() {
+        if (!autoScale || !hasPriceData())
+            return;
+        
+        try {
+            int plotWidth = dim.width - getYAxisWidth() - 1;
+            BigDecimal[] range = getPriceRange(getTicksForX(0), getTicksForX(plotWidth));
+            if (range == null) return;
+            
+            BigDecimal max = range[0];
+            BigDecimal min = range[1];
+            
+            // Same fit as setMarketData, with 10 pixels of room below the low
+            BigDecimal newPricePixel = max.subtract(min).divide(new BigDecimal(pricePlotHeight), MathContext.DECIMAL64);
+            if (newPricePixel.signum() <= 0) return;
+            
+            setPricePixel(newPricePixel);
+            lastBarOpenY = lastMarket.getOpenPrice().subtract(min).divide(pricePixel, RoundingMode.HALF_DOWN).intValue()+10;
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+        }
+    }
+    
+    /**
+     * Returns the max high and min low of the bars from given number of
+     * bars before the last bar to given number of bars before the last bar,
+     * or null if there are no such bars. Uses the level of detail pyramid
+     * of the bar store when available, so the cost does not depend on the
+     * number of bars.
+     */
+    private BigDecimal[] getPriceRange(int fromTicks, int toTicks) throws Exception {
+        if (dataSource instanceof BarStoreSource) {
+            BarStore store = ((BarStoreSource) dataSource).getBarStore(lastMarket.getTicker());
+            if (store != null) {
+                int lastIndex = store.getTimeIndex().indexOnOrBefore(lastMarket.getMarketTime().getTimeInMillis());
+                int from = Math.max(0, lastIndex - fromTicks);
+                int to = lastIndex - toTicks;
+                if (to < from) return null;
+                
+                long[] result = new long[4];
+                BarPyramid.get(store, BarPyramid.OHLC).getRange(from, to+1, result);
+                
+                return new BigDecimal[] {
+                    BigDecimal.valueOf(result[BarPyramid.MAX], store.getPriceScale()),
+                    BigDecimal.valueOf(result[BarPyramid.MIN], store.getPriceScale())
+                };
+            }
+        }
+        
+        Market max = null;
+        Market min = null;
+        MarketCursor cursor = dataSource.cursor(lastMarket.getTicker(), null, lastMarket.getMarketTime(), false);
+        for (int x = 0; x <= fromTicks && cursor.next(); x++) {
+            if (x < toTicks) continue;
+            
+            Market currentMarket = cursor.getMarket();
+            if (max == null || max.getHighDouble() < currentMarket.getHighDouble())
+                max = currentMarket;
+            if (min == null || min.getLowDouble() > currentMarket.getLowDouble())
+                min = currentMarket;
+        }
+        
+        return max == null ? null : new BigDecimal[] { max.getHighPrice(), min.getLowPrice() };
+    }
+    
+    /**
+     * Tell the data source which bars are visible, if it wants to know.
+     */
+    private void fireVisibleRangeChanged() {
+        if (!(dataSource instanceof VisibleRangeListener) || lastMarket == null)
+            return;
+        
+        int plotWidth = dim.width - getYAxisWidth() - 1;
+        TimeUnit first = getTimeForX(0);
+        TimeUnit last = getTimeForX(plotWidth);
+        
+        ((VisibleRangeListener) dataSource).visibleRangeChanged(lastMarket.getTicker(), first, last, (int) (plotWidth / barSpacing));
+    }
+    
     public boolean isMouseClicked() {
         return mouseClickedState;
     }
@@ -297,8 +536,9 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
      */
     public int getXForTime(TimeUnit time) {
         // Check cache
-        if (xCacheForTime.containsKey(time.getTime().getTimeInMillis()))
-            return lastBarOpenX - (barWidth*xCacheForTime.get(time.getTime().getTimeInMillis()));
+        Integer ticks = time instanceof Tick ? xCacheForTick.get((Tick) time) : xCacheForTime.get(time.getTimeInMillis());
+        if (ticks != null)
+            return getXForTicks(ticks);
         
         String ticker = lastMarket.getTicker();
         TimeUnit end = lastMarket.getMarketTime();
@@ -306,16 +546,43 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
         try {
             int x = dataSource.getTicksBetween(ticker, time, end);
             
-            // Add to/update cache
-            xCacheForTime.put(time.getTime().getTimeInMillis(), x);
+            // Add to/update cache, starting over when zoomed out over many bars
+            if (time instanceof Tick) {
+                if (xCacheForTick.size() >= MAX_X_CACHE_SIZE)
+                    xCacheForTick.clear();
+                xCacheForTick.put((Tick) time, x);
+            }
+            else {
+                if (xCacheForTime.size() >= MAX_X_CACHE_SIZE)
+                    xCacheForTime.clear();
+                xCacheForTime.put(time.getTimeInMillis(), x);
+            }
             
-            return lastBarOpenX - (barWidth*x);
+            return getXForTicks(x);
         }
         catch (Exception e) {
             return 0;
         }
     }
 
+    public int getXForTime(long time) {
+        if (lastMarket.getMarketTime() instanceof Tick)
+            return getXForTime(new Tick(time));
+        
+        Integer ticks = xCacheForTime.get(time);
+        if (ticks != null)
+            return getXForTicks(ticks);
+        
+        return getXForTime(TimeUtils.getTimeUnit(lastMarket.getMarketTime().getResolutionDescription(), time));
+    }
+
+    public int getXForCursor(MarketCursor cursor) {
+        if (lastMarket.getMarketTime() instanceof Tick)
+            return getXForTime(cursor.getView().getMarketTime());
+        
+        return getXForTime(cursor.getTime());
+    }
+
     /**
      * Returns the time at given X. If X is not within the visible area,
      * null is returned.
@@ -327,26 +594,105 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
         if (x < 0 || x > dim.width - getYAxisWidth() - 1)
             return null;
         
-        int between = (x - lastBarOpenX)/-barWidth;
+        int between = getTicksForX(x);
+        if (between == 0)
+            return lastMarket.getMarketTime();
         
-        if (timeCacheForX.containsKey(between))
-            return timeCacheForX.get(between);
+        TimeUnit timeForX = timeCacheForX.get(between);
+        if (timeForX != null)
+            return timeForX;
         
+        return getTimeForTicks(between);
+    }
+    
+    /**
+     * Returns the X pixel position of the bar given number of bars before
+     * the last bar.
+     */
+    private int getXForTicks(int ticks) {
+        return lastBarOpenX - (int) Math.floor(ticks * barSpacing);
+    }
+    
+    /**
+     * Returns the number of bars before the last bar of the bar covering
+     * given X, being the last bar starting at or before X.
+     */
+    private int getTicksForX(int x) {
+        int distance = lastBarOpenX - x;
+        if (distance <= 0)
+            return 0;
+        
+        int ticks = (int) Math.ceil(distance / barSpacing);
+        
+        // Correct any rounding errors
+        while (ticks > 0 && getXForTicks(ticks - 1) <= x)
+            ticks--;
+        while (getXForTicks(ticks) > x)
+            ticks++;
+        
+        return ticks;
+    }
+    
+    /**
+     * Returns the time of the bar given number of bars before the last bar,
+     * or of the first bar if there are not that many bars, and caches it.
+     */
+    private TimeUnit getTimeForTicks(int ticks) {
+        if (timeCacheForX.size() > MAX_TIME_CACHE_SIZE)
+            timeCacheForX.clear();
         
-        TimeUnit timeForX = lastMarket.getMarketTime();
-        TimeUnit useThisTime = timeForX;
-        int lastX = Integer.MIN_VALUE;
-        long firstTime = firstMarket.getMarketTime().getTime().getTimeInMillis();
-        while (x < getXForTime(timeForX) && timeForX.getTime().getTimeInMillis() > firstTime) {
-            timeForX = timeForX.getSubOne();
-            if (getXForTime(timeForX) != lastX) {
-                lastX = getXForTime(timeForX);
-                useThisTime = timeForX;
+        try {
+            if (dataSource instanceof BarStoreSource) {
+                BarStore store = ((BarStoreSource) dataSource).getBarStore(lastMarket.getTicker());
+                if (store != null) {
+                    int lastIndex = store.getTimeIndex().indexOnOrBefore(lastMarket.getMarketTime().getTimeInMillis());
+                    int index = Math.max(0, lastIndex - ticks);
+                    TimeUnit time = TimeUtils.getTimeUnit(store.getResolution(), store.getTime(index));
+                    timeCacheForX.put(ticks, time);
+                    return time;
+                }
             }
+            
+            // Walk from the closest bar already found, as panning moves a few bars at a time
+            Market market = lastMarket;
+            int at = 0;
+            Map.Entry<Integer, TimeUnit> before = timeCacheForX.floorEntry(ticks);
+            Map.Entry<Integer, TimeUnit> after = timeCacheForX.ceilingEntry(ticks);
+            Map.Entry<Integer, TimeUnit> closest = before;
+            if (after != null && (before == null || after.getKey() - ticks < ticks - before.getKey()))
+                closest = after;
+            
+            if (closest != null && Math.abs(closest.getKey() - ticks) < ticks) {
+                Market anchor = dataSource.get(lastMarket.getTicker(), closest.getValue());
+                if (anchor != null) {
+                    market = anchor;
+                    at = closest.getKey();
+                }
+            }
+            
+            while (at < ticks) {
+                Market previous = dataSource.getPrevious(market);
+                if (previous == null) break;
+                market = previous;
+                at++;
+            }
+            while (at > ticks) {
+                Market next = dataSource.getNext(market);
+                if (next == null) break;
+                market = next;
+                at--;
+            }
+            
+            // Data sources loading in the background may not have all bars yet, so cache
+            // the bar reached at its own distance, to go on from there next time
+            TimeUnit time = market.getMarketTime();
+            timeCacheForX.put(at, time);
+            
+            return time;
+        }
+        catch (Exception e) {
+            return firstMarket == null ? null : firstMarket.getMarketTime();
         }
-        
-        timeCacheForX.put(between, useThisTime);
-        return useThisTime;
     }
     
     /**
@@ -361,6 +707,11 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
         return pricePlotHeight - diff.divide(pricePixel, MathContext.DECIMAL128).intValue() - lastBarOpenY;
     }
     
+    public int getYForPrice(double price) {
+        double diff = price - lastMarket.getOpenDouble();
+        return pricePlotHeight - (int) (diff / pricePixelDouble) - lastBarOpenY;
+    }
+    
     public BigDecimal getPriceForY(int y) {
         BigDecimal negative_pPy = pricePixel.multiply(BigDecimal.valueOf(y), MathContext.DECIMAL128).multiply(BigDecimal.valueOf(-1), MathContext.DECIMAL128);
         BigDecimal pPpPH = pricePixel.multiply(BigDecimal.valueOf(pricePlotHeight), MathContext.DECIMAL128);
@@ -369,12 +720,21 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
         return negative_pPy.add(pPpPH).add(negative_pPlBOY).add(lastMarket.getOpenPrice());
     }
     
+    private void setPricePixel(BigDecimal pricePixel) {
+        this.pricePixel = pricePixel;
+        this.pricePixelDouble = pricePixel.doubleValue();
+    }
+    
     public int getPricePlotHeight() {
         return pricePlotHeight;
     }
 
     public int getBarWidth() {
-        return barWidth;
+        return Math.max(1, (int) barSpacing);
+    }
+    
+    public double getBarSpacing() {
+        return barSpacing;
     }
     
     private void mouseEventHandler(MouseEvent e) {
@@ -408,7 +768,8 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
                     
                     // Update pricePixel
                     double aspect = ((double)pricePlotHeight)/(double)lastPricePlotHeight;
-                    pricePixel = pricePixel.divide(new BigDecimal(aspect), RoundingMode.HALF_EVEN);
+                    if (pricePixel != null)
+                        setPricePixel(pricePixel.divide(new BigDecimal(aspect), RoundingMode.HALF_EVEN));
                     
                     doRepaint = true;
                 }
@@ -418,13 +779,16 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
                 
                 lastBarOpenX += e.getX()-lastMouseX;
                 lastBarOpenY += lastMouseY-e.getY();
+                autoScale();
                 
+                fireVisibleRangeChanged();
                 doRepaint = true;
             }
             else if (currentMouseDrag == DRAG_PRICE_Y) {
                 setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
                 
                 lastBarOpenY += lastMouseY-e.getY();
+                autoScale = false;
                 
                 doRepaint = true;
             }
@@ -503,7 +867,7 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
         
         g.drawImage(renderCache, 0, 0, null);
         
-        if (isMouseReleased() && isOverPricePlot(currentMouseX, currentMouseY))
+        if (isMouseReleased() && isOverPricePlot(currentMouseX, currentMouseY) && hasPriceData())
             drawPointerCross(g2d);
         
         // Draw resize lines
@@ -530,7 +894,8 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
             
             // Update pricePixel
             aspect = ((double)pricePlotHeight)/(double)lastPricePlotHeight;
-            pricePixel = pricePixel.divide(new BigDecimal(aspect), RoundingMode.HALF_EVEN);
+            if (pricePixel != null)
+                setPricePixel(pricePixel.divide(new BigDecimal(aspect), RoundingMode.HALF_EVEN));
             
             updated = true;
         }
@@ -553,7 +918,7 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
     }
     
     private void drawPrePriceIndicators(Graphics2D g) {
-        if (dataSource == null || lastMarket == null || inlinePrePriceIndicators.size() == 0)
+        if (!hasPriceData() || inlinePrePriceIndicators.size() == 0)
             return; // Nothing to do
         
         int plotHeight = pricePlotHeight-1;
@@ -575,6 +940,10 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
             if (plotHeight > 50 && plotWidth > 150)
                 g.drawString("No price data available", 10, 40);
         }
+        else if (pricePixel == null) {
+            if (plotHeight > 50 && plotWidth > 150)
+                g.drawString("Loading price data", 10, 40);
+        }
         else if (pricePlotRenderer == null) {
             if (plotHeight > 50 && plotWidth > 150)
                 g.drawString("No price plot renderer available", 10, 40);
@@ -590,7 +959,7 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
     }
     
     private void drawPostPriceIndicators(Graphics2D g) {
-        if (dataSource == null || lastMarket == null || inlinePostPriceIndicators.size() == 0)
+        if (!hasPriceData() || inlinePostPriceIndicators.size() == 0)
             return; // Nothing to do
         
         int plotHeight = pricePlotHeight-1;
@@ -644,7 +1013,7 @@ public class PlotFrameComponent extends JComponent implements MouseListener, Mou
         g.setColor(Color.BLACK);
         g.drawLine(plotWidth, 0, plotWidth, plotHeight);
         
-        if (pricePlotHeight < 40) return;
+        if (pricePlotHeight < 40 || !hasPriceData()) return;
         
         g.drawLine(plotWidth, 10, plotWidth+3, 10);
         g.drawLine(plotWidth, pricePlotHeight-10, plotWidth+3, pricePlotHeight-10);
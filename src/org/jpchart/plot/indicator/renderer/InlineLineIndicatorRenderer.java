@@ -22,11 +22,15 @@ package org.jpchart.plot.indicator.renderer;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
+import org.jpchart.indicator.IndicatorCache;
+import org.jpchart.indicator.IndicatorValues;
 import org.jpchart.indicator.SimpleIndicator;
 import org.jpchart.plot.PlotFrame;
 import org.jpchart.plot.indicator.InlineIndicatorRenderer;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.BarStoreSource;
+import org.jpchart.data.MarketCursor;
+import org.jpchart.data.TimeIndex;
 import org.jpchart.market.Market;
 import org.jpchart.time.TimeUnit;
 
@@ -36,7 +40,6 @@ import org.jpchart.time.TimeUnit;
  */
 public class InlineLineIndicatorRenderer implements InlineIndicatorRenderer {
     private final SimpleIndicator indicator;
-    private Map<Long, BigDecimal> valueCache = new HashMap<Long, BigDecimal>();
     
     public InlineLineIndicatorRenderer(SimpleIndicator indicator) {
         this.indicator = indicator;
@@ -44,60 +47,91 @@ public class InlineLineIndicatorRenderer implements InlineIndicatorRenderer {
     
     public void paintInline(Graphics2D g, PlotFrame plotFrame) {
         g.setColor(Color.BLACK);
-
+        
         int barWidth = plotFrame.getBarWidth();
         int xEnd = 1;
         int xStart = 1;
-
+        
         Market lastMarket = plotFrame.getLastMarket();
-        Market currentMarket = null;
         TimeUnit lastVisible = plotFrame.getTimeForX(g.getClipBounds().width);
         
+        MarketCursor cursor = null;
         try {
-            currentMarket = plotFrame.getDataSource().getOnOrBefore(lastMarket.getTicker(), lastVisible);
+            cursor = plotFrame.getDataSource().cursor(lastMarket.getTicker(), null, lastVisible, false);
+            if (!cursor.next()) return;
         } catch (Exception e) {
-            currentMarket = lastMarket;
+            System.err.println(e.toString());
+            return;
         }
-
-        while (currentMarket != null && xEnd > 0) {
-            xEnd = plotFrame.getXForTime(currentMarket.getMarketTime());
-
-            if (xEnd <= g.getClipBounds().width - barWidth) {
-                Market previousMarket = null;
-                try {
-                    previousMarket = currentMarket.getPrevious();
-                    xStart = plotFrame.getXForTime(previousMarket.getMarketTime());
-                }
-                catch (Exception e) {
-                    return;
-                }
-                
-                BigDecimal currentValue = valueCache.get(currentMarket.getMarketTime().getTime().getTimeInMillis());
-                BigDecimal previousValue = valueCache.get(previousMarket.getMarketTime().getTime().getTimeInMillis());
-                
-                if (currentValue == null) {
-                    currentValue = indicator.getValue(currentMarket);
-                    valueCache.put(currentMarket.getMarketTime().getTime().getTimeInMillis(), currentValue);
-                }
-                if (previousValue == null) {
-                    previousValue = indicator.getValue(previousMarket);
-                    valueCache.put(previousMarket.getMarketTime().getTime().getTimeInMillis(), previousValue);
+        
+        IndicatorValues values = IndicatorCache.getDefault().get(indicator, plotFrame.getDataSource(), lastMarket.getTicker(), lastMarket.getMarketTime().getResolutionDescription());
+        
+        // With a bar store, compute the visible bars together with the other cached indicators
+        int index = -1;
+        int first = Integer.MAX_VALUE;
+        BarStore store = getBarStore(plotFrame);
+        if (store != null) {
+            TimeIndex timeIndex = store.getTimeIndex();
+            index = timeIndex.indexOf(cursor.getTime());
+            
+            TimeUnit firstVisible = plotFrame.getTimeForX(0);
+            int firstIndex = firstVisible == null ? 0 : Math.max(0, timeIndex.indexOnOrBefore(firstVisible.getTimeInMillis()) - 1);
+            
+            try {
+                if (index >= 0) {
+                    values.update(store, Math.min(firstIndex, index), index);
+                    first = Math.min(firstIndex, index);
                 }
-                
+            }
+            catch (Exception e) {
+                System.err.println(e.toString());
+            }
+        }
+        
+        // The cursor view moves on to the previous bar, so keep the value of the current bar
+        BigDecimal currentValue = index >= first ? values.getValue(index) : values.getValue(cursor);
+        xEnd = plotFrame.getXForCursor(cursor);
+        
+        while (xEnd > 0) {
+            try {
+                if (!cursor.next()) return;
+            } catch (Exception e) {
+                return;
+            }
+            
+            index--;
+            BigDecimal previousValue = index >= first ? values.getValue(index) : values.getValue(cursor);
+            xStart = plotFrame.getXForCursor(cursor);
+            
+            if (xEnd <= g.getClipBounds().width - barWidth) {
                 if (currentValue != null && previousValue != null) {
                     int currentY = plotFrame.getYForPrice(currentValue);
                     int previousY = plotFrame.getYForPrice(previousValue);
-
+                    
                     // Draw line
                     g.drawLine(xStart, previousY, xEnd, currentY);
                 }
             }
-
-            try {
-                currentMarket = currentMarket.getPrevious();
-            } catch (Exception e) {
-                currentMarket = null;
-            }
+            
+            xEnd = xStart;
+            currentValue = previousValue;
+        }
+    }
+    
+    /**
+     * Returns the bar store of the plotted ticker, or null if the data
+     * source does not keep its bars in one.
+     */
+    private BarStore getBarStore(PlotFrame plotFrame) {
+        if (!(plotFrame.getDataSource() instanceof BarStoreSource))
+            return null;
+        
+        try {
+            return ((BarStoreSource) plotFrame.getDataSource()).getBarStore(plotFrame.getLastMarket().getTicker());
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return null;
         }
     }
 }
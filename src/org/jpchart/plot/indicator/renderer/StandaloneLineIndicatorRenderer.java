@@ -23,8 +23,12 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.BarStoreSource;
+import org.jpchart.data.MarketCursor;
+import org.jpchart.data.TimeIndex;
+import org.jpchart.indicator.IndicatorCache;
+import org.jpchart.indicator.IndicatorValues;
 import org.jpchart.indicator.SimpleIndicator;
 import org.jpchart.market.Market;
 import org.jpchart.plot.PlotFrame;
@@ -38,7 +42,6 @@ import org.jpchart.time.TimeUnit;
  */
 public class StandaloneLineIndicatorRenderer extends AbstractStandaloneIndicatorRenderer implements StandaloneIndicatorRenderer {
     private final SimpleIndicator indicator;
-    private Map<Long, BigDecimal> valueCache = new HashMap<Long, BigDecimal>();
     private final boolean autoSetLimits;
     
     public StandaloneLineIndicatorRenderer(SimpleIndicator indicator) {
@@ -62,7 +65,88 @@ public class StandaloneLineIndicatorRenderer extends AbstractStandaloneIndicator
 
     public void paintStandalone(Graphics2D g, PlotFrame plotFrame) {
         g.setColor(Color.BLACK);
-
+        
+        BarStore store = null;
+        if (plotFrame.getDataSource() instanceof BarStoreSource) {
+            try {
+                store = ((BarStoreSource) plotFrame.getDataSource()).getBarStore(plotFrame.getLastMarket().getTicker());
+            }
+            catch (Exception e) {
+                System.err.println(e.toString());
+            }
+        }
+        
+        if (store != null)
+            paintIndexed(g, plotFrame, store);
+        else
+            paintWalking(g, plotFrame);
+        
+        drawAxis(g, plotFrame);
+        if (!autoSetLimits) {
+            drawLine(g, plotFrame, getUpperLimit().subtract(BigDecimal.valueOf(10)), Color.BLACK, true);
+            drawLine(g, plotFrame, getLowerLimit().add(BigDecimal.valueOf(10)), Color.BLACK, true);
+        }
+    }
+    
+    /**
+     * Paint using values kept by bar index, finding the limits of the
+     * visible values with the range index instead of going through them.
+     */
+    private void paintIndexed(Graphics2D g, PlotFrame plotFrame, BarStore store) {
+        int height = g.getClipBounds().height;
+        int maxX = g.getClipBounds().width - plotFrame.getYAxisWidth() - plotFrame.getBarWidth();
+        
+        // Visible bars, from the one covering the left edge
+        TimeIndex timeIndex = store.getTimeIndex();
+        Market lastMarket = plotFrame.getLastMarket();
+        TimeUnit firstVisible = plotFrame.getTimeForX(0);
+        TimeUnit lastVisible = plotFrame.getTimeForX(maxX);
+        if (lastVisible == null)
+            lastVisible = lastMarket.getMarketTime();
+        
+        int first = firstVisible == null ? 0 : Math.max(0, timeIndex.indexOnOrBefore(firstVisible.getTimeInMillis()));
+        int last = timeIndex.indexOnOrBefore(Math.min(lastVisible.getTimeInMillis(), lastMarket.getMarketTime().getTimeInMillis()));
+        if (last < first) return;
+        
+        IndicatorValues values = IndicatorCache.getDefault().get(indicator, plotFrame.getDataSource(), lastMarket.getTicker(), store.getResolution());
+        try {
+            values.update(store, first, last);
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return;
+        }
+        
+        if (autoSetLimits) {
+            int maxIndex = values.getMaxIndex(first, last+1);
+            int minIndex = values.getMinIndex(first, last+1);
+            
+            if (maxIndex < 0)
+                setLimits(BigDecimal.valueOf(Long.MIN_VALUE), BigDecimal.valueOf(Long.MAX_VALUE));
+            else
+                setLimits(values.getValue(maxIndex), values.getValue(minIndex));
+        }
+        
+        int prevX = 0, prevY = 0;
+        BigDecimal prevValue = null;
+        for (int index = first; index <= last; index++) {
+            BigDecimal value = values.getValue(index);
+            int x = plotFrame.getXForTime(store.getTime(index));
+            int y = value == null ? 0 : getYForValue(value, height);
+            
+            if (index > first && value != null && prevValue != null && x <= maxX)
+                g.drawLine(prevX, prevY, x, y);
+            
+            prevX = x;
+            prevY = y;
+            prevValue = value;
+        }
+    }
+    
+    /**
+     * Paint by walking the visible bars, for data sources without a bar store.
+     */
+    private void paintWalking(Graphics2D g, PlotFrame plotFrame) {
         int yAxisWidth = plotFrame.getYAxisWidth();
         int barWidth = plotFrame.getBarWidth();
         int xEnd = 1;
@@ -71,13 +155,19 @@ public class StandaloneLineIndicatorRenderer extends AbstractStandaloneIndicator
         Market lastMarket = plotFrame.getLastMarket();
         Market currentMarket = null;
         TimeUnit lastVisible = plotFrame.getTimeForX(g.getClipBounds().width);
+        if (lastVisible == null)
+            lastVisible = lastMarket.getMarketTime();
         
+        MarketCursor cursor = null;
         try {
-            currentMarket = plotFrame.getDataSource().getOnOrBefore(lastMarket.getTicker(), lastVisible);
+            cursor = plotFrame.getDataSource().cursor(lastMarket.getTicker(), null, lastVisible, false);
+            currentMarket = cursor.next() ? cursor.getMarket() : null;
         } catch (Exception e) {
-            currentMarket = lastMarket;
+            System.err.println(e.toString());
+            return;
         }
 
+        IndicatorValues cachedValues = IndicatorCache.getDefault().get(indicator, plotFrame.getDataSource(), lastMarket.getTicker(), lastMarket.getMarketTime().getResolutionDescription());
         ArrayList<BigDecimal> values = new ArrayList<BigDecimal>();
         ArrayList<Market> markets = new ArrayList<Market>();
         BigDecimal maxValue = BigDecimal.valueOf(Long.MIN_VALUE);
@@ -87,12 +177,7 @@ public class StandaloneLineIndicatorRenderer extends AbstractStandaloneIndicator
             xEnd = plotFrame.getXForTime(currentMarket.getMarketTime());
 
             if (xEnd <= g.getClipBounds().width - yAxisWidth - barWidth) {
-                BigDecimal currentValue = valueCache.get(currentMarket.getMarketTime().getTime().getTimeInMillis());
-                
-                if (currentValue == null) {
-                    currentValue = indicator.getValue(currentMarket);
-                    valueCache.put(currentMarket.getMarketTime().getTime().getTimeInMillis(), currentValue);
-                }
+                BigDecimal currentValue = cachedValues.getValue(currentMarket);
                 
                 values.add(currentValue);
                 markets.add(currentMarket);
@@ -104,7 +189,7 @@ public class StandaloneLineIndicatorRenderer extends AbstractStandaloneIndicator
             }
 
             try {
-                currentMarket = currentMarket.getPrevious();
+                currentMarket = cursor.next() ? cursor.getMarket() : null;
             } catch (Exception e) {
                 currentMarket = null;
             }
@@ -129,11 +214,5 @@ public class StandaloneLineIndicatorRenderer extends AbstractStandaloneIndicator
             
             g.drawLine(preX, preY, curX, curY);
         }
-        
-        drawAxis(g, plotFrame);
-        if (!autoSetLimits) {
-            drawLine(g, plotFrame, getUpperLimit().subtract(BigDecimal.valueOf(10)), Color.BLACK, true);
-            drawLine(g, plotFrame, getLowerLimit().add(BigDecimal.valueOf(10)), Color.BLACK, true);
-        }
     }
 }
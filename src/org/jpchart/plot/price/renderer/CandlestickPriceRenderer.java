@@ -20,7 +20,10 @@
 package org.jpchart.plot.price.renderer;
 
 import org.jpchart.plot.price.*;
+import org.jpchart.data.BarPyramid;
+import org.jpchart.data.MarketCursor;
 import org.jpchart.market.Market;
+import org.jpchart.plot.BarColumns;
 import org.jpchart.plot.PlotFrame;
 import org.jpchart.time.TimeUnit;
 import java.awt.Color;
@@ -33,6 +36,16 @@ import java.awt.Graphics2D;
 public class CandlestickPriceRenderer implements PricePlotRenderer {
     public void paint(Graphics2D g, PlotFrame plotFrame) {
         g.setColor(Color.BLACK);
+        
+        // When zoomed out, draw the range of each pixel column instead of every bar
+        BarColumns columns = BarColumns.create(plotFrame, BarPyramid.OHLC, g.getClipBounds().width);
+        if (columns != null) {
+            while (columns.next()) {
+                g.setColor(columns.getFirst() < columns.getLast() ? Color.GREEN : Color.RED);
+                g.drawLine(columns.getX(), columns.getY(columns.getMax()), columns.getX(), columns.getY(columns.getMin()));
+            }
+            return;
+        }
 
         int barWidth = plotFrame.getBarWidth();
         int barXStart = 1;
@@ -41,22 +54,25 @@ public class CandlestickPriceRenderer implements PricePlotRenderer {
         Market currentMarket = null;
         TimeUnit lastVisible = plotFrame.getTimeForX(g.getClipBounds().width);
         
+        MarketCursor cursor = null;
         try {
-            currentMarket = plotFrame.getDataSource().getOnOrBefore(lastMarket.getTicker(), lastVisible);
+            cursor = plotFrame.getDataSource().cursor(lastMarket.getTicker(), null, lastVisible, false);
+            currentMarket = cursor.next() ? cursor.getView() : null;
         } catch (Exception e) {
-            currentMarket = lastMarket;
+            System.err.println(e.toString());
+            return;
         }
 
         while (currentMarket != null && barXStart > 0) {
-            barXStart = plotFrame.getXForTime(currentMarket.getMarketTime());
+            barXStart = plotFrame.getXForCursor(cursor);
 
             if (barXStart <= g.getClipBounds().width - barWidth) {
-                int openY = plotFrame.getYForPrice(currentMarket.getOpenPrice());
-                int closeY = plotFrame.getYForPrice(currentMarket.getClosePrice());
-                int highY = plotFrame.getYForPrice(currentMarket.getHighPrice());
-                int lowY = plotFrame.getYForPrice(currentMarket.getLowPrice());
+                int openY = plotFrame.getYForPrice(currentMarket.getOpenDouble());
+                int closeY = plotFrame.getYForPrice(currentMarket.getCloseDouble());
+                int highY = plotFrame.getYForPrice(currentMarket.getHighDouble());
+                int lowY = plotFrame.getYForPrice(currentMarket.getLowDouble());
                 
-                if (currentMarket.getOpenPrice().compareTo(currentMarket.getClosePrice()) < 0) {
+                if (currentMarket.getOpenScaled() < currentMarket.getCloseScaled()) {
                     // Up, white
                     g.setColor(Color.GREEN);
                     g.fillRect(barXStart, Math.min(openY, closeY), barWidth - 1, Math.max(openY, closeY) - Math.min(openY, closeY) + 1);
@@ -72,7 +88,7 @@ public class CandlestickPriceRenderer implements PricePlotRenderer {
             }
 
             try {
-                currentMarket = currentMarket.getPrevious();
+                currentMarket = cursor.next() ? cursor.getView() : null;
             } catch (Exception e) {
                 currentMarket = null;
             }
@@ -20,12 +20,14 @@
 package org.jpchart.plot.price.renderer;
 
 import org.jpchart.plot.price.*;
+import org.jpchart.data.BarPyramid;
+import org.jpchart.data.MarketCursor;
 import org.jpchart.market.Market;
+import org.jpchart.plot.BarColumns;
 import org.jpchart.plot.PlotFrame;
 import org.jpchart.time.TimeUnit;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.math.BigDecimal;
 
 /**
  *
@@ -48,56 +50,62 @@ public class LinePriceRenderer implements PricePlotRenderer {
         int barWidth = plotFrame.getBarWidth();
         int xEnd = 1;
         int xStart = 1;
+        
+        // When zoomed out, draw the range of each pixel column instead of every bar
+        BarColumns columns = BarColumns.create(plotFrame, getPyramidField(), g.getClipBounds().width);
+        if (columns != null) {
+            int nextX = 0;
+            long nextFirst = 0;
+            boolean hasNext = false;
+            
+            while (columns.next()) {
+                int x = columns.getX();
+                
+                setColor(g, columns.getLast(), columns.getFirst());
+                g.drawLine(x, columns.getY(columns.getMax()), x, columns.getY(columns.getMin()));
+                
+                // Connect to the column to the right
+                if (hasNext) {
+                    setColor(g, nextFirst, columns.getLast());
+                    g.drawLine(x, columns.getY(columns.getLast()), nextX, columns.getY(nextFirst));
+                }
+                
+                nextX = x;
+                nextFirst = columns.getFirst();
+                hasNext = true;
+            }
+            return;
+        }
 
         Market lastMarket = plotFrame.getLastMarket();
-        Market currentMarket = null;
         TimeUnit lastVisible = plotFrame.getTimeForX(g.getClipBounds().width);
         
+        MarketCursor cursor = null;
         try {
-            currentMarket = plotFrame.getDataSource().getOnOrBefore(lastMarket.getTicker(), lastVisible);
+            cursor = plotFrame.getDataSource().cursor(lastMarket.getTicker(), null, lastVisible, false);
+            if (!cursor.next()) return;
         } catch (Exception e) {
-            currentMarket = lastMarket;
+            System.err.println(e.toString());
+            return;
         }
+        
+        // The cursor view moves on to the previous bar, so keep the values of the current bar
+        double currentPrice = getPrice(cursor.getView());
+        xEnd = plotFrame.getXForCursor(cursor);
 
-        while (currentMarket != null && xEnd > 0) {
-            xEnd = plotFrame.getXForTime(currentMarket.getMarketTime());
+        while (xEnd > 0) {
+            try {
+                if (!cursor.next()) return;
+            } catch (Exception e) {
+                return;
+            }
+            
+            double previousPrice = getPrice(cursor.getView());
+            xStart = plotFrame.getXForCursor(cursor);
 
             if (xEnd <= g.getClipBounds().width - barWidth) {
-                BigDecimal currentPrice = null;
-                BigDecimal previousPrice = null;
-                
-                Market previousMarket = null;
-                try {
-                    previousMarket = currentMarket.getPrevious();
-                    xStart = plotFrame.getXForTime(previousMarket.getMarketTime());
-                }
-                catch (Exception e) {
-                    return;
-                }
-                
-                if (plotType == PlotTypes.OPEN) {
-                    currentPrice = currentMarket.getOpenPrice();
-                    previousPrice = previousMarket.getOpenPrice();
-                }
-                else if (plotType == PlotTypes.HIGH) {
-                    currentPrice = currentMarket.getHighPrice();
-                    previousPrice = previousMarket.getHighPrice();
-                }
-                else if (plotType == PlotTypes.LOW) {
-                    currentPrice = currentMarket.getLowPrice();
-                    previousPrice = previousMarket.getLowPrice();
-                }
-                else if (plotType == PlotTypes.CLOSE) {
-                    currentPrice = currentMarket.getClosePrice();
-                    previousPrice = previousMarket.getClosePrice();
-                }
-                else {
-                    // Undef
-                    return;
-                }
-                
                 if (useColors) {
-                    int rc = currentPrice.compareTo(previousPrice);
+                    int rc = Double.compare(currentPrice, previousPrice);
                     if (rc > 0)
                         g.setColor(Color.GREEN);
                     else if (rc < 0)
@@ -113,11 +121,41 @@ public class LinePriceRenderer implements PricePlotRenderer {
                 g.drawLine(xStart, previousY, xEnd, currentY);
             }
 
-            try {
-                currentMarket = currentMarket.getPrevious();
-            } catch (Exception e) {
-                currentMarket = null;
-            }
+            xEnd = xStart;
+            currentPrice = previousPrice;
+        }
+    }
+    
+    private double getPrice(Market market) {
+        if (plotType == PlotTypes.OPEN)
+            return market.getOpenDouble();
+        else if (plotType == PlotTypes.HIGH)
+            return market.getHighDouble();
+        else if (plotType == PlotTypes.LOW)
+            return market.getLowDouble();
+        else
+            return market.getCloseDouble();
+    }
+    
+    private int getPyramidField() {
+        if (plotType == PlotTypes.OPEN)
+            return BarPyramid.OPEN;
+        else if (plotType == PlotTypes.HIGH)
+            return BarPyramid.HIGH;
+        else if (plotType == PlotTypes.LOW)
+            return BarPyramid.LOW;
+        else
+            return BarPyramid.CLOSE;
+    }
+    
+    private void setColor(Graphics2D g, long currentPrice, long previousPrice) {
+        if (useColors) {
+            if (currentPrice > previousPrice)
+                g.setColor(Color.GREEN);
+            else if (currentPrice < previousPrice)
+                g.setColor(Color.RED);
+            else
+                g.setColor(Color.BLACK);
         }
     }
 }
@@ -20,8 +20,11 @@
 package org.jpchart.plot.price.renderer;
 
 import org.jpchart.plot.price.*;
+import org.jpchart.data.BarPyramid;
 import org.jpchart.data.MarketData;
+import org.jpchart.data.MarketCursor;
 import org.jpchart.market.Market;
+import org.jpchart.plot.BarColumns;
 import org.jpchart.plot.PlotFrame;
 import org.jpchart.time.TimeUnit;
 import java.awt.Color;
@@ -53,33 +56,57 @@ public class OHLCPriceRenderer implements PricePlotRenderer {
         }
         int lineWidth = 1;
         int barXStart = 1;
+        
+        // When zoomed out, draw the range of each pixel column instead of every bar
+        BarColumns columns = BarColumns.create(plotFrame, BarPyramid.OHLC, g.getClipBounds().width);
+        if (columns != null) {
+            while (columns.next()) {
+                if (useColors) {
+                    if (columns.getFirst() < columns.getLast())
+                        g.setColor(Color.GREEN);
+                    else if (columns.getFirst() > columns.getLast())
+                        g.setColor(Color.RED);
+                    else
+                        g.setColor(Color.BLACK);
+                }
+                
+                int highY = columns.getY(columns.getMax());
+                int lowY = columns.getY(columns.getMin());
+                g.fillRect(columns.getX(), highY, lineWidth, lowY - highY + 1);
+            }
+            return;
+        }
 
         MarketData dataSource = plotFrame.getDataSource();
         Market currentMarket = null;
         Market lastMarket = plotFrame.getLastMarket();
         TimeUnit lastVisible = plotFrame.getTimeForX(g.getClipBounds().width);
         
+        MarketCursor cursor = null;
         try {
-            currentMarket = dataSource.getOnOrBefore(lastMarket.getTicker(), lastVisible);
+            cursor = dataSource.cursor(lastMarket.getTicker(), null, lastVisible, false);
+            currentMarket = cursor.next() ? cursor.getView() : null;
         } catch (Exception e) {
-            currentMarket = lastMarket;
+            System.err.println(e.toString());
+            return;
         }
 
         while (currentMarket != null && barXStart > 0) {
-            barXStart = plotFrame.getXForTime(currentMarket.getMarketTime());
+            barXStart = plotFrame.getXForCursor(cursor);
 
             if (barXStart <= g.getClipBounds().width - barWidth) {
-                int openY = plotFrame.getYForPrice(currentMarket.getOpenPrice());
-                int closeY = plotFrame.getYForPrice(currentMarket.getClosePrice());
-                int highY = plotFrame.getYForPrice(currentMarket.getHighPrice());
-                int lowY = plotFrame.getYForPrice(currentMarket.getLowPrice());
+                int openY = plotFrame.getYForPrice(currentMarket.getOpenDouble());
+                int closeY = plotFrame.getYForPrice(currentMarket.getCloseDouble());
+                int highY = plotFrame.getYForPrice(currentMarket.getHighDouble());
+                int lowY = plotFrame.getYForPrice(currentMarket.getLowDouble());
                 
                 if (useColors) {
-                    int rc = currentMarket.getOpenPrice().compareTo(currentMarket.getClosePrice());
+                    long open = currentMarket.getOpenScaled();
+                    long close = currentMarket.getCloseScaled();
                     
-                    if (rc < 0)
+                    if (open < close)
                         g.setColor(Color.GREEN);
-                    else if (rc > 0)
+                    else if (open > close)
                         g.setColor(Color.RED);
                     else
                         g.setColor(Color.BLACK);
@@ -98,7 +125,7 @@ public class OHLCPriceRenderer implements PricePlotRenderer {
             }
 
             try {
-                currentMarket = currentMarket.getPrevious();
+                currentMarket = cursor.next() ? cursor.getView() : null;
             } catch (Exception e) {
                 currentMarket = null;
             }
@@ -0,0 +1,166 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.MarketDataDiskCache;
+import org.jpchart.data.MarketDataYahoo;
+
+/**
+ * Runs MarketDataDiskCache over MarketDataYahoo against a local HTTP server
+ * serving generated bars in the Yahoo CSV layout, and reports the number of
+ * rows transferred for a cold start, a cached start and a daily refresh.
+ *
+ * @author cfelde
+ */
+public class DiskCacheDemo {
+    private final static String TICKER = "DEMO";
+    private final static int HISTORY_DAYS = 10000;
+    
+    // Generated daily bars, oldest first
+    private final static List<String> rows = new ArrayList<String>();
+    private final static Calendar nextDay = Calendar.getInstance();
+    private static int rowsSent = 0;
+    
+    public static void main(String args[]) throws Exception {
+        nextDay.clear();
+        nextDay.set(1980, Calendar.JANUARY, 1);
+        addDays(HISTORY_DAYS);
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/table.csv", new HttpHandler() {
+            public void handle(HttpExchange exchange) {
+                try {
+                    serve(exchange);
+                }
+                catch (Exception e) {
+                    System.err.println(e.toString());
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        
+        File dir = new File(System.getProperty("java.io.tmpdir"), "jpchart-cache-demo-" + System.nanoTime());
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/table.csv";
+        
+        try {
+            // Cold start, empty cache
+            MarketDataDiskCache cache = new MarketDataDiskCache(new MarketDataYahoo(baseUrl), dir, "Day");
+            report("Cold start", cache);
+            
+            // New process, same cache directory
+            cache = new MarketDataDiskCache(new MarketDataYahoo(baseUrl), dir, "Day");
+            report("Cached start", cache);
+            
+            // A day later
+            addDays(1);
+            rowsSent = 0;
+            long start = System.nanoTime();
+            int added = cache.refresh(TICKER);
+            System.out.println("Daily refresh: " + added + " bars added, " + rowsSent + " rows transferred, "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+            
+            // The cache file must hold the same bars as a full download
+            BarStore cached = new MarketDataDiskCache(new MarketDataYahoo(baseUrl), dir, "Day").getBarStore(TICKER);
+            BarStore full = new MarketDataYahoo(baseUrl).getBarStore(TICKER);
+            boolean same = cached.size() == full.size();
+            for (int x = 0; same && x < full.size(); x++) {
+                same = cached.getTime(x) == full.getTime(x) && cached.getOpen(x) == full.getOpen(x)
+                        && cached.getHigh(x) == full.getHigh(x) && cached.getLow(x) == full.getLow(x)
+                        && cached.getClose(x) == full.getClose(x) && cached.getVolume(x) == full.getVolume(x);
+            }
+            System.out.println("Cache matches full download: " + same + ", " + cached.size() + " bars");
+            
+            System.out.println("Unknown ticker: " + cache.getBarStore("NONE"));
+            cache.clear();
+        }
+        finally {
+            server.stop(0);
+            dir.delete();
+        }
+    }
+    
+    private static void report(String name, MarketDataDiskCache cache) throws Exception {
+        rowsSent = 0;
+        long start = System.nanoTime();
+        BarStore store = cache.getBarStore(TICKER);
+        System.out.println(name + ": " + store.size() + " bars, " + rowsSent + " rows transferred, "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+    
+    private static void addDays(int days) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        
+        for (int x = 0; x < days; x++) {
+            int n = rows.size();
+            double open = 100 + 20 * Math.sin(n / 50.0);
+            double close = open + Math.cos(n / 7.0);
+            String date = format.format(nextDay.getTime());
+            rows.add(String.format(Locale.US, "%s,%.2f,%.2f,%.2f,%.2f,%d,%.2f", date, open, Math.max(open, close) + 0.5,
+                    Math.min(open, close) - 0.5, close, 100000 + n, close));
+            nextDay.add(Calendar.DATE, 1);
+        }
+    }
+    
+    private static synchronized void serve(HttpExchange exchange) throws Exception {
+        Map<String, String> query = new HashMap<String, String>();
+        for (String param : exchange.getRequestURI().getQuery().split("&")) {
+            String[] parts = param.split("=", 2);
+            query.put(parts[0], parts.length > 1 ? parts[1] : "");
+        }
+        
+        if (!TICKER.equals(query.get("s"))) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        
+        String from = String.format("%04d-%02d-%02d", Integer.parseInt(query.get("c")),
+                Integer.parseInt(query.get("a")) + 1, Integer.parseInt(query.get("b")));
+        
+        // Newest first, as Yahoo does
+        StringBuilder csv = new StringBuilder("Date,Open,High,Low,Close,Volume,Adj Close\n");
+        for (int x = rows.size()-1; x >= 0 && rows.get(x).compareTo(from) >= 0; x--) {
+            csv.append(rows.get(x)).append('\n');
+            rowsSent++;
+        }
+        
+        byte[] bytes = csv.toString().getBytes("US-ASCII");
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package org.jpchart.test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import org.jpchart.data.BarSeries;
+import org.jpchart.data.MarketCursor;
+import org.jpchart.data.MarketData;
+import org.jpchart.data.MarketDataColumnar;
+import org.jpchart.indicator.CutlerRSI;
+import org.jpchart.indicator.IndicatorKernels;
+import org.jpchart.indicator.SeriesComputation;
+import org.jpchart.indicator.SeriesIndicator;
+import org.jpchart.indicator.SimpleIndicator;
+import org.jpchart.indicator.SimpleMovingAverage;
+import org.jpchart.time.Day;
+
+/**
+ * Times the BigDecimal indicators, per bar and as a series, against the
+ * primitive kernels of IndicatorKernels on a series of random daily bars.
+ * Each case is run several times so the JIT compiler has warmed up, and
+ * the best time is shown.
+ *
+ * @author cfelde
+ */
+public class IndicatorBenchmark {
+    private final static int BARS = 100000;
+    private final static int PERIODE = 14;
+    private final static int ROUNDS = 20;
+    
+    // Keeps results alive, so the work is not optimized away
+    private static double checksum = 0;
+    
+    public static void main(String args[]) throws Exception {
+        int bars = args.length > 0 ? Integer.parseInt(args[0]) : BARS;
+        
+        BarSeries series = new BarSeries("TEST", "Day", bars);
+        series.setPriceScale(2);
+        Random random = new Random(1);
+        long time = new Day("1950-01-01").getTimeInMillis();
+        long price = 10000;
+        for (int x = 0; x < bars; x++) {
+            price = Math.max(100, price + random.nextInt(201) - 100);
+            series.add(time, price, price + random.nextInt(100), price - random.nextInt(100), price + random.nextInt(101) - 50, random.nextInt(100000));
+            time += 24 * 3600000L;
+        }
+        
+        MarketDataColumnar dataSource = new MarketDataColumnar();
+        dataSource.addSeries(series);
+        
+        final double[] close = IndicatorKernels.getPrices(series, SimpleMovingAverage.UsePrice.CLOSE, null);
+        final double[] high = IndicatorKernels.getPrices(series, SimpleMovingAverage.UsePrice.HIGH, null);
+        final double[] low = IndicatorKernels.getPrices(series, SimpleMovingAverage.UsePrice.LOW, null);
+        final long[] scaledClose = new long[bars];
+        for (int x = 0; x < bars; x++)
+            scaledClose[x] = series.getClose(x);
+        
+        final int n = bars;
+        final double[] out1 = new double[n], out2 = new double[n], out3 = new double[n];
+        
+        SimpleMovingAverage sma = new SimpleMovingAverage(PERIODE, SimpleMovingAverage.UsePrice.CLOSE);
+        CutlerRSI rsi = new CutlerRSI(PERIODE);
+        
+        System.out.println("Bars:\t\t\t" + bars + ", periode " + PERIODE);
+        
+        double smaPerBar = timePerBar(dataSource, sma);
+        double smaSeries = timeSeries(dataSource, sma);
+        double smaKernel = time(new Runnable() {
+            public void run() {
+                IndicatorKernels.sma(close, n, PERIODE, out1);
+                checksum += out1[n-1];
+            }
+        });
+        double smaScaledKernel = time(new Runnable() {
+            public void run() {
+                IndicatorKernels.sma(scaledClose, 2, n, PERIODE, out1);
+                checksum += out1[n-1];
+            }
+        });
+        print("SMA BigDecimal per bar", smaPerBar, bars, smaPerBar);
+        print("SMA BigDecimal series", smaSeries, bars, smaPerBar);
+        print("SMA double[]", smaKernel, bars, smaPerBar);
+        print("SMA long[]", smaScaledKernel, bars, smaPerBar);
+        
+        double rsiPerBar = timePerBar(dataSource, rsi);
+        double rsiSeries = timeSeries(dataSource, rsi);
+        double rsiKernel = time(new Runnable() {
+            public void run() {
+                IndicatorKernels.rsi(close, n, PERIODE, out1);
+                checksum += out1[n-1];
+            }
+        });
+        print("Cutler RSI per bar", rsiPerBar, bars, rsiPerBar);
+        print("Cutler RSI series", rsiSeries, bars, rsiPerBar);
+        print("Wilder RSI double[]", rsiKernel, bars, rsiPerBar);
+        
+        print("EMA double[]", time(new Runnable() {
+            public void run() {
+                IndicatorKernels.ema(close, n, PERIODE, out1);
+                checksum += out1[n-1];
+            }
+        }), bars, 0);
+        print("MACD double[]", time(new Runnable() {
+            public void run() {
+                IndicatorKernels.macd(close, n, 12, 26, 9, out1, out2, out3);
+                checksum += out3[n-1];
+            }
+        }), bars, 0);
+        print("Bollinger double[]", time(new Runnable() {
+            public void run() {
+                IndicatorKernels.bollinger(close, n, 20, 2, out1, out2, out3);
+                checksum += out2[n-1];
+            }
+        }), bars, 0);
+        print("ATR double[]", time(new Runnable() {
+            public void run() {
+                IndicatorKernels.atr(high, low, close, n, PERIODE, out1);
+                checksum += out1[n-1];
+            }
+        }), bars, 0);
+        print("Stochastic double[]", time(new Runnable() {
+            public void run() {
+                IndicatorKernels.stochastic(high, low, close, n, PERIODE, 3, out1, out2);
+                checksum += out2[n-1];
+            }
+        }), bars, 0);
+        
+        System.out.println("Checksum:\t\t" + checksum);
+    }
+    
+    /**
+     * Times getValue for every bar, as renderers using SimpleIndicator do.
+     */
+    private static double timePerBar(final MarketData dataSource, final SimpleIndicator indicator) throws Exception {
+        return time(new Runnable() {
+            public void run() {
+                try {
+                    MarketCursor cursor = dataSource.cursor("TEST", null, null, true);
+                    while (cursor.next()) {
+                        BigDecimal value = indicator.getValue(cursor.getView());
+                        if (value != null) checksum += value.doubleValue();
+                    }
+                }
+                catch (Exception e) {
+                    System.err.println(e.toString());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Times one forward pass over all bars.
+     */
+    private static double timeSeries(final MarketData dataSource, final SeriesIndicator indicator) throws Exception {
+        return time(new Runnable() {
+            public void run() {
+                try {
+                    SeriesComputation computation = indicator.start();
+                    MarketCursor cursor = dataSource.cursor("TEST", null, null, true);
+                    while (cursor.next()) {
+                        BigDecimal value = computation.next(cursor.getView());
+                        if (value != null) checksum += value.doubleValue();
+                    }
+                }
+                catch (Exception e) {
+                    System.err.println(e.toString());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Returns the best time of a number of runs, in nanoseconds.
+     */
+    private static double time(Runnable task) {
+        long best = Long.MAX_VALUE;
+        for (int x = 0; x < ROUNDS; x++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        
+        return best;
+    }
+    
+    private static void print(String name, double nanos, int bars, double baseline) {
+        String line = name + ":" + (name.length() < 15 ? "\t\t" : "\t") + String.format("%8.1f ns/bar", nanos / bars);
+        if (baseline > 0)
+            line += String.format(", %7.1fx", baseline / nanos);
+        
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import org.jpchart.data.BarSeries;
+import org.jpchart.data.CompressedBarStore;
+import org.jpchart.data.MarketDataColumnar;
+import org.jpchart.market.Market;
+import org.jpchart.market.MarketTick;
+import org.jpchart.time.Day;
+import org.jpchart.time.TimeUnit;
+
+/**
+ * Compares the heap used per bar by the HashMap of MarketTick objects
+ * used by MarketDataMem with the columnar BarSeries and the
+ * CompressedBarStore, and times walking the compressed bars.
+ *
+ * @author cfelde
+ */
+public class MemoryPerBar {
+    private final static int BARS = 200000;
+    
+    public static void main(String args[]) throws Exception {
+        int bars = args.length > 0 ? Integer.parseInt(args[0]) : BARS;
+        
+        long before = usedMemory();
+        Map<Long, Market> cache = new HashMap<Long, Market>();
+        TimeUnit time = new Day("1950-01-01");
+        for (int x = 0; x < bars; x++) {
+            Market market = createMarket(time, x);
+            cache.put(market.getMarketTime().getTimeInMillis(), market);
+            time = time.getAddOne();
+        }
+        long mapBytes = usedMemory() - before;
+        
+        before = usedMemory();
+        MarketDataColumnar columnar = new MarketDataColumnar();
+        BarSeries series = new BarSeries("TEST", "Day");
+        time = new Day("1950-01-01");
+        for (int x = 0; x < bars; x++) {
+            series.add(createMarket(time, x));
+            time = time.getAddOne();
+        }
+        series.trimToSize();
+        columnar.addSeries(series);
+        long columnarBytes = usedMemory() - before;
+        
+        before = usedMemory();
+        CompressedBarStore compressed = CompressedBarStore.compress(series);
+        long compressedBytes = usedMemory() - before;
+        
+        // Walk backwards, as when rendering
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (int x = compressed.size() - 1; x >= 0; x--)
+            checksum += compressed.getClose(x);
+        long walkNanos = System.nanoTime() - start;
+        
+        System.out.println("Bars:\t\t\t" + bars);
+        System.out.println("MarketDataMem layout:\t" + (mapBytes / bars) + " bytes/bar");
+        System.out.println("BarSeries layout:\t" + (columnarBytes / bars) + " bytes/bar");
+        System.out.println("Compressed layout:\t" + ((double) compressedBytes / bars) + " bytes/bar");
+        System.out.println("Compressed walk:\t" + (walkNanos / bars) + " ns/bar (" + checksum + ")");
+        
+        // Keep both alive until measured
+        System.out.println("(" + cache.size() + ", " + columnar.getSeries("TEST").size() + ", " + compressed.size() + ")");
+    }
+    
+    private static Market createMarket(TimeUnit time, int x) {
+        BigDecimal open = new BigDecimal((100 + x % 50) + ".25");
+        BigDecimal high = new BigDecimal((102 + x % 50) + ".50");
+        BigDecimal low = new BigDecimal((98 + x % 50) + ".75");
+        BigDecimal close = new BigDecimal((101 + x % 50) + ".05");
+        BigDecimal volume = new BigDecimal(1000000 + x);
+        
+        return new MarketTick("TEST", time, open, high, low, close, volume, null);
+    }
+    
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int x = 0; x < 4; x++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jpchart.data.BarStore;
+import org.jpchart.data.MarketData;
+import org.jpchart.data.MarketDataLoader;
+import org.jpchart.data.MarketDataMem;
+import org.jpchart.data.MarketDataYahoo;
+import org.jpchart.data.TickerLoadListener;
+
+/**
+ * Warms up a MarketDataMem with a watchlist of tickers using
+ * MarketDataLoader, against a local HTTP server serving bars in the Yahoo
+ * CSV layout with a random delay per request, and compares the time taken
+ * with the sum and max of the delays.
+ *
+ * @author cfelde
+ */
+public class ParallelLoadDemo {
+    private final static int TICKERS = 500;
+    private final static int BARS = 2500;
+    private final static int MAX_DELAY = 200;
+    
+    private final static AtomicLong delaySum = new AtomicLong();
+    private final static AtomicLong delayMax = new AtomicLong();
+    
+    public static void main(String args[]) throws Exception {
+        int maxConcurrent = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        
+        final byte[] csv = createCsv();
+        final Random random = new Random(1);
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/table.csv", new HttpHandler() {
+            public void handle(HttpExchange exchange) {
+                try {
+                    long delay;
+                    synchronized (random) {
+                        delay = random.nextInt(MAX_DELAY) + 1;
+                    }
+                    delaySum.addAndGet(delay);
+                    synchronized (delayMax) {
+                        delayMax.set(Math.max(delayMax.get(), delay));
+                    }
+                    
+                    Thread.sleep(delay);
+                    exchange.sendResponseHeaders(200, csv.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(csv);
+                    out.close();
+                }
+                catch (Exception e) {
+                    System.err.println(e.toString());
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        
+        try {
+            String[] tickers = new String[TICKERS];
+            for (int x = 0; x < tickers.length; x++)
+                tickers[x] = "T" + x;
+            
+            MarketDataYahoo yahoo = new MarketDataYahoo("http://127.0.0.1:" + server.getAddress().getPort() + "/table.csv");
+            MarketDataMem cache = new MarketDataMem(yahoo, MarketDataMem.DEFAULT_MEMORY_BUDGET);
+            
+            MarketDataLoader loader = new MarketDataLoader();
+            loader.setMaxConcurrent(cache, maxConcurrent);
+            
+            final AtomicInteger loaded = new AtomicInteger();
+            final AtomicInteger failed = new AtomicInteger();
+            
+            long start = System.nanoTime();
+            Map<String, BarStore> result = loader.load(cache, new TickerLoadListener() {
+                public void tickerLoaded(MarketData dataSource, String ticker, BarStore store) {
+                    loaded.incrementAndGet();
+                }
+                
+                public void tickerFailed(MarketData dataSource, String ticker, Exception e) {
+                    failed.incrementAndGet();
+                    System.err.println(ticker + ": " + e.toString());
+                }
+            }, tickers);
+            long millis = (System.nanoTime() - start) / 1000000;
+            
+            System.out.println("Loaded " + result.size() + " tickers (" + loaded.get() + " loaded, " + failed.get()
+                    + " failed) with " + maxConcurrent + " at once in " + millis + " ms");
+            System.out.println("Sum of server delays " + delaySum.get() + " ms, slowest " + delayMax.get() + " ms");
+            System.out.println("Cached tickers: " + cache.getCachedTickers().length + ", misses " + cache.getMissCount());
+        }
+        finally {
+            server.stop(0);
+            System.exit(0);
+        }
+    }
+    
+    private static byte[] createCsv() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(2000, Calendar.JANUARY, 1);
+        day.add(Calendar.DATE, BARS);
+        
+        // Newest first, as Yahoo does
+        StringBuilder csv = new StringBuilder("Date,Open,High,Low,Close,Volume,Adj Close\n");
+        for (int x = BARS; x > 0; x--) {
+            day.add(Calendar.DATE, -1);
+            double open = 100 + 20 * Math.sin(x / 50.0);
+            double close = open + Math.cos(x / 7.0);
+            csv.append(String.format(Locale.US, "%s,%.2f,%.2f,%.2f,%.2f,%d,%.2f\n", format.format(day.getTime()), open,
+                    Math.max(open, close) + 0.5, Math.min(open, close) - 0.5, close, 100000 + x, close));
+        }
+        
+        return csv.toString().getBytes("US-ASCII");
+    }
+}
@@ -26,8 +26,10 @@ import org.jpchart.plot.price.renderer.CandlestickPriceRenderer;
 import org.jpchart.plot.price.renderer.LinePriceRenderer;
 import org.jpchart.plot.price.renderer.MultiPriceRenderer;
 import org.jpchart.plot.price.renderer.OHLCPriceRenderer;
+import java.io.File;
 import java.math.BigDecimal;
 import javax.swing.UIManager;
+import org.jpchart.data.MarketDataDiskCache;
 import org.jpchart.data.MarketDataMem;
 import org.jpchart.data.MarketDataYahoo;
 import org.jpchart.indicator.CutlerRSI;
@@ -59,8 +61,11 @@ public class TestPlot1 extends javax.swing.JFrame {
             
             String ticker = "goog";
             
+            // Downloaded history is kept on disk, so later runs only fetch new bars
+            File cacheDir = new File(System.getProperty("user.home"), ".jpchart" + File.separator + "cache");
+            
             // Use MarketDataMem as a wrapped around cache, since it's faster for selected ticker.
-            MarketData dataSource = new MarketDataMem(new MarketDataYahoo(), ticker);
+            MarketData dataSource = new MarketDataMem(new MarketDataDiskCache(new MarketDataYahoo(), cacheDir, "Day"), ticker);
             Market lastMarket = dataSource.getLast(ticker);
             plot.setMarketData(dataSource, lastMarket);
             
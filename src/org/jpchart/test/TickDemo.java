@@ -0,0 +1,86 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.test;
+
+import java.util.Random;
+import org.jpchart.data.MarketCursor;
+import org.jpchart.data.MarketDataTicks;
+import org.jpchart.data.TickSeries;
+import org.jpchart.market.Market;
+import org.jpchart.time.Day;
+import org.jpchart.time.Tick;
+
+/**
+ * Fills a tick series with one day of random trades, several of them per
+ * millisecond, and times appending, walking and looking up the ticks.
+ *
+ * @author cfelde
+ */
+public class TickDemo {
+    private final static int TICKS = 20000000;
+    
+    public static void main(String args[]) throws Exception {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : TICKS;
+        
+        TickSeries series = new TickSeries("TEST", 4, 0);
+        MarketDataTicks dataSource = new MarketDataTicks();
+        dataSource.addSeries(series);
+        
+        // Spread the ticks over 6.5 hours, in bursts sharing a timestamp
+        Random random = new Random(1);
+        long micros = new Day("2009-03-02").getTimeInMillis() * 1000 + 9 * 3600000000L + 30 * 60000000L;
+        long step = 6 * 3600000000L / ticks;
+        long price = 1000000;
+        
+        long start = System.nanoTime();
+        for (int x = 0; x < ticks; x++) {
+            if (random.nextInt(4) == 0)
+                micros += 1 + random.nextInt((int) (2 * step) + 1);
+            price += random.nextInt(21) - 10;
+            series.add(micros, price, 100 * (1 + random.nextInt(10)));
+        }
+        long addNanos = System.nanoTime() - start;
+        
+        // Walk backwards through views, as when rendering
+        start = System.nanoTime();
+        long checksum = 0;
+        MarketCursor cursor = dataSource.cursor("TEST", null, null, false);
+        while (cursor.next()) {
+            Market market = cursor.getView();
+            checksum += market.getCloseScaled() + market.getVolumeScaled();
+        }
+        long walkNanos = System.nanoTime() - start;
+        
+        // Look up ticks sharing a timestamp by their sequence number
+        int index = ticks / 2;
+        while (series.getSequence(index) == 0)
+            index++;
+        Tick tick = series.getTick(index);
+        Market market = dataSource.get("TEST", tick);
+        Market previous = market.getPrevious();
+        
+        System.out.println("Ticks:\t\t" + ticks);
+        System.out.println("Memory:\t\t" + (series.getMemoryUsage() / ticks) + " bytes/tick");
+        System.out.println("Append:\t\t" + (addNanos / ticks) + " ns/tick");
+        System.out.println("View walk:\t" + (walkNanos / ticks) + " ns/tick (" + checksum + ")");
+        System.out.println("Lookup:\t\t" + market.getMarketTime() + " found at index " + index
+                + ", previous " + previous.getMarketTime());
+    }
+}
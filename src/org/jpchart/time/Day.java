@@ -117,6 +117,16 @@ public class Day implements TimeUnit {
         return time;
     }
 
+    public long getTimeInMillis() {
+        return time.getTimeInMillis();
+    }
+
+    public TimeUnit getAdded(int count) {
+        Calendar cal = (Calendar) time.clone();
+        cal.add(Calendar.DAY_OF_MONTH, count);
+        return new Day(cal);
+    }
+
     public TimeUnit getAddOne() {
         Calendar cal = (Calendar) time.clone();
         cal.add(Calendar.DAY_OF_MONTH, 1);
@@ -150,8 +160,8 @@ public class Day implements TimeUnit {
 
     @Override
     public int hashCode() {
-        int hash = 5;
-        hash = 67 * hash + (this.time != null ? this.time.hashCode() : 0);
-        return hash;
+        // Based on the time only, as hashing the Calendar goes through all its settings
+        long millis = this.time.getTimeInMillis();
+        return (int) (millis ^ (millis >>> 32));
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+
+/**
+ * Base class for immutable time units kept as the start time in
+ * milliseconds, rather than as a Calendar. Units start at boundaries in the
+ * default time zone, worked out using java.time. Equality and hash codes
+ * are based on the start time only, and adding any number of units is done
+ * in constant time.
+ * 
+ * Each call to getTime returns a new Calendar, so changing it does not
+ * change the unit.
+ *
+ * @author cfelde
+ */
+public abstract class EpochTimeUnit implements TimeUnit {
+    private final long time;
+    
+    /**
+     * Creates a unit starting at given time, which must already be rounded
+     * down to a unit boundary.
+     * 
+     * @param time Start time in milliseconds
+     */
+    protected EpochTimeUnit(long time) {
+        this.time = time;
+    }
+    
+    public long getTimeInMillis() {
+        return time;
+    }
+    
+    public Calendar getTime() {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(time);
+        return cal;
+    }
+    
+    public TimeUnit getAddOne() {
+        return getAdded(1);
+    }
+    
+    public TimeUnit getSubOne() {
+        return getAdded(-1);
+    }
+    
+    /**
+     * Returns given time in the default time zone.
+     */
+    protected static ZonedDateTime toZoned(long time) {
+        return Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault());
+    }
+    
+    /**
+     * Returns given time as a date in the default time zone.
+     */
+    protected static LocalDate toDate(long time) {
+        return toZoned(time).toLocalDate();
+    }
+    
+    /**
+     * Returns the start of given date in the default time zone.
+     */
+    protected static long toMillis(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    /**
+     * Returns given time in milliseconds.
+     */
+    protected static long toMillis(ZonedDateTime time) {
+        return time.toInstant().toEpochMilli();
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return this.time == ((EpochTimeUnit) obj).time;
+    }
+    
+    @Override
+    public int hashCode() {
+        return (int) (time ^ (time >>> 32));
+    }
+    
+    @Override
+    public String toString() {
+        return getResolutionDescription() + " " + toZoned(time).toLocalDateTime();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * One hour, starting on the hour in the local time zone.
+ *
+ * @author cfelde
+ */
+public class Hour extends EpochTimeUnit {
+    /**
+     * Return a new hour unit using the current time.
+     */
+    public Hour() {
+        this(System.currentTimeMillis());
+    }
+    
+    /**
+     * Return a new hour unit using given date, rounded down to the start of the hour.
+     */
+    public Hour(Calendar cal) {
+        this(cal.getTimeInMillis());
+    }
+    
+    /**
+     * Return a new hour unit using given date, rounded down to the start of the hour.
+     */
+    public Hour(Date time) {
+        this(time.getTime());
+    }
+    
+    /**
+     * Return a new hour unit using given date, rounded down to the start of the hour.
+     */
+    public Hour(long time) {
+        super(round(time));
+    }
+    
+    /**
+     * Return a new hour unit based on the given time unit, rounded down to the start of the hour.
+     */
+    public Hour(TimeUnit timeUnit) {
+        this(timeUnit.getTimeInMillis());
+    }
+    
+    private static long round(long time) {
+        return toMillis(toZoned(time).truncatedTo(ChronoUnit.HOURS));
+    }
+
+    public TimeUnit getAdded(int count) {
+        // Hours are a fixed duration, rounded again for zones with half hour offset changes
+        return new Hour(getTimeInMillis() + count * 3600000L);
+    }
+
+    public String getResolutionDescription() {
+        return "Hour";
+    }
+}
@@ -118,6 +118,16 @@ public class Minute implements TimeUnit {
         return time;
     }
 
+    public long getTimeInMillis() {
+        return time.getTimeInMillis();
+    }
+
+    public TimeUnit getAdded(int count) {
+        Calendar cal = (Calendar) time.clone();
+        cal.add(Calendar.MINUTE, count);
+        return new Minute(cal);
+    }
+
     public TimeUnit getAddOne() {
         Calendar cal = (Calendar) time.clone();
         cal.add(Calendar.MINUTE, 1);
@@ -151,8 +161,8 @@ public class Minute implements TimeUnit {
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 89 * hash + (this.time != null ? this.time.hashCode() : 0);
-        return hash;
+        // Based on the time only, as hashing the Calendar goes through all its settings
+        long millis = this.time.getTimeInMillis();
+        return (int) (millis ^ (millis >>> 32));
     }
 }
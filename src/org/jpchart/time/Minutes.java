@@ -0,0 +1,114 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * A block of a fixed number of minutes, such as 5 or 15 minutes. Blocks are
+ * aligned to the start of the hour, so the length must divide 60.
+ *
+ * @author cfelde
+ */
+public class Minutes extends EpochTimeUnit {
+    private final int length;
+    
+    /**
+     * Return a new minutes unit of given length using the current time.
+     */
+    public Minutes(int length) {
+        this(length, System.currentTimeMillis());
+    }
+    
+    /**
+     * Return a new minutes unit of given length using given date, rounded
+     * down to the start of the block.
+     */
+    public Minutes(int length, Calendar cal) {
+        this(length, cal.getTimeInMillis());
+    }
+    
+    /**
+     * Return a new minutes unit of given length using given date, rounded
+     * down to the start of the block.
+     */
+    public Minutes(int length, Date time) {
+        this(length, time.getTime());
+    }
+    
+    /**
+     * Return a new minutes unit of given length using given date, rounded
+     * down to the start of the block.
+     */
+    public Minutes(int length, long time) {
+        super(round(checkLength(length), time));
+        this.length = length;
+    }
+    
+    /**
+     * Return a new minutes unit of given length based on the given time unit,
+     * rounded down to the start of the block.
+     */
+    public Minutes(int length, TimeUnit timeUnit) {
+        this(length, timeUnit.getTimeInMillis());
+    }
+    
+    private static int checkLength(int length) {
+        if (length <= 0 || 60 % length != 0)
+            throw new IllegalArgumentException("Length must divide 60: " + length);
+        
+        return length;
+    }
+    
+    private static long round(int length, long time) {
+        ZonedDateTime zoned = toZoned(time).truncatedTo(ChronoUnit.MINUTES);
+        return toMillis(zoned.withMinute(zoned.getMinute() / length * length));
+    }
+    
+    /**
+     * Returns the number of minutes in this unit.
+     * 
+     * @return Length in minutes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public TimeUnit getAdded(int count) {
+        return new Minutes(length, getTimeInMillis() + count * length * 60000L);
+    }
+
+    public String getResolutionDescription() {
+        return length + "Minute";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && this.length == ((Minutes) obj).length;
+    }
+
+    @Override
+    public int hashCode() {
+        return 89 * super.hashCode() + this.length;
+    }
+}
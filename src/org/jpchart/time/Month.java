@@ -0,0 +1,78 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * One calendar month, starting at midnight on the first day of the
+ * month in the local time zone.
+ *
+ * @author cfelde
+ */
+public class Month extends EpochTimeUnit {
+    /**
+     * Return a new month unit using the current time.
+     */
+    public Month() {
+        this(System.currentTimeMillis());
+    }
+    
+    /**
+     * Return a new month unit using given date, rounded down to the start of the month.
+     */
+    public Month(Calendar cal) {
+        this(cal.getTimeInMillis());
+    }
+    
+    /**
+     * Return a new month unit using given date, rounded down to the start of the month.
+     */
+    public Month(Date time) {
+        this(time.getTime());
+    }
+    
+    /**
+     * Return a new month unit using given date, rounded down to the start of the month.
+     */
+    public Month(long time) {
+        super(round(time));
+    }
+    
+    /**
+     * Return a new month unit based on the given time unit, rounded down to the start of the month.
+     */
+    public Month(TimeUnit timeUnit) {
+        this(timeUnit.getTimeInMillis());
+    }
+    
+    private static long round(long time) {
+        return toMillis(toDate(time).withDayOfMonth(1));
+    }
+
+    public TimeUnit getAdded(int count) {
+        return new Month(toMillis(toDate(getTimeInMillis()).plusMonths(count)));
+    }
+
+    public String getResolutionDescription() {
+        return "Month";
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * One second, starting on the second.
+ *
+ * @author cfelde
+ */
+public class Second extends EpochTimeUnit {
+    /**
+     * Return a new second unit using the current time.
+     */
+    public Second() {
+        this(System.currentTimeMillis());
+    }
+    
+    /**
+     * Return a new second unit using given date, rounded down to the start of the second.
+     */
+    public Second(Calendar cal) {
+        this(cal.getTimeInMillis());
+    }
+    
+    /**
+     * Return a new second unit using given date, rounded down to the start of the second.
+     */
+    public Second(Date time) {
+        this(time.getTime());
+    }
+    
+    /**
+     * Return a new second unit using given date, rounded down to the start of the second.
+     */
+    public Second(long time) {
+        super(round(time));
+    }
+    
+    /**
+     * Return a new second unit based on the given time unit, rounded down to the start of the second.
+     */
+    public Second(TimeUnit timeUnit) {
+        this(timeUnit.getTimeInMillis());
+    }
+    
+    private static long round(long time) {
+        return Math.floorDiv(time, 1000L) * 1000L;
+    }
+
+    public TimeUnit getAdded(int count) {
+        return new Second(getTimeInMillis() + count * 1000L);
+    }
+
+    public String getResolutionDescription() {
+        return "Second";
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+/**
+ * Trading session calendar, telling when bars can exist. Used to leave
+ * days without trading, such as weekends and holidays, out of data
+ * sources indexing their bars by day.
+ * 
+ * Times are in milliseconds, in the default time zone as used by all
+ * time units.
+ *
+ * @see org.jpchart.data.MarketDataMinuteDir#setSessionCalendar(SessionCalendar)
+ * @author cfelde
+ */
+public interface SessionCalendar {
+    /**
+     * Returns given time if within a trading session, otherwise the start
+     * of the next trading session.
+     * 
+     * @param time Time in milliseconds
+     * @return First trading time at or after given time
+     */
+    public long getNextTradingTime(long time);
+    
+    /**
+     * Returns given time if within a trading session, otherwise the last
+     * millisecond of the previous trading session.
+     * 
+     * @param time Time in milliseconds
+     * @return Last trading time at or before given time
+     */
+    public long getPreviousTradingTime(long time);
+}
@@ -0,0 +1,262 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Session calendar with one session per trading day, given by its opening
+ * and closing time of day. By default Monday to Friday are trading days,
+ * and holidays can be added. Sessions crossing midnight are not supported.
+ * 
+ * Stepping over non-trading time costs one iteration per day skipped,
+ * regardless of the resolution of the time units being stepped. The
+ * sessions of the last two days looked up are kept, so repeated lookups
+ * around a day neither lock nor create objects. Trading days and holidays may be
+ * changed while in use.
+ *
+ * @author cfelde
+ */
+public class StandardSessionCalendar implements SessionCalendar {
+    // Bound on the days searched for a session, to stop on calendars without any
+    private final static int MAX_DAYS = 3660;
+    
+    private final int openMinute;
+    private final int closeMinute;
+    
+    // Replaced, never changed, when trading days or holidays change
+    private volatile Rules rules;
+    
+    // Last two days looked up, as stepping out of a day looks at the next one
+    private volatile Session lastSession = null;
+    private volatile Session previousSession = null;
+    
+    /**
+     * Trading days, indexed by Calendar.DAY_OF_WEEK, and holidays as
+     * sorted epoch days.
+     */
+    private static final class Rules {
+        final boolean[] tradingDays;
+        final long[] holidays;
+        
+        Rules(boolean[] tradingDays, long[] holidays) {
+            this.tradingDays = tradingDays;
+            this.holidays = holidays;
+        }
+    }
+    
+    /**
+     * One day in the default time zone, with its session if it is a
+     * trading day under the rules it was made with.
+     */
+    private static final class Session {
+        final Rules rules;
+        final long start, end;
+        final long open, close;
+        final boolean trading;
+        
+        Session(Rules rules, long start, long end, long open, long close, boolean trading) {
+            this.rules = rules;
+            this.start = start;
+            this.end = end;
+            this.open = open;
+            this.close = close;
+            this.trading = trading;
+        }
+    }
+    
+    /**
+     * Creates a calendar trading all day, Monday to Friday.
+     */
+    public StandardSessionCalendar() {
+        this(0, 24 * 60);
+    }
+    
+    /**
+     * Creates a calendar trading Monday to Friday, from given opening time
+     * of day to given closing time of day.
+     * 
+     * @param openMinute Session open, in minutes after midnight
+     * @param closeMinute Session close, exclusive, in minutes after midnight
+     */
+    public StandardSessionCalendar(int openMinute, int closeMinute) {
+        if (openMinute < 0 || closeMinute > 24 * 60 || openMinute >= closeMinute)
+            throw new IllegalArgumentException("Invalid session: " + openMinute + " to " + closeMinute);
+        
+        this.openMinute = openMinute;
+        this.closeMinute = closeMinute;
+        
+        boolean[] tradingDays = new boolean[8];
+        for (int day = Calendar.MONDAY; day <= Calendar.FRIDAY; day++)
+            tradingDays[day] = true;
+        
+        rules = new Rules(tradingDays, new long[0]);
+    }
+    
+    /**
+     * Creates a calendar trading Monday to Friday, from given opening time
+     * to given closing time, both given as HH:MM.
+     * 
+     * @param open Session open, example: 09:30
+     * @param close Session close, exclusive, example: 16:00
+     */
+    public StandardSessionCalendar(String open, String close) {
+        this(parseMinute(open), parseMinute(close));
+    }
+    
+    /**
+     * Set whether given day of week is a trading day.
+     * 
+     * @param dayOfWeek Day of week, as given by Calendar.DAY_OF_WEEK
+     * @param trading True if trading day
+     */
+    public synchronized void setTradingDay(int dayOfWeek, boolean trading) {
+        if (dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY)
+            throw new IllegalArgumentException("Invalid day of week: " + dayOfWeek);
+        
+        boolean[] tradingDays = rules.tradingDays.clone();
+        tradingDays[dayOfWeek] = trading;
+        rules = new Rules(tradingDays, rules.holidays);
+    }
+    
+    /**
+     * Add given day as a holiday, without trading.
+     * 
+     * @param day Holiday
+     */
+    public synchronized void addHoliday(Day day) {
+        long epochDay = EpochTimeUnit.toDate(day.getTimeInMillis()).toEpochDay();
+        long[] holidays = rules.holidays;
+        
+        int index = Arrays.binarySearch(holidays, epochDay);
+        if (index >= 0) return;
+        
+        index = -index - 1;
+        long[] added = new long[holidays.length + 1];
+        System.arraycopy(holidays, 0, added, 0, index);
+        added[index] = epochDay;
+        System.arraycopy(holidays, index, added, index + 1, holidays.length - index);
+        rules = new Rules(rules.tradingDays, added);
+    }
+    
+    /**
+     * Add given day, given as YYYY-MM-DD, as a holiday, without trading.
+     * 
+     * @param day Holiday
+     */
+    public void addHoliday(String day) {
+        addHoliday(new Day(day));
+    }
+    
+    /**
+     * Returns true if given day is a trading day.
+     * 
+     * @param day Day
+     * @return True if trading day
+     */
+    public boolean isTradingDay(Day day) {
+        return getSession(day.getTimeInMillis()).trading;
+    }
+    
+    public long getNextTradingTime(long time) {
+        Session session = getSession(time);
+        
+        for (int x = 0; x < MAX_DAYS; x++) {
+            if (session.trading) {
+                if (time < session.open) return session.open;
+                if (time < session.close) return time;
+            }
+            
+            session = getSession(session.end);
+        }
+        
+        throw new IllegalArgumentException("No trading session within " + MAX_DAYS + " days after " + time);
+    }
+    
+    public long getPreviousTradingTime(long time) {
+        Session session = getSession(time);
+        
+        for (int x = 0; x < MAX_DAYS; x++) {
+            if (session.trading) {
+                if (time >= session.close) return session.close - 1;
+                if (time >= session.open) return time;
+            }
+            
+            session = getSession(session.start - 1);
+        }
+        
+        throw new IllegalArgumentException("No trading session within " + MAX_DAYS + " days before " + time);
+    }
+    
+    /**
+     * Returns the day holding given time, reusing the last days looked up
+     * if the rules have not changed since.
+     */
+    private Session getSession(long time) {
+        Rules current = rules;
+        Session session = lastSession;
+        if (session != null && session.rules == current && time >= session.start && time < session.end)
+            return session;
+        
+        Session previous = previousSession;
+        if (previous != null && previous.rules == current && time >= previous.start && time < previous.end)
+            return previous;
+        
+        // Times of day are resolved in the zone, so days with daylight saving changes are handled
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate date = EpochTimeUnit.toDate(time);
+        long start = EpochTimeUnit.toMillis(date);
+        long end = EpochTimeUnit.toMillis(date.plusDays(1));
+        long open = getTimeOfDay(date, openMinute, zone, end);
+        long close = getTimeOfDay(date, closeMinute, zone, end);
+        
+        // DayOfWeek counts from Monday as 1, Calendar from Sunday as 1
+        int dayOfWeek = date.getDayOfWeek().getValue() % 7 + 1;
+        boolean trading = current.tradingDays[dayOfWeek] && Arrays.binarySearch(current.holidays, date.toEpochDay()) < 0;
+        
+        previousSession = session;
+        session = new Session(current, start, end, open, close, trading);
+        lastSession = session;
+        return session;
+    }
+    
+    /**
+     * Returns the time of given minute of given day, 24 * 60 being the
+     * following midnight.
+     */
+    private static long getTimeOfDay(LocalDate date, int minute, ZoneId zone, long end) {
+        if (minute == 24 * 60)
+            return end;
+        
+        return date.atTime(LocalTime.of(minute / 60, minute % 60)).atZone(zone).toInstant().toEpochMilli();
+    }
+    
+    private static int parseMinute(String time) {
+        String[] parts = time.split(":");
+        if (parts.length != 2)
+            throw new IllegalArgumentException("Time must be given as HH:MM: " + time);
+        
+        return Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1]);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * One tick, such as a single trade or quote, identified by its timestamp in
+ * microseconds and a sequence number telling apart ticks with the same
+ * timestamp. The first tick of a timestamp has sequence number 0.
+ * 
+ * Ticks are ordered by timestamp, then by sequence number. As the number of
+ * ticks at a timestamp is only known from the data, adding units steps whole
+ * microseconds: getAdded(n) is the first tick n microseconds later.
+ *
+ * @author cfelde
+ */
+public class Tick extends EpochTimeUnit implements Comparable<Tick> {
+    private final long micros;
+    private final int sequence;
+    
+    /**
+     * Return a new tick unit using the current time.
+     */
+    public Tick() {
+        this(System.currentTimeMillis());
+    }
+    
+    /**
+     * Return a new tick unit for the first tick at given date.
+     */
+    public Tick(Calendar cal) {
+        this(cal.getTimeInMillis());
+    }
+    
+    /**
+     * Return a new tick unit for the first tick at given date.
+     */
+    public Tick(Date time) {
+        this(time.getTime());
+    }
+    
+    /**
+     * Return a new tick unit for the first tick at given time in milliseconds.
+     */
+    public Tick(long time) {
+        this(time * 1000, 0);
+    }
+    
+    /**
+     * Return a new tick unit based on the given time unit. Ticks are copied,
+     * other units give the first tick at their start.
+     */
+    public Tick(TimeUnit timeUnit) {
+        this(timeUnit instanceof Tick ? ((Tick) timeUnit).micros : timeUnit.getTimeInMillis() * 1000,
+                timeUnit instanceof Tick ? ((Tick) timeUnit).sequence : 0);
+    }
+    
+    private Tick(long micros, int sequence) {
+        super(Math.floorDiv(micros, 1000L));
+        
+        if (sequence < 0)
+            throw new IllegalArgumentException("Negative sequence number: " + sequence);
+        
+        this.micros = micros;
+        this.sequence = sequence;
+    }
+    
+    /**
+     * Return a new tick unit for given timestamp and sequence number.
+     * 
+     * @param micros Timestamp in microseconds
+     * @param sequence Number of ticks before this one with the same timestamp
+     * @return New tick unit
+     */
+    public static Tick ofMicros(long micros, int sequence) {
+        return new Tick(micros, sequence);
+    }
+    
+    /**
+     * Returns the timestamp in microseconds.
+     * 
+     * @return Timestamp in microseconds
+     */
+    public long getMicros() {
+        return micros;
+    }
+    
+    /**
+     * Returns the number of ticks before this one with the same timestamp.
+     * 
+     * @return Sequence number
+     */
+    public int getSequence() {
+        return sequence;
+    }
+    
+    public TimeUnit getAdded(int count) {
+        return new Tick(micros + count, 0);
+    }
+    
+    public String getResolutionDescription() {
+        return "Tick";
+    }
+    
+    public int compareTo(Tick other) {
+        if (micros != other.micros)
+            return micros < other.micros ? -1 : 1;
+        
+        return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final Tick other = (Tick) obj;
+        return this.micros == other.micros && this.sequence == other.sequence;
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * (int) (micros ^ (micros >>> 32)) + sequence;
+    }
+    
+    @Override
+    public String toString() {
+        return super.toString() + " " + Math.floorMod(micros, 1000L) + "us #" + sequence;
+    }
+}
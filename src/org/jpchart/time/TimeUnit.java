@@ -33,6 +33,18 @@ public interface TimeUnit {
      */
     public Calendar getTime();
     
+    /**
+     * Get the start of this time unit in milliseconds. Same as
+     * getTime().getTimeInMillis(), but without needing a Calendar. Time
+     * units able to give it without creating a Calendar should override
+     * the default.
+     * 
+     * @return Start time in milliseconds
+     */
+    public default long getTimeInMillis() {
+        return getTime().getTimeInMillis();
+    }
+    
     /**
      * Return this time unit + one unit
      * 
@@ -47,6 +59,24 @@ public interface TimeUnit {
      */
     public TimeUnit getSubOne();
     
+    /**
+     * Return this time unit + given number of units, which may be negative.
+     * The default adds or subtracts one unit at a time, time units able to
+     * add any number of units at once should override it.
+     * 
+     * @param count Number of units to add
+     * @return This time unit + count
+     */
+    public default TimeUnit getAdded(int count) {
+        TimeUnit unit = this;
+        for (; count > 0; count--)
+            unit = unit.getAddOne();
+        for (; count < 0; count++)
+            unit = unit.getSubOne();
+        
+        return unit;
+    }
+    
     /**
      * Returns a human readable one-word description of the time units
      * resolution. Example: Minute, Hour, Day, Week, etc.
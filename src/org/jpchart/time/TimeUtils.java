@@ -80,9 +80,35 @@ public class TimeUtils {
      * @return New time unit
      */
     public static TimeUnit getSubtracted(TimeUnit time, int count) {
-        while (count-- > 0) {
-            time = time.getSubOne();
-        }
-        return time;
+        return time.getAdded(-count);
+    }
+    
+    /**
+     * Returns a new time unit of given resolution, rounded down from
+     * the given time in milliseconds.
+     * 
+     * @param resolution Resolution description, as given by getResolutionDescription()
+     * @param time Time in milliseconds
+     * @return New time unit
+     */
+    public static TimeUnit getTimeUnit(String resolution, long time) {
+        if ("Tick".equals(resolution))
+            return new Tick(time);
+        else if ("Second".equals(resolution))
+            return new Second(time);
+        else if ("Minute".equals(resolution))
+            return new Minute(time);
+        else if ("Hour".equals(resolution))
+            return new Hour(time);
+        else if ("Day".equals(resolution))
+            return new Day(time);
+        else if ("Week".equals(resolution))
+            return new Week(time);
+        else if ("Month".equals(resolution))
+            return new Month(time);
+        else if (resolution.endsWith("Minute") && resolution.length() > 6 && Character.isDigit(resolution.charAt(0)))
+            return new Minutes(Integer.parseInt(resolution.substring(0, resolution.length() - 6)), time);
+        else
+            throw new IllegalArgumentException("Unknown resolution: " + resolution);
     }
 }
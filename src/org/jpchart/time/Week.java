@@ -0,0 +1,80 @@
+/*
+ * JPChart, Java Price Chart, for plotting price information and more.
+ * Copyright (C) 2008  CodeConsult AS (mail@codeconsult.no)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.jpchart.time;
+
+import java.time.DayOfWeek;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * One week, starting Monday at midnight in the local time zone.
+ *
+ * @author cfelde
+ */
+public class Week extends EpochTimeUnit {
+    /**
+     * Return a new week unit using the current time.
+     */
+    public Week() {
+        this(System.currentTimeMillis());
+    }
+    
+    /**
+     * Return a new week unit using given date, rounded down to the start of the week.
+     */
+    public Week(Calendar cal) {
+        this(cal.getTimeInMillis());
+    }
+    
+    /**
+     * Return a new week unit using given date, rounded down to the start of the week.
+     */
+    public Week(Date time) {
+        this(time.getTime());
+    }
+    
+    /**
+     * Return a new week unit using given date, rounded down to the start of the week.
+     */
+    public Week(long time) {
+        super(round(time));
+    }
+    
+    /**
+     * Return a new week unit based on the given time unit, rounded down to the start of the week.
+     */
+    public Week(TimeUnit timeUnit) {
+        this(timeUnit.getTimeInMillis());
+    }
+    
+    private static long round(long time) {
+        // Weeks start on Monday, regardless of locale
+        return toMillis(toDate(time).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+    }
+
+    public TimeUnit getAdded(int count) {
+        return new Week(toMillis(toDate(getTimeInMillis()).plusWeeks(count)));
+    }
+
+    public String getResolutionDescription() {
+        return "Week";
+    }
+}